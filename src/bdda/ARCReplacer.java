@@ -0,0 +1,144 @@
+package bdda;
+
+import java.util.Arrays;
+
+/**
+ * Politique ARC (Megiddo et Modha) : les pages présentes sont réparties
+ * entre T1 (demandées une seule fois depuis leur chargement) et T2 (demandées
+ * au moins deux fois), deux listes LRU. Les pages remplacées depuis T1 et T2
+ * sont gardées dans les historiques B1 et B2 (au plus une page par frame
+ * chacun). La taille visée de T1 s'adapte : une page rechargée depuis B1
+ * montre que T1 est trop petite, une page rechargée depuis B2 que T2 l'est.
+ * Une page rechargée depuis un historique entre directement dans T2.
+ *
+ * Un parcours séquentiel ne remplit que T1 : les pages réutilisées de T2
+ * restent en mémoire tant que le parcours ne se répète pas.
+ */
+class ARCReplacer implements Replacer {
+
+    private static final int NONE = -1;
+
+    private final Frame[] frames;
+    private final FrameList t1;
+    private final FrameList t2;
+    private final GhostList b1;
+    private final GhostList b2;
+    // Taille visée de T1, entre 0 et le nombre de frames
+    private int p;
+    // Clé de la page chargée dans chaque frame d'après les appels reçus, -1 si aucune
+    private final long[] residentKey;
+
+    /**
+     * @param frames frames du buffer pool
+     * @param seedPresent true pour reprendre les pages déjà présentes,
+     *        false si l'appelant les signale ensuite par recordLoad
+     */
+    ARCReplacer(Frame[] frames, boolean seedPresent) {
+        int n = frames.length;
+        this.frames = frames;
+        this.t1 = new FrameList(n);
+        this.t2 = new FrameList(n);
+        this.b1 = new GhostList(n);
+        this.b2 = new GhostList(n);
+        this.p = 0;
+        this.residentKey = new long[n];
+        Arrays.fill(residentKey, NONE);
+
+        // Pages déjà présentes (changement de politique) : traitées comme neuves
+        for (int i = 0; i < n && seedPresent; i++) {
+            if (frames[i].pageId != null) {
+                residentKey[i] = PageTable.key(frames[i].pageId);
+                t1.addFirst(i);
+            }
+        }
+    }
+
+    /**
+     * @return la taille visée de T1 après le chargement de la page
+     */
+    private int targetAfterLoad(long key) {
+        if (b1.contains(key)) {
+            return Math.min(frames.length, p + Math.max(1, b2.size() / b1.size()));
+        }
+        if (b2.contains(key)) {
+            return Math.max(0, p - Math.max(1, b1.size() / b2.size()));
+        }
+        return p;
+    }
+
+    @Override
+    public void recordLoad(int frameIdx) {
+        long old = residentKey[frameIdx];
+        if (old != NONE) {
+            // La page précédente de la frame a été remplacée
+            if (t1.contains(frameIdx)) {
+                t1.remove(frameIdx);
+                b1.addFirst(old, 0);
+            } else {
+                t2.remove(frameIdx);
+                b2.addFirst(old, 0);
+            }
+        }
+
+        long key = PageTable.key(frames[frameIdx].pageId);
+        residentKey[frameIdx] = key;
+        p = targetAfterLoad(key);
+        if (b1.remove(key) >= 0 || b2.remove(key) >= 0) {
+            t2.addFirst(frameIdx);
+        } else {
+            t1.addFirst(frameIdx);
+            // L1 = T1 + B1 ne dépasse pas le nombre de frames
+            if (t1.size() + b1.size() > frames.length) {
+                b1.removeLast();
+            }
+        }
+    }
+
+    @Override
+    public void recordAccess(int frameIdx) {
+        t1.remove(frameIdx);
+        t2.addFirst(frameIdx);
+    }
+
+    @Override
+    public void recordRelease(int frameIdx) {
+    }
+
+    @Override
+    public boolean isFrequent(int frameIdx) {
+        return t2.contains(frameIdx);
+    }
+
+    @Override
+    public int selectVictim(long incomingKey) {
+        int target = (incomingKey == NONE) ? p : targetAfterLoad(incomingKey);
+        int t1Size = t1.size();
+        boolean fromT1 = t1Size > 0
+                && (t1Size > target || (t1Size == target && incomingKey != NONE && b2.contains(incomingKey)));
+        FrameList first = fromT1 ? t1 : t2;
+        FrameList second = fromT1 ? t2 : t1;
+        int victim = first.lastUnpinned(frames);
+        return (victim != NONE) ? victim : second.lastUnpinned(frames);
+    }
+
+    @Override
+    public int peekVictims(int[] candidates, int max) {
+        // Simule les choix successifs : T1 tant qu'elle dépasserait sa taille visée
+        int count = 0;
+        int t1Size = t1.size();
+        int t1Cursor = t1.nextUnpinned(frames, t1.last());
+        int t2Cursor = t2.nextUnpinned(frames, t2.last());
+        while (count < max && (t1Cursor != NONE || t2Cursor != NONE)) {
+            boolean fromT1 = (t1Size > p && t1Cursor != NONE) || t2Cursor == NONE;
+            if (fromT1) {
+                candidates[count++] = t1Cursor;
+                t1Size--;
+                t1Cursor = t1.nextUnpinned(frames, t1.newer(t1Cursor));
+            } else {
+                candidates[count++] = t2Cursor;
+                t2Cursor = t2.nextUnpinned(frames, t2.newer(t2Cursor));
+            }
+        }
+        return count;
+    }
+}
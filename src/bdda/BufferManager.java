@@ -1,30 +1,235 @@
 package bdda;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.StampedLock;
 
+/**
+ * Buffer pool partagé par plusieurs threads.
+ *
+ * Une page présente est trouvée sans verrou exclusif : la table des pages
+ * est lue en lecture optimiste (StampedLock) et la page est épinglée par
+ * incrément atomique de son pinCount. Pour une page absente, le choix de la
+ * victime et l'inscription de la page dans la table se font sous poolLock ;
+ * l'écriture de la victime modifiée et la lecture de la page se font ensuite
+ * hors de tout verrou. Pendant ce temps la frame porte le chargement en cours
+ * (Frame.pendingLoad) : les autres threads qui demandent la page l'attendent
+ * au lieu de la lire une seconde fois, et ceux qui demandent la victime
+ * attendent la fin de son écriture (writeBacks) avant de la relire.
+ * La table n'est modifiée que sous son verrou d'écriture, et une frame n'est
+ * retirée de la table que si son pinCount est nul à cet instant : une page
+ * épinglée par un autre thread n'est jamais remplacée.
+ *
+ * Le contenu d'une page épinglée est protégé par le verrou de sa frame
+ * (LatchPage / UnlatchPage) : partagé pour lire, exclusif pour modifier.
+ *
+ * Avec bm_offheap, les frames sont des tranches d'une zone de mémoire hors
+ * du tas Java (quelques grands ByteBuffer directs) : le buffer pool n'est plus
+ * parcouru par le ramasse-miettes et les pages sont lues directement dans
+ * cette zone. Les pages ne sont alors accessibles que par GetPageBuffer.
+ *
+ * Avec bm_cleanpercent, un thread de fond (PageCleaner) écrit à l'avance les
+ * pages modifiées des prochaines victimes, dans l'ordre de la politique de
+ * remplacement ; StopCleaner l'arrête.
+ *
+ * Avec bm_readahead, les lectures séquentielles d'un fichier sont détectées
+ * (ReadAhead) et les pages suivantes sont lues à l'avance, de façon asynchrone,
+ * dans des frames vides ou propres, par le même mécanisme de chargement en cours.
+ *
+ * resize change le nombre de frames sans vider le buffer pool ni arrêter les
+ * autres threads. Les indices des frames conservées ne changent pas : le
+ * tableau des frames et la table des pages sont remplacés ensemble sous le
+ * verrou d'écriture de la table, ce qui invalide les lectures optimistes en cours.
+ *
+ * Avec bm_warmup, Shutdown enregistre les pages présentes (bm.warm) et WarmUp
+ * les recharge au démarrage suivant, par lectures groupées et parallèles.
+ */
 public class BufferManager {
 
+    // Pages par lecture groupée du préchargement (WarmUp)
+    private static final int WARMUP_BATCH = 32;
+
     private DBConfig config;
     private DiskManager diskManager;
-    private BufferPolicy policy;
-    private Frame[] frames;
-    private Map<String, Frame> pageTable;
+    private volatile BufferPolicy policy;
+    private volatile Frame[] frames;
+    private volatile PageTable pageTable;
+    private Map<PageId, Frame> pageTableView;
+    private Replacer replacer;
+    // Nombre de frames suivies par le Replacer (frames.length, sauf pendant
+    // une réduction : les frames au-delà sont en cours de vidage)
+    private volatile int capacity;
+    // Pile des indices des frames vides
+    private int[] freeFrames;
+    private int freeCount;
+    // Victimes modifiées en cours d'écriture, par clé PageTable (sous poolLock)
+    private final Map<Long, CompletableFuture<Void>> writeBacks;
+    // Demandes de page servies depuis le buffer pool / lues sur disque
+    private final LongAdder hitCount;
+    private final LongAdder missCount;
+    // Victimes modifiées écrites par GetPage / pages écrites par le nettoyeur
+    private final LongAdder dirtyEvictions;
+    private final LongAdder cleanerWrites;
+    private volatile PageCleaner cleaner;
+    // Frames candidates d'une passe du nettoyeur (sous cleanLock)
+    private int[] cleanCandidates;
+    // Lecture anticipée (null si bm_readahead = 0)
+    private final ReadAhead readAhead;
+    private volatile int prefetchLimit;
+    // Frames dont la page a été lue par anticipation et pas encore demandée
+    private final AtomicInteger prefetchedFrames;
+    private final LongAdder prefetchCount;
+    private final LongAdder prefetchHits;
+    private final LongAdder prefetchWasted;
+    // Lectures anticipées en cours (attendues par FlushBuffers)
+    private final Object prefetchLock;
+    private int prefetchesInFlight;
+
+    // Choix des victimes et inscription des chargements, pile des frames vides, FlushBuffers
+    private final ReentrantLock poolLock;
+    // Modifications de la table des pages (prises sous poolLock)
+    private final StampedLock tableLock;
+    // Appels au Replacer, qui n'est pas partagé entre threads
+    private final ReentrantLock replacerLock;
+    // Accès et libérations signalés pendant que replacerLock était pris (voir recordHint)
+    private final ConcurrentLinkedQueue<Hint> pendingHints;
+    // Passes du nettoyeur (pris avant poolLock par FlushBuffers et resize)
+    private final ReentrantLock cleanLock;
 
     public BufferManager(DBConfig config, DiskManager diskManager) {
+        this(config, diskManager, config.getBufferCount(), true);
+    }
+
+    /**
+     * @param frameCount nombre de frames (0 pour la façade PartitionedBufferManager)
+     * @param readAheadAllowed false pour ignorer bm_readahead
+     */
+    BufferManager(DBConfig config, DiskManager diskManager, int frameCount, boolean readAheadAllowed) {
         this.config = config;
         this.diskManager = diskManager;
         this.policy = config.getBufferPolicy();
 
-        this.frames = new Frame[config.getBufferCount()];
-        this.pageTable = new HashMap<>();
+        this.frames = new Frame[frameCount];
+        this.pageTable = new PageTable(frameCount);
+        this.pageTableView = new PageTableView();
+        this.writeBacks = new HashMap<>();
+
+        allocateFrames(frames, 0);
+        this.capacity = frames.length;
+        this.freeFrames = new int[frames.length];
+        resetFreeFrames();
+        this.replacer = createReplacer(policy, frames, true);
+        this.hitCount = new LongAdder();
+        this.missCount = new LongAdder();
+        this.poolLock = new ReentrantLock();
+        this.tableLock = new StampedLock();
+        this.replacerLock = new ReentrantLock();
+        this.pendingHints = new ConcurrentLinkedQueue<>();
+        this.cleanLock = new ReentrantLock();
+        this.dirtyEvictions = new LongAdder();
+        this.cleanerWrites = new LongAdder();
+        this.cleanCandidates = new int[frames.length];
+        this.readAhead = (readAheadAllowed && config.getReadAhead() > 0) ? new ReadAhead(config.getReadAhead()) : null;
+        this.prefetchLimit = prefetchLimit(frames.length);
+        this.prefetchedFrames = new AtomicInteger();
+        this.prefetchCount = new LongAdder();
+        this.prefetchHits = new LongAdder();
+        this.prefetchWasted = new LongAdder();
+        this.prefetchLock = new Object();
+        this.prefetchesInFlight = 0;
+        if (config.getCleanPercent() > 0 && frameCount > 0) {
+            this.cleaner = new PageCleaner(this, config.getCleanRate());
+            this.cleaner.start();
+        }
+    }
+
+    /**
+     * Crée les frames target[from..], dans le tas Java ou hors du tas (bm_offheap).
+     */
+    private void allocateFrames(Frame[] target, int from) {
+        if (config.isOffHeap()) {
+            allocateOffHeapFrames(target, from);
+        } else {
+            for (int i = from; i < target.length; i++) {
+                target[i] = new Frame(config.getPageSize());
+            }
+        }
+    }
 
-        for(int i = 0; i < config.getBufferCount(); i++) {
-            frames[i] = new Frame(config.getPageSize());
+    /**
+     * Découpe les frames dans des ByteBuffer directs d'au plus 1 Go chacun
+     * (limite d'un ByteBuffer : 2 Go). La mémoire directe utilisable est bornée
+     * par -XX:MaxDirectMemorySize.
+     */
+    private void allocateOffHeapFrames(Frame[] target, int from) {
+        int pageSize = config.getPageSize();
+        int pagesPerChunk = Math.max(1, (1 << 30) / pageSize);
+        ByteBuffer chunk = null;
+        for (int i = from; i < target.length; i++) {
+            int inChunk = (i - from) % pagesPerChunk;
+            if (inChunk == 0) {
+                int pages = Math.min(pagesPerChunk, target.length - i);
+                chunk = ByteBuffer.allocateDirect(pages * pageSize);
+            }
+            ByteBuffer slice = chunk.duplicate();
+            slice.position(inChunk * pageSize).limit((inChunk + 1) * pageSize);
+            target[i] = new Frame(slice.slice());
         }
     }
 
+    private int prefetchLimit(int frameCount) {
+        return Math.max(1, Math.min(config.getPrefetchLimit(), frameCount / 2));
+    }
+
+    /**
+     * @param seedPresent false si les pages déjà présentes sont ensuite
+     *        signalées par recordLoad (transferReplacer)
+     */
+    private Replacer createReplacer(BufferPolicy policy, Frame[] frames, boolean seedPresent) {
+        switch (policy) {
+            case MRU:
+                return new LRUReplacer(frames, true);
+            case CLOCK:
+                return new ClockReplacer(frames);
+            case CLOCKPRO:
+                return new ClockProReplacer(frames);
+            case LRU2:
+                return new LRU2Replacer(frames, seedPresent);
+            case TWOQ:
+                return new TwoQReplacer(frames, seedPresent);
+            case ARC:
+                return new ARCReplacer(frames, seedPresent);
+            default:
+                return new LRUReplacer(frames, false);
+        }
+    }
+
+    private void resetFreeFrames() {
+        // Dépilées dans l'ordre des indices
+        for (int i = 0; i < frames.length; i++) {
+            freeFrames[i] = frames.length - 1 - i;
+        }
+        freeCount = frames.length;
+    }
+
     public DBConfig getConfig() {
         return config;
     }
@@ -33,126 +238,1829 @@ public class BufferManager {
         return diskManager;
     }
 
-    public Map<String, Frame> getPageTable() {
-        return pageTable;
+    /**
+     * @return une vue en lecture seule des pages présentes dans le buffer pool
+     *         et de leurs frames (reflète les changements ultérieurs)
+     */
+    public Map<PageId, Frame> getPageTable() {
+        return pageTableView;
+    }
+
+    /**
+     * @return le nombre de GetPage servis sans lecture disque depuis la dernière remise à zéro
+     */
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    /**
+     * @return le nombre de GetPage ayant dû lire la page sur disque depuis la dernière remise à zéro
+     */
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    /**
+     * @return la proportion de GetPage servis sans lecture disque (0 si aucun GetPage)
+     */
+    public double getHitRatio() {
+        long hits = hitCount.sum();
+        long total = hits + missCount.sum();
+        return (total == 0) ? 0 : (double) hits / total;
+    }
+
+    /**
+     * Remet à zéro les compteurs de succès et d'échecs, par exemple pour
+     * comparer les politiques de remplacement sur une même charge.
+     */
+    public void resetHitStatistics() {
+        hitCount.reset();
+        missCount.reset();
+    }
+
+    /**
+     * @return le nombre de victimes modifiées que GetPage a dû écrire avant de
+     *         charger une page (deux entrées/sorties au lieu d'une)
+     */
+    public long getDirtyEvictionCount() {
+        return dirtyEvictions.sum();
+    }
+
+    /**
+     * @return le nombre de pages écrites à l'avance par le nettoyeur
+     */
+    public long getCleanerWriteCount() {
+        return cleanerWrites.sum();
+    }
+
+    /**
+     * @return le nombre de pages lues par anticipation
+     */
+    public long getPrefetchCount() {
+        return prefetchCount.sum();
+    }
+
+    /**
+     * @return le nombre de pages lues par anticipation puis demandées par GetPage
+     */
+    public long getPrefetchHitCount() {
+        return prefetchHits.sum();
+    }
+
+    /**
+     * @return le nombre de pages lues par anticipation puis remplacées sans avoir été demandées
+     */
+    public long getWastedPrefetchCount() {
+        return prefetchWasted.sum();
+    }
+
+    /**
+     * Arrête le nettoyeur de pages (sans effet s'il n'a pas été lancé).
+     * Les pages modifiées restantes sont écrites par FlushBuffers ou au remplacement.
+     */
+    public void StopCleaner() {
+        PageCleaner c;
+        synchronized (this) {
+            c = cleaner;
+            cleaner = null;
+        }
+        if (c != null) {
+            c.stop();
+        }
+    }
+
+    /**
+     * Passe du nettoyeur : écrit les pages modifiées parmi les prochaines
+     * victimes (les bm_cleanpercent % des frames en tête de l'ordre de
+     * remplacement), au plus maxWrites pages.
+     *
+     * @return le nombre de pages écrites
+     * @throws IOException si une écriture échoue (la page reste modifiée)
+     */
+    int cleanPages(int maxWrites) throws IOException {
+        int window = (frames.length * config.getCleanPercent() + 99) / 100;
+        cleanLock.lock();
+        try {
+            int count;
+            lockReplacer();
+            try {
+                count = replacer.peekVictims(cleanCandidates, window);
+            } finally {
+                replacerLock.unlock();
+            }
+            int written = 0;
+            for (int i = 0; i < count && written < maxWrites; i++) {
+                if (cleanFrame(cleanCandidates[i])) {
+                    written++;
+                }
+            }
+            return written;
+        } finally {
+            cleanLock.unlock();
+        }
+    }
+
+    /**
+     * Écrit une page modifiée sans la retirer du buffer pool, si aucun autre
+     * thread ne l'utilise. La page est épinglée pendant l'écriture (elle ne
+     * peut pas être remplacée) et marquée propre avant l'écriture : une
+     * modification faite entre-temps la marquera de nouveau modifiée.
+     *
+     * @return true si la page a été écrite
+     */
+    private boolean cleanFrame(int frameIdx) throws IOException {
+        Frame frame = frames[frameIdx];
+        PageId pageId = frame.pageId;
+        if (pageId == null || !frame.dirty) {
+            return false;
+        }
+        int pinned = pinIfPresent(PageTable.key(pageId));
+        if (pinned < 0) {
+            return false;
+        }
+        try {
+            if (pinned != frameIdx || frame.pinCount.get() > 1 || !frame.latch.readLock().tryLock()) {
+                return false;
+            }
+            try {
+                long lsn;
+                synchronized (frame) {
+                    if (!frame.dirty) {
+                        return false;
+                    }
+                    frame.dirty = false;
+                    lsn = frame.pageLSN;
+                }
+                try {
+                    LogManager log = diskManager.getLogManager();
+                    if (log != null) {
+                        log.flush(lsn);
+                    }
+                    diskManager.writeLoggedPage(pageId, frame.data);
+                } catch (IOException e) {
+                    frame.dirty = true;
+                    throw e;
+                }
+                cleanerWrites.increment();
+                return true;
+            } finally {
+                frame.latch.readLock().unlock();
+            }
+        } finally {
+            frames[pinned].pinCount.decrementAndGet();
+        }
+    }
+
+    /**
+     * Cherche une page dans la table (lecture optimiste, puis verrou de
+     * lecture si la table a été modifiée entre-temps).
+     *
+     * @return l'indice de la frame de la page, ou -1 si elle est absente
+     */
+    private int lookup(long key) {
+        long stamp = tableLock.tryOptimisticRead();
+        if (stamp != 0) {
+            int frameIdx = pageTable.get(key);
+            if (tableLock.validate(stamp)) {
+                return frameIdx;
+            }
+        }
+        stamp = tableLock.readLock();
+        try {
+            return pageTable.get(key);
+        } finally {
+            tableLock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Épingle la page si elle est présente. L'épinglage n'est gardé que si la
+     * table n'a pas changé entre la recherche et l'incrément : la frame ne
+     * peut alors plus être choisie comme victime.
+     *
+     * @return l'indice de la frame épinglée, ou -1 si la page est absente
+     */
+    private int pinIfPresent(long key) {
+        long stamp = tableLock.tryOptimisticRead();
+        if (stamp != 0) {
+            int frameIdx = pageTable.get(key);
+            // Tableau éventuellement remplacé par resize depuis la lecture de la table
+            Frame[] fs = frames;
+            if (frameIdx >= 0 && frameIdx < fs.length) {
+                fs[frameIdx].pinCount.incrementAndGet();
+                if (tableLock.validate(stamp)) {
+                    return frameIdx;
+                }
+                fs[frameIdx].pinCount.decrementAndGet();
+            } else if (frameIdx < 0 && tableLock.validate(stamp)) {
+                return -1;
+            }
+        }
+        stamp = tableLock.readLock();
+        try {
+            int frameIdx = pageTable.get(key);
+            if (frameIdx >= 0) {
+                frames[frameIdx].pinCount.incrementAndGet();
+            }
+            return frameIdx;
+        } finally {
+            tableLock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Signale un accès ou une libération au Replacer. Si un autre thread
+     * utilise déjà le Replacer, l'information est mise en attente plutôt que
+     * d'attendre le verrou : elle sera appliquée par le prochain thread qui
+     * prend replacerLock (lockReplacer), donc avant le choix d'une victime.
+     */
+    private void recordHint(int frameIdx, PageId pageId, boolean access) {
+        long key = PageTable.key(pageId);
+        if (!replacerLock.tryLock()) {
+            pendingHints.add(new Hint(frameIdx, key, access));
+            return;
+        }
+        try {
+            drainHints();
+            applyHint(frameIdx, key, access);
+        } finally {
+            replacerLock.unlock();
+        }
+    }
+
+    /**
+     * Prend replacerLock et applique les accès et libérations mis en attente.
+     */
+    private void lockReplacer() {
+        replacerLock.lock();
+        drainHints();
+    }
+
+    /**
+     * Applique, dans leur ordre d'arrivée, les accès et libérations mis en
+     * attente par recordHint. Appelée sous replacerLock.
+     */
+    private void drainHints() {
+        Hint hint;
+        while ((hint = pendingHints.poll()) != null) {
+            applyHint(hint.frameIdx, hint.key, hint.access);
+        }
+    }
+
+    /**
+     * Transmet un accès ou une libération au Replacer, si la frame contient
+     * encore la page (elle a pu être remplacée ou retirée par resize entre-temps).
+     * Appelée sous replacerLock.
+     */
+    private void applyHint(int frameIdx, long key, boolean access) {
+        if (frameIdx >= capacity) {
+            // Frame en cours de retrait (resize)
+            return;
+        }
+        PageId current = frames[frameIdx].pageId;
+        if (current == null || PageTable.key(current) != key) {
+            return;
+        }
+        if (access) {
+            replacer.recordAccess(frameIdx);
+        } else {
+            replacer.recordRelease(frameIdx);
+        }
     }
 
     public byte[] GetPage(PageId pageId) throws IOException {
-        String key = pageId.getFileIdx() + ":" + pageId.getPageIdx();
+        return GetPage(pageId, null);
+    }
+
+    /**
+     * GetPage pour une opération en masse : une page absente est chargée
+     * dans une frame de l'anneau (voir BufferRing), et l'accès n'est pas
+     * signalé à la politique de remplacement. À libérer par
+     * FreePage(pageId, valDirty, ring).
+     *
+     * @param ring anneau créé par createRing, ou null pour un GetPage ordinaire
+     */
+    public byte[] GetPage(PageId pageId, BufferRing ring) throws IOException {
+        if (config.isOffHeap()) {
+            throw new IllegalStateException("Buffer pool hors du tas (bm_offheap) : utiliser GetPageBuffer");
+        }
+        // pin avant la lecture de frames : un resize peut remplacer le tableau
+        int frameIdx = pin(pageId, ring);
+        return frames[frameIdx].buffer;
+    }
+
+    /**
+     * Épingle une page comme GetPage et retourne une vue sur son contenu,
+     * dans le tas ou hors du tas selon bm_offheap. La vue couvre exactement
+     * la page (position 0, limite config.getPageSize()) ; elle n'est
+     * utilisable que jusqu'au FreePage correspondant.
+     *
+     * @param pageId page à épingler
+     * @return une vue propre à l'appelant sur le contenu de la page
+     * @throws IOException si la page ne peut pas être lue ou si toutes les frames sont épinglées
+     */
+    public ByteBuffer GetPageBuffer(PageId pageId) throws IOException {
+        return GetPageBuffer(pageId, null);
+    }
+
+    /**
+     * GetPageBuffer pour une opération en masse (voir GetPage(PageId, BufferRing)).
+     *
+     * @param ring anneau créé par createRing, ou null
+     */
+    public ByteBuffer GetPageBuffer(PageId pageId, BufferRing ring) throws IOException {
+        int frameIdx = pin(pageId, ring);
+        return frames[frameIdx].data.duplicate();
+    }
 
-        Frame frame = pageTable.get(key);
+    /**
+     * Crée un anneau de frames pour une opération en masse (voir BufferRing).
+     *
+     * @param size nombre de frames de l'anneau, ramené au quart du buffer pool au plus
+     * @return le nouvel anneau
+     */
+    public BufferRing createRing(int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Taille d'anneau invalide : " + size);
+        }
+        return new BufferRing(this, Math.min(size, Math.max(1, frames.length / 4)));
+    }
 
-        if(frame != null) {
-            frame.pinCount++;
-            frame.lastAccess = System.currentTimeMillis();
-            return frame.buffer;
+    private void checkRing(BufferRing ring) {
+        if (ring != null && ring.owner != this) {
+            throw new IllegalArgumentException("Anneau créé par un autre BufferManager");
         }
+    }
 
-        Frame freeFrame = null;
+    /**
+     * Épingle une page, en la chargeant si elle est absente.
+     *
+     * @param ring anneau de l'opération en masse, ou null
+     * @return l'indice de sa frame
+     */
+    private int pin(PageId pageId, BufferRing ring) throws IOException {
+        checkRing(ring);
+        long key = PageTable.key(pageId);
+
+        while (true) {
+            int frameIdx = pinIfPresent(key);
+            boolean hit = frameIdx >= 0;
+            Load load = null;
+            CompletableFuture<Void> writeBack = null;
+            if (!hit) {
+                poolLock.lock();
+                try {
+                    // Chargée par un autre thread pendant l'attente de poolLock ?
+                    // (la table n'est modifiée que sous poolLock : lecture directe)
+                    frameIdx = pageTable.get(key);
+                    hit = frameIdx >= 0;
+                    if (hit) {
+                        frames[frameIdx].pinCount.incrementAndGet();
+                    } else {
+                        writeBack = writeBacks.get(key);
+                        if (writeBack == null) {
+                            missCount.increment();
+                            load = startLoad(pageId, key, ring);
+                            frameIdx = load.frameIdx;
+                        }
+                    }
+                } finally {
+                    poolLock.unlock();
+                }
+            }
 
-        for(Frame f : frames) {
-            if(f.pageId == null) {
-                freeFrame = f;
-                break;
+            if (writeBack != null) {
+                // Page remplacée dont l'écriture n'est pas finie : la relire après
+                try {
+                    writeBack.join();
+                } catch (CompletionException | CancellationException e) {
+                    // Écriture en échec : la page est revenue dans la table
+                }
+                continue;
+            }
+            if (load != null) {
+                finishLoad(load, pageId, key);
+            } else {
+                hitCount.increment();
+                Frame frame = frames[frameIdx];
+                if (frame.prefetched && takePrefetched(frame)) {
+                    // Première demande d'une page lue par anticipation : pour le
+                    // Replacer, c'est son chargement (déjà signalé), pas un second accès
+                    prefetchHits.increment();
+                    readAhead.onPrefetchHit(pageId.getFileIdx());
+                } else if (ring == null) {
+                    recordHint(frameIdx, pageId, true);
+                }
+                CompletableFuture<Void> pending = frame.pendingLoad;
+                if (pending != null && !awaitLoad(frame, frameIdx, pageId, pending)) {
+                    continue;
+                }
+            }
+            // Pas de lecture anticipée pour un anneau : elle prendrait des frames au buffer pool
+            if (readAhead != null && ring == null) {
+                readAheadAfter(pageId);
             }
+            return frameIdx;
         }
+    }
 
-        if (freeFrame == null) {
-            
-            freeFrame = selectVictimFrame(); 
+    /**
+     * Accès ou libération en attente du Replacer (voir recordHint).
+     */
+    private static final class Hint {
+        final int frameIdx;
+        // Clé de la page concernée, pour ignorer une frame remplacée entre-temps
+        final long key;
+        final boolean access;
+
+        Hint(int frameIdx, long key, boolean access) {
+            this.frameIdx = frameIdx;
+            this.key = key;
+            this.access = access;
+        }
+    }
+
+    /**
+     * Chargement d'une page lancé par un thread : frame choisie et victime
+     * modifiée à écrire avant la lecture.
+     */
+    private static final class Load {
+        final int frameIdx;
+        final Frame frame;
+        final CompletableFuture<Void> done;
+        // Victime modifiée (null si la frame était vide ou la victime propre)
+        PageId victim;
+        long victimLSN;
+        CompletableFuture<Void> writeBack;
+
+        Load(int frameIdx, Frame frame) {
+            this.frameIdx = frameIdx;
+            this.frame = frame;
+            this.done = new CompletableFuture<>();
+        }
+    }
+
+    /**
+     * Choisit une frame vide ou une victime pour une page absente et inscrit
+     * le chargement dans la table (page épinglée, Frame.pendingLoad). Appelée
+     * sous poolLock ; les entrées/sorties sont faites ensuite par finishLoad.
+     * Avec un anneau, la plus ancienne frame de l'anneau est réutilisée si
+     * possible ; le changement de page est signalé à la politique comme un
+     * chargement (la page précédente de la frame rejoint son historique).
+     */
+    private Load startLoad(PageId pageId, long key, BufferRing ring) throws IOException {
+        int slot = -1;
+        int frameIdx = -1;
+        if (ring != null) {
+            slot = ring.next;
+            ring.next = (slot + 1) % ring.frameIdx.length;
+            frameIdx = reuseRingFrame(ring, slot);
+        }
+        if (frameIdx < 0) {
+            frameIdx = takeFrame(key, false);
+        }
+        if (ring != null) {
+            ring.frameIdx[slot] = frameIdx;
+            ring.pages[slot] = pageId;
+        }
+        Frame frame = frames[frameIdx];
+        Load load = new Load(frameIdx, frame);
+        if (frame.pageId != null && frame.dirty) {
+            load.victim = frame.pageId;
+            load.victimLSN = frame.pageLSN;
+            load.writeBack = new CompletableFuture<>();
+            writeBacks.put(PageTable.key(frame.pageId), load.writeBack);
+            dirtyEvictions.increment();
+            PageCleaner c = cleaner;
+            if (c != null) {
+                // Le nettoyeur est en retard : le réveiller
+                c.wakeUp();
+            }
+        }
+        registerLoad(pageId, key, frameIdx, load.done, false);
+        return load;
+    }
+
+    /**
+     * Retire de la table la page chargée par l'anneau dans sa frame slot, si
+     * elle y est encore et n'est pas épinglée. Appelée sous poolLock.
+     *
+     * @return l'indice de la frame libérée, -1 si elle n'est pas réutilisable
+     */
+    private int reuseRingFrame(BufferRing ring, int slot) {
+        int frameIdx = ring.frameIdx[slot];
+        // Frame retirée par resize, ou en cours de retrait
+        if (frameIdx < 0 || frameIdx >= capacity) {
+            return -1;
+        }
+        Frame frame = frames[frameIdx];
+        long stamp = tableLock.writeLock();
+        try {
+            // Page remplacée depuis par le buffer pool, ou épinglée par un autre thread
+            if (!ring.pages[slot].equals(frame.pageId) || frame.pinCount.get() != 0) {
+                return -1;
+            }
+            pageTable.remove(PageTable.key(frame.pageId));
+            forgetLoad(frame);
+            return frameIdx;
+        } finally {
+            tableLock.unlockWrite(stamp);
+        }
+    }
 
-            if (freeFrame == null) {
+    /**
+     * Inscrit une page en cours de chargement dans une frame prise sous
+     * poolLock : la page est épinglée et mise dans la table avant sa lecture.
+     */
+    private void registerLoad(PageId pageId, long key, int frameIdx, CompletableFuture<Void> done, boolean prefetch) {
+        Frame frame = frames[frameIdx];
+        frame.pageId = pageId;
+        frame.dirty = false;
+        frame.pendingLoad = done;
+        frame.prefetched = prefetch;
+        // Incrément (et non affectation) : un épinglage optimiste invalidé peut
+        // encore être en train d'être annulé
+        frame.pinCount.incrementAndGet();
+
+        long stamp = tableLock.writeLock();
+        pageTable.put(key, frameIdx);
+        tableLock.unlockWrite(stamp);
+
+        lockReplacer();
+        try {
+            replacer.recordLoad(frameIdx);
+        } finally {
+            replacerLock.unlock();
+        }
+    }
+
+    /**
+     * Termine un chargement hors verrou : écrit la victime modifiée, puis lit
+     * la page. Si l'écriture échoue, la victime reprend sa frame ; si la
+     * lecture échoue, la page reste dans la table avec son chargement en
+     * échec (relue par le prochain GetPage, ou remplacée).
+     *
+     * @throws IOException si l'écriture ou la lecture échoue (la page est alors désépinglée)
+     */
+    private void finishLoad(Load load, PageId pageId, long key) throws IOException {
+        Frame frame = load.frame;
+        if (load.writeBack != null) {
+            try {
+                // Journal avant données : l'image de la page doit être durable avant la page
+                LogManager log = diskManager.getLogManager();
+                if (log != null) {
+                    log.flush(load.victimLSN);
+                }
+                diskManager.writeLoggedPage(load.victim, frame.data);
+            } catch (IOException e) {
+                restoreVictim(load, key);
+                load.writeBack.completeExceptionally(e);
+                load.done.completeExceptionally(e);
+                frame.pinCount.decrementAndGet();
+                throw e;
+            }
+            poolLock.lock();
+            try {
+                writeBacks.remove(PageTable.key(load.victim));
+            } finally {
+                poolLock.unlock();
+            }
+            load.writeBack.complete(null);
+        }
+
+        try {
+            diskManager.ReadPage(pageId, frame.data);
+        } catch (IOException e) {
+            load.done.completeExceptionally(e);
+            frame.pinCount.decrementAndGet();
+            throw e;
+        }
+        frame.pendingLoad = null;
+        load.done.complete(null);
+    }
+
+    /**
+     * Écriture de la victime en échec : la page modifiée reprend sa frame,
+     * qui contient encore ses données, et la page demandée quitte la table.
+     * La politique de remplacement, qui suit la frame sous la page demandée,
+     * reçoit le retour de la victime comme un chargement.
+     */
+    private void restoreVictim(Load load, long key) {
+        Frame frame = load.frame;
+        poolLock.lock();
+        try {
+            long stamp = tableLock.writeLock();
+            try {
+                pageTable.remove(key);
+                pageTable.put(PageTable.key(load.victim), load.frameIdx);
+            } finally {
+                tableLock.unlockWrite(stamp);
+            }
+            frame.pageId = load.victim;
+            frame.dirty = true;
+            frame.pageLSN = load.victimLSN;
+            frame.pendingLoad = null;
+            writeBacks.remove(PageTable.key(load.victim));
+            lockReplacer();
+            try {
+                replacer.recordLoad(load.frameIdx);
+            } finally {
+                replacerLock.unlock();
+            }
+        } finally {
+            poolLock.unlock();
+        }
+    }
+
+    /**
+     * Retire la marque « lue par anticipation » d'une frame.
+     *
+     * @return true si la frame portait la marque
+     */
+    private boolean takePrefetched(Frame frame) {
+        synchronized (frame) {
+            if (!frame.prefetched) {
+                return false;
+            }
+            frame.prefetched = false;
+        }
+        prefetchedFrames.decrementAndGet();
+        return true;
+    }
+
+    /**
+     * Attend la fin du chargement d'une page épinglée, lancé par un autre
+     * thread ou par la lecture anticipée. Si la lecture a échoué, un seul des
+     * threads qui l'attendent inscrit une nouvelle lecture dans la frame
+     * (Frame.pendingLoad) et la fait hors de poolLock, comme finishLoad ;
+     * les autres attendent cette nouvelle lecture.
+     *
+     * @return false si le chargement a été annulé (la page n'est plus dans la
+     *         frame, qui est désépinglée) : la demande est à refaire
+     * @throws IOException si la relecture échoue (la page est alors désépinglée)
+     */
+    private boolean awaitLoad(Frame frame, int frameIdx, PageId pageId, CompletableFuture<Void> load) throws IOException {
+        while (true) {
+            try {
+                load.join();
+                return true;
+            } catch (CompletionException | CancellationException e) {
+                // Relecture ci-dessous
+            }
+            Load retry = null;
+            poolLock.lock();
+            try {
+                if (!pageId.equals(frame.pageId)) {
+                    // Écriture de la victime en échec : la frame a repris l'ancienne page
+                    frame.pinCount.decrementAndGet();
+                    return false;
+                }
+                CompletableFuture<Void> pending = frame.pendingLoad;
+                if (pending == null) {
+                    return true;
+                }
+                if (pending == load) {
+                    // Premier à constater l'échec : la relecture est pour ce thread
+                    retry = new Load(frameIdx, frame);
+                    frame.pendingLoad = retry.done;
+                } else {
+                    // Relecture déjà lancée par un autre thread
+                    load = pending;
+                }
+            } finally {
+                poolLock.unlock();
+            }
+            if (retry != null) {
+                finishLoad(retry, pageId, PageTable.key(pageId));
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Enregistre la demande d'une page auprès de ReadAhead et lance la
+     * lecture anticipée des pages suivantes si le flux est séquentiel,
+     * dans la limite de bm_prefetchlimit frames et de la fin du fichier.
+     * Le flux n'avance que jusqu'à la dernière page effectivement lancée.
+     */
+    private void readAheadAfter(PageId pageId) {
+        int[] range = readAhead.onAccess(pageId);
+        if (range == null) {
+            return;
+        }
+        int fileIdx = pageId.getFileIdx();
+        int end;
+        try {
+            end = Math.min(range[1], diskManager.getPageCount(fileIdx));
+        } catch (IOException e) {
+            return;
+        }
+        int p = range[0];
+        while (p < end && prefetchedFrames.get() < prefetchLimit && prefetch(new PageId(fileIdx, p))) {
+            p++;
+        }
+        // Pages sautées : proposées de nouveau au prochain accès
+        readAhead.onPrefetched(fileIdx, range[0], p);
+    }
+
+    /**
+     * Lance la lecture asynchrone d'une page absente dans une frame vide ou
+     * dans la frame d'une victime propre (jamais d'écriture pour une lecture
+     * anticipée). La page est mise dans la table avant la fin de la lecture,
+     * épinglée jusqu'à la fin de celle-ci.
+     *
+     * @return false si aucune frame vide ou propre n'est disponible
+     */
+    private boolean prefetch(PageId pageId) {
+        long key = PageTable.key(pageId);
+        if (lookup(key) >= 0) {
+            return true;
+        }
+        Frame frame;
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        poolLock.lock();
+        try {
+            if (pageTable.get(key) >= 0 || writeBacks.containsKey(key)) {
+                return true;
+            }
+            int frameIdx = takeFrame(key, true);
+            if (frameIdx < 0) {
+                return false;
+            }
+            frame = frames[frameIdx];
+            prefetchedFrames.incrementAndGet();
+            synchronized (prefetchLock) {
+                prefetchesInFlight++;
+            }
+            registerLoad(pageId, key, frameIdx, done, true);
+        } catch (IOException e) {
+            return false;
+        } finally {
+            poolLock.unlock();
+        }
+
+        prefetchCount.increment();
+        diskManager.ReadPageAsync(pageId, frame.data).whenComplete((v, e) -> {
+            if (e == null) {
+                done.complete(null);
+                frame.pendingLoad = null;
+            } else {
+                // Reste dans la table : relue par le premier GetPage, ou remplacée
+                done.completeExceptionally(e);
+            }
+            frame.pinCount.decrementAndGet();
+            synchronized (prefetchLock) {
+                prefetchesInFlight--;
+                if (prefetchesInFlight == 0) {
+                    prefetchLock.notifyAll();
+                }
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Attend la fin des lectures anticipées en cours.
+     */
+    private void awaitPrefetches() {
+        synchronized (prefetchLock) {
+            boolean interrupted = false;
+            while (prefetchesInFlight > 0) {
+                try {
+                    prefetchLock.wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Prend une frame vide, ou à défaut celle d'une victime (propre
+     * seulement si cleanOnly). Appelée sous poolLock.
+     *
+     * @return l'indice de la frame, -1 si cleanOnly et la victime est modifiée
+     * @throws IOException si toutes les frames sont épinglées
+     */
+    private int takeFrame(long key, boolean cleanOnly) throws IOException {
+        if (freeCount > 0) {
+            return freeFrames[--freeCount];
+        }
+        return evictVictim(key, cleanOnly);
+    }
+
+    /**
+     * Choisit une victime et la retire de la table, à condition qu'elle ne
+     * soit pas épinglée au moment du retrait. Appelée sous poolLock.
+     *
+     * @param cleanOnly true pour renoncer si la victime est modifiée
+     * @return l'indice de la frame libérée, -1 si cleanOnly et la victime est modifiée
+     * @throws IOException si toutes les frames sont épinglées
+     */
+    private int evictVictim(long incomingKey, boolean cleanOnly) throws IOException {
+        while (true) {
+            int frameIdx;
+            lockReplacer();
+            try {
+                frameIdx = replacer.selectVictim(incomingKey);
+            } finally {
+                replacerLock.unlock();
+            }
+            if (frameIdx < 0) {
                 throw new IOException("Buffer pool saturé : toutes les frames sont épinglées");
             }
-            
-            
-            if (freeFrame.dirty) {
-                diskManager.WritePage(freeFrame.pageId, freeFrame.buffer);
+
+            Frame victim = frames[frameIdx];
+            long stamp = tableLock.writeLock();
+            try {
+                // Sous le verrou d'écriture, plus aucun thread ne peut épingler la page
+                if (victim.pinCount.get() == 0) {
+                    if (cleanOnly && victim.dirty) {
+                        return -1;
+                    }
+                    pageTable.remove(PageTable.key(victim.pageId));
+                    forgetLoad(victim);
+                    return frameIdx;
+                }
+            } finally {
+                tableLock.unlockWrite(stamp);
             }
-            
-            String oldKey = freeFrame.pageId.getFileIdx() + ":" + freeFrame.pageId.getPageIdx();
-            pageTable.remove(oldKey);
-            
+            // Épinglée entre-temps par un autre thread : choisir une autre victime
+            Thread.yield();
         }
+    }
 
-        diskManager.ReadPage(pageId, freeFrame.buffer);
-        freeFrame.pageId = pageId;
-        freeFrame.dirty = false;
-        freeFrame.pinCount = 1;
-        freeFrame.lastAccess = System.currentTimeMillis();
-        pageTable.put(key, freeFrame);
-        
-        return freeFrame.buffer;
-    } 
+    /**
+     * Oublie l'état de lecture anticipée d'une frame retirée de la table.
+     */
+    private void forgetLoad(Frame frame) {
+        // Lecture anticipée échouée jamais relue : abandonnée avec la page
+        frame.pendingLoad = null;
+        if (takePrefetched(frame)) {
+            // Lue par anticipation mais jamais demandée
+            prefetchWasted.increment();
+            readAhead.onPrefetchWasted(frame.pageId.getFileIdx());
+        }
+    }
 
      public void SetCurrentReplacementPolicy(BufferPolicy policy) {
         if (policy == null) {
             throw new IllegalArgumentException("Politique de remplacement invalide.");
         }
-        this.policy = policy;
+        poolLock.lock();
+        lockReplacer();
+        try {
+            if (policy != this.policy) {
+                // Les pages présentes repartent sans historique dans la nouvelle politique
+                this.replacer = createReplacer(policy, Arrays.copyOf(frames, capacity), true);
+            }
+            this.policy = policy;
+        } finally {
+            replacerLock.unlock();
+            poolLock.unlock();
+        }
     }
 
     public Frame selectVictimFrame() {
-        Frame victim = null;
+        int victim;
+        lockReplacer();
+        try {
+            victim = replacer.selectVictim(-1);
+        } finally {
+            replacerLock.unlock();
+        }
+        return (victim < 0) ? null : frames[victim];
+    }
 
-        if(this.policy == BufferPolicy.LRU) {
-            long oldest = Long.MAX_VALUE;
+    public void FreePage(PageId pageId, boolean valDirty) {
+        FreePage(pageId, valDirty, null);
+    }
+
+    /**
+     * Libère une page épinglée avec un anneau (sans la signaler à la
+     * politique de remplacement).
+     *
+     * @param ring anneau passé à GetPage, ou null
+     */
+    public void FreePage(PageId pageId, boolean valDirty, BufferRing ring) {
+        checkRing(ring);
+        int frameIdx = lookup(PageTable.key(pageId));
+        Frame frame = (frameIdx >= 0) ? frames[frameIdx] : null;
+
+        if (frame != null && frame.pinCount.get() > 0) {
+            release(pageId, frame, frameIdx, valDirty, ring == null);
+        }
+    }
 
-            for(Frame f : frames) {
-                if(f.pinCount == 0 && f.lastAccess < oldest) {
-                    oldest = f.lastAccess;
-                    victim = f;
+    /**
+     * Épingle une page et renvoie un handle qui la libère sans nouvelle
+     * recherche dans la table (PageHandle.close).
+     *
+     * @param pageId page à épingler
+     * @return le handle de la page épinglée
+     * @throws IOException si la page ne peut pas être lue ou si toutes les frames sont épinglées
+     */
+    public PageHandle PinPage(PageId pageId) throws IOException {
+        return PinPage(pageId, null);
+    }
+
+    /**
+     * PinPage pour une opération en masse (voir BufferRing) : la page est
+     * épinglée et libérée sans être signalée à la politique de remplacement.
+     *
+     * @param ring anneau créé par createRing, ou null pour un PinPage ordinaire
+     */
+    public PageHandle PinPage(PageId pageId, BufferRing ring) throws IOException {
+        int frameIdx = pin(pageId, ring);
+        return new PageHandle(this, pageId, frames[frameIdx], frameIdx, ring == null);
+    }
+
+    /**
+     * Libère une page épinglée dont la frame est connue (FreePage, PageHandle).
+     *
+     * @param track false pour ne pas signaler la libération à la politique (anneau)
+     */
+    void release(PageId pageId, Frame frame, int frameIdx, boolean valDirty, boolean track) {
+        if (valDirty) {
+            LogManager log = diskManager.getLogManager();
+            synchronized (frame) {
+                frame.dirty = true;
+                if (log != null) {
+                    frame.pageLSN = Math.max(frame.pageLSN, log.appendPage(pageId, frame.data));
                 }
             }
-        } else if(this.policy == BufferPolicy.MRU) {
-            long newest = Long.MIN_VALUE;
+        }
+        if (track) {
+            recordHint(frameIdx, pageId, false);
+        }
+        // En dernier : une fois désépinglée, la frame peut être remplacée
+        frame.pinCount.decrementAndGet();
+    }
+
+    /**
+     * Verrouille le contenu d'une page épinglée : en mode partagé pour le lire,
+     * en mode exclusif pour le modifier.
+     *
+     * @param pageId page épinglée par l'appelant (GetPage)
+     * @param exclusive true pour un verrou exclusif
+     * @throws IllegalStateException si la page n'est pas épinglée
+     */
+    public void LatchPage(PageId pageId, boolean exclusive) {
+        Frame frame = pinnedFrame(pageId);
+        if (exclusive) {
+            frame.latch.writeLock().lock();
+        } else {
+            frame.latch.readLock().lock();
+        }
+    }
+
+    /**
+     * Libère le verrou pris par LatchPage (avant FreePage).
+     *
+     * @param pageId page verrouillée par l'appelant
+     * @param exclusive mode passé à LatchPage
+     */
+    public void UnlatchPage(PageId pageId, boolean exclusive) {
+        Frame frame = pinnedFrame(pageId);
+        if (exclusive) {
+            frame.latch.writeLock().unlock();
+        } else {
+            frame.latch.readLock().unlock();
+        }
+    }
+
+    private Frame pinnedFrame(PageId pageId) {
+        int frameIdx = lookup(PageTable.key(pageId));
+        if (frameIdx < 0 || frames[frameIdx].pinCount.get() == 0) {
+            throw new IllegalStateException("Page non épinglée : (" + pageId.getFileIdx() + "," + pageId.getPageIdx() + ")");
+        }
+        return frames[frameIdx];
+    }
 
-            for(Frame f : frames) {
-                if(f.pinCount == 0 && f.lastAccess > newest) {
-                    newest = f.lastAccess;
-                    victim = f;
+    /**
+     * Change le nombre de frames du buffer pool sans le vider ni bloquer les
+     * autres threads. Les nouvelles frames sont utilisables immédiatement.
+     * Pour une réduction, les pages des frames retirées sont écrites si elles
+     * sont modifiées puis retirées du buffer pool ; les pages épinglées sont
+     * attendues jusqu'à leur libération. L'ordre de remplacement des pages
+     * conservées est repris par la nouvelle instance du Replacer (sans
+     * l'historique des pages absentes). bm_buffercount n'est pas modifié.
+     *
+     * @param newFrameCount nouveau nombre de frames (au moins 1)
+     * @throws IOException si l'écriture d'une page retirée échoue (le nombre
+     *         de frames est alors inchangé)
+     */
+    public void resize(int newFrameCount) throws IOException {
+        if (newFrameCount < 1) {
+            throw new IllegalArgumentException("Nombre de frames invalide : " + newFrameCount);
+        }
+        cleanLock.lock();
+        try {
+            if (newFrameCount > frames.length) {
+                grow(newFrameCount);
+            } else if (newFrameCount < frames.length) {
+                shrink(newFrameCount, true);
+            }
+        } finally {
+            cleanLock.unlock();
+        }
+    }
+
+    /**
+     * Comme resize, sans attendre : une réduction est abandonnée si une des
+     * frames retirées contient une page épinglée.
+     *
+     * @return true si le nombre de frames a été changé
+     */
+    boolean tryResize(int newFrameCount) throws IOException {
+        if (newFrameCount < 1) {
+            throw new IllegalArgumentException("Nombre de frames invalide : " + newFrameCount);
+        }
+        cleanLock.lock();
+        try {
+            if (newFrameCount > frames.length) {
+                grow(newFrameCount);
+                return true;
+            }
+            return newFrameCount < frames.length && shrink(newFrameCount, false);
+        } finally {
+            cleanLock.unlock();
+        }
+    }
+
+    /**
+     * @return le nombre de frames du buffer pool
+     */
+    public int getFrameCount() {
+        return frames.length;
+    }
+
+    /**
+     * @return le nombre de frames épinglées (instantané, sans verrou)
+     */
+    int getPinnedFrameCount() {
+        int count = 0;
+        for (Frame frame : frames) {
+            if (frame.pinCount.get() > 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return true si la page est présente et considérée comme fréquente par
+     *         la politique de remplacement (Replacer.isFrequent)
+     */
+    boolean isFrequentPage(PageId pageId) {
+        int frameIdx = lookup(PageTable.key(pageId));
+        if (frameIdx < 0) {
+            return false;
+        }
+        lockReplacer();
+        try {
+            return replacer.isFrequent(frameIdx);
+        } finally {
+            replacerLock.unlock();
+        }
+    }
+
+    private void grow(int newFrameCount) {
+        poolLock.lock();
+        try {
+            int oldCount = frames.length;
+            Frame[] grown = Arrays.copyOf(frames, newFrameCount);
+            allocateFrames(grown, oldCount);
+            // Les nouvelles frames sont dépilées en premier, dans l'ordre des indices
+            int[] free = Arrays.copyOf(freeFrames, newFrameCount);
+            int count = freeCount;
+            for (int i = newFrameCount - 1; i >= oldCount; i--) {
+                free[count++] = i;
+            }
+
+            long stamp = tableLock.writeLock();
+            try {
+                pageTable = pageTable.resized(newFrameCount);
+                frames = grown;
+            } finally {
+                tableLock.unlockWrite(stamp);
+            }
+            freeFrames = free;
+            freeCount = count;
+            transferReplacer(grown);
+            cleanCandidates = new int[newFrameCount];
+            prefetchLimit = prefetchLimit(newFrameCount);
+        } finally {
+            poolLock.unlock();
+        }
+    }
+
+    /**
+     * @param wait true pour attendre la libération des pages épinglées des
+     *        frames retirées, false pour abandonner la réduction
+     * @return true si la réduction a été faite
+     */
+    private boolean shrink(int newFrameCount, boolean wait) throws IOException {
+        Frame[] kept = Arrays.copyOf(frames, newFrameCount);
+        poolLock.lock();
+        try {
+            // Plus aucun chargement dans les frames retirées
+            int count = 0;
+            for (int i = 0; i < freeCount; i++) {
+                if (freeFrames[i] < newFrameCount) {
+                    freeFrames[count++] = freeFrames[i];
                 }
             }
+            freeCount = count;
+            transferReplacer(kept);
+            prefetchLimit = prefetchLimit(newFrameCount);
+        } finally {
+            poolLock.unlock();
         }
-        return victim;
+
+        boolean interrupted = false;
+        try {
+            // poolLock est relâché entre deux tentatives : les threads qui
+            // tiennent les pages épinglées peuvent charger d'autres pages
+            while (!evictFrames(newFrameCount)) {
+                if (!wait) {
+                    cancelShrink(newFrameCount);
+                    return false;
+                }
+                try {
+                    Thread.sleep(1);
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } catch (IOException e) {
+            cancelShrink(newFrameCount);
+            throw e;
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        poolLock.lock();
+        try {
+            long stamp = tableLock.writeLock();
+            try {
+                pageTable = pageTable.resized(newFrameCount);
+                frames = kept;
+            } finally {
+                tableLock.unlockWrite(stamp);
+            }
+            freeFrames = Arrays.copyOf(freeFrames, newFrameCount);
+            cleanCandidates = new int[newFrameCount];
+        } finally {
+            poolLock.unlock();
+        }
+        return true;
     }
 
-    public void FreePage(PageId pageId, boolean valDirty) {
-        String key = pageId.getFileIdx() + ":" + pageId.getPageIdx();
-        Frame frame = pageTable.get(key);
+    /**
+     * Réduction abandonnée : les frames au-delà de newFrameCount redeviennent utilisables.
+     */
+    private void cancelShrink(int newFrameCount) {
+        poolLock.lock();
+        try {
+            for (int i = frames.length - 1; i >= newFrameCount; i--) {
+                if (frames[i].pageId == null) {
+                    freeFrames[freeCount++] = i;
+                }
+            }
+            transferReplacer(frames);
+            prefetchLimit = prefetchLimit(frames.length);
+        } finally {
+            poolLock.unlock();
+        }
+    }
 
-        if (frame != null && frame.pinCount > 0) {   
-            frame.pinCount--;
- 
-            if (valDirty) {
-                frame.dirty = true;
+    /**
+     * Retire du buffer pool les pages non épinglées des frames d'indice
+     * au moins from. Les pages modifiées sont retirées de la table sous
+     * poolLock et inscrites dans writeBacks, comme les victimes d'un défaut
+     * de page, puis écrites hors du verrou : un GetPage sur l'une d'elles
+     * attend la fin de son écriture avant de la relire.
+     *
+     * @return true si toutes ces frames sont vides
+     * @throws IOException si une écriture échoue (la page reste dans le buffer pool)
+     */
+    private boolean evictFrames(int from) throws IOException {
+        boolean empty = true;
+        List<Integer> dirty = new ArrayList<>();
+        List<CompletableFuture<Void>> pending = new ArrayList<>();
+        poolLock.lock();
+        try {
+            for (int i = from; i < frames.length; i++) {
+                Frame frame = frames[i];
+                if (frame.pageId == null) {
+                    continue;
+                }
+                long stamp = tableLock.writeLock();
+                try {
+                    if (frame.pinCount.get() > 0) {
+                        empty = false;
+                        continue;
+                    }
+                    pageTable.remove(PageTable.key(frame.pageId));
+                    forgetLoad(frame);
+                } finally {
+                    tableLock.unlockWrite(stamp);
+                }
+                if (frame.dirty) {
+                    CompletableFuture<Void> writeBack = new CompletableFuture<>();
+                    writeBacks.put(PageTable.key(frame.pageId), writeBack);
+                    dirty.add(i);
+                    pending.add(writeBack);
+                } else {
+                    frame.pageId = null;
+                    frame.pageLSN = 0;
+                }
+            }
+        } finally {
+            poolLock.unlock();
+        }
+
+        // Frames hors de la pile des frames vides et du Replacer : aucun autre
+        // thread ne peut les réutiliser pendant les écritures
+        IOException failure = null;
+        LogManager log = diskManager.getLogManager();
+        for (int k = 0; k < dirty.size(); k++) {
+            int frameIdx = dirty.get(k);
+            Frame frame = frames[frameIdx];
+            long key = PageTable.key(frame.pageId);
+            IOException error = null;
+            try {
+                // Journal avant données
+                if (log != null) {
+                    log.flush(frame.pageLSN);
+                }
+                diskManager.writeLoggedPage(frame.pageId, frame.data);
+            } catch (IOException e) {
+                error = e;
+            }
+            poolLock.lock();
+            try {
+                writeBacks.remove(key);
+                if (error == null) {
+                    frame.pageId = null;
+                    frame.dirty = false;
+                    frame.pageLSN = 0;
+                } else {
+                    // La page reprend sa frame, toujours modifiée
+                    long stamp = tableLock.writeLock();
+                    pageTable.put(key, frameIdx);
+                    tableLock.unlockWrite(stamp);
+                }
+            } finally {
+                poolLock.unlock();
+            }
+            if (error == null) {
+                pending.get(k).complete(null);
+            } else {
+                pending.get(k).completeExceptionally(error);
+                if (failure == null) {
+                    failure = error;
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return empty;
+    }
+
+    /**
+     * Remplace le Replacer par une instance suivant les frames données,
+     * en y chargeant les pages présentes dans l'ordre de remplacement actuel
+     * (les pages épinglées, absentes de cet ordre, en dernier) ; les pages
+     * fréquentes le restent. Appelée sous poolLock.
+     */
+    private void transferReplacer(Frame[] target) {
+        lockReplacer();
+        try {
+            int[] order = new int[capacity];
+            int count = replacer.peekVictims(order, order.length);
+            Replacer next = createReplacer(policy, target, false);
+            boolean[] loaded = new boolean[target.length];
+            for (int k = 0; k < count; k++) {
+                if (order[k] < target.length) {
+                    transferPage(next, order[k]);
+                    loaded[order[k]] = true;
+                }
             }
-            frame.lastAccess = System.currentTimeMillis();
+            for (int i = 0; i < target.length; i++) {
+                if (!loaded[i] && target[i].pageId != null) {
+                    transferPage(next, i);
+                }
+            }
+            replacer = next;
+            capacity = target.length;
+        } finally {
+            replacerLock.unlock();
         }
     }
 
+    private void transferPage(Replacer next, int frameIdx) {
+        next.recordLoad(frameIdx);
+        if (replacer.isFrequent(frameIdx)) {
+            next.restoreFrequent(frameIdx);
+        }
+    }
 
+    /**
+     * Écrit les pages modifiées et vide le buffer pool. À appeler quand plus
+     * aucun thread n'utilise de page : les épinglages en cours sont perdus.
+     * Le contenu des frames n'est pas effacé (voir Shutdown) ; pour écrire les
+     * pages sans vider le buffer pool, voir Checkpoint.
+     */
     public void FlushBuffers() throws IOException {
+        flushBuffers(false, null, true);
+    }
+
+    /**
+     * Arrête le buffer pool : arrête le nettoyeur, écrit les pages modifiées,
+     * vide le buffer pool et efface le contenu de toutes les frames.
+     * Avec bm_warmup, les pages présentes sont d'abord enregistrées dans
+     * bm.warm, dans l'ordre de la politique de remplacement (voir WarmUp).
+     */
+    public void Shutdown() throws IOException {
+        WarmupFile warm = config.isWarmup() ? new WarmupFile() : null;
+        shutdown(warm, true);
+        if (warm != null) {
+            warm.write(WarmupFile.location(config));
+        }
+    }
+
+    /**
+     * @param warm où ajouter les pages présentes, ou null
+     * @param checkpoint voir flushBuffers
+     */
+    void shutdown(WarmupFile warm, boolean checkpoint) throws IOException {
+        StopCleaner();
+        flushBuffers(true, warm, checkpoint);
+    }
+
+    /**
+     * @param erase true pour effacer aussi le contenu des frames
+     * @param warm où ajouter les pages présentes, ou null
+     * @param checkpoint true pour valider le journal avant d'écrire les pages et
+     *                   établir un point de reprise après ; false si l'appelant
+     *                   s'en charge (PartitionedBufferManager, pour toutes les partitions)
+     */
+    void flushBuffers(boolean erase, WarmupFile warm, boolean checkpoint) throws IOException {
+        cleanLock.lock();
+        poolLock.lock();
+        // Sous poolLock, aucune nouvelle lecture anticipée ne peut démarrer
+        awaitPrefetches();
+        long stamp = tableLock.writeLock();
+        try {
+            if (warm != null) {
+                collectWarmPages(warm);
+            }
+            flushAndReset(erase, checkpoint);
+        } finally {
+            tableLock.unlockWrite(stamp);
+            poolLock.unlock();
+            cleanLock.unlock();
+        }
+    }
+
+    /**
+     * Ajoute les pages présentes à warm, dans l'ordre où la politique de
+     * remplacement les choisirait comme victimes (les pages épinglées en
+     * dernier), avec leur indication « fréquente ».
+     */
+    private void collectWarmPages(WarmupFile warm) {
+        lockReplacer();
+        try {
+            int[] order = new int[capacity];
+            int count = replacer.peekVictims(order, order.length);
+            boolean[] listed = new boolean[frames.length];
+            for (int k = 0; k < count; k++) {
+                listed[order[k]] = true;
+                warm.add(frames[order[k]].pageId, replacer.isFrequent(order[k]));
+            }
+            for (int i = 0; i < capacity; i++) {
+                if (!listed[i] && frames[i].pageId != null) {
+                    warm.add(frames[i].pageId, replacer.isFrequent(i));
+                }
+            }
+        } finally {
+            replacerLock.unlock();
+        }
+    }
+
+    /**
+     * Recharge les pages enregistrées par Shutdown (bm.warm) pour retrouver
+     * rapidement le taux de succès d'avant l'arrêt. Les pages les plus utiles
+     * d'après la politique de remplacement sont chargées en premier, dans les
+     * frames vides seulement : le préchargement s'arrête quand le buffer pool
+     * est plein. Les pages sont inscrites dans la table et dans la politique
+     * (même ordre, même indication « fréquente ») avant d'être lues, par lots
+     * et en parallèle sur les dossiers de données ; la méthode n'attend pas
+     * les lectures : un GetPage sur une page en cours de lecture l'attend.
+     *
+     * @return le nombre de pages dont la lecture a été lancée (0 sans fichier bm.warm)
+     * @throws IOException si le fichier bm.warm est invalide
+     */
+    public int WarmUp() throws IOException {
+        WarmupFile warm = WarmupFile.read(WarmupFile.location(config));
+        return (warm == null) ? 0 : warmUp(warm);
+    }
+
+    /**
+     * Lance le chargement des pages de warm (voir WarmUp).
+     *
+     * @return le nombre de pages dont la lecture a été lancée
+     */
+    int warmUp(WarmupFile warm) {
+        // Pages encore existantes, vérifiées avant poolLock (entrées/sorties possibles)
+        Map<Integer, Integer> pageCounts = new HashMap<>();
+        boolean[] exists = new boolean[warm.pages.size()];
+        for (int i = 0; i < exists.length; i++) {
+            PageId pageId = warm.pages.get(i);
+            Integer pageCount = pageCounts.get(pageId.getFileIdx());
+            if (pageCount == null) {
+                try {
+                    pageCount = diskManager.getPageCount(pageId.getFileIdx());
+                } catch (IOException e) {
+                    pageCount = 0;
+                }
+                pageCounts.put(pageId.getFileIdx(), pageCount);
+            }
+            exists[i] = pageId.getPageIdx() >= 0 && pageId.getPageIdx() < pageCount;
+        }
+
+        List<Integer> chosen = new ArrayList<>();
+        List<PageId> pageIds = new ArrayList<>();
+        List<Frame> loaded = new ArrayList<>();
+        List<CompletableFuture<Void>> loads = new ArrayList<>();
+        poolLock.lock();
+        try {
+            // Les plus utiles sont à la fin du fichier ; frames vides seulement
+            for (int i = exists.length - 1; i >= 0 && chosen.size() < freeCount; i--) {
+                long key = PageTable.key(warm.pages.get(i));
+                if (exists[i] && pageTable.get(key) < 0 && !writeBacks.containsKey(key)) {
+                    chosen.add(i);
+                }
+            }
+            // Inscription dans l'ordre de la politique : la première inscrite est
+            // la première victime, sauf pour MRU qui choisit la plus récente
+            if (policy != BufferPolicy.MRU) {
+                Collections.reverse(chosen);
+            }
+            for (int i : chosen) {
+                PageId pageId = warm.pages.get(i);
+                long key = PageTable.key(pageId);
+                if (pageTable.get(key) >= 0) {
+                    // Page en double dans le fichier
+                    continue;
+                }
+                int frameIdx = freeFrames[--freeCount];
+                CompletableFuture<Void> done = new CompletableFuture<>();
+                registerLoad(pageId, key, frameIdx, done, false);
+                if (warm.frequent.get(i)) {
+                    lockReplacer();
+                    try {
+                        replacer.restoreFrequent(frameIdx);
+                    } finally {
+                        replacerLock.unlock();
+                    }
+                }
+                pageIds.add(pageId);
+                loaded.add(frames[frameIdx]);
+                loads.add(done);
+            }
+            synchronized (prefetchLock) {
+                prefetchesInFlight += (loaded.size() + WARMUP_BATCH - 1) / WARMUP_BATCH;
+            }
+        } finally {
+            poolLock.unlock();
+        }
+
+        // Les pages les plus utiles d'abord
+        if (policy != BufferPolicy.MRU) {
+            Collections.reverse(pageIds);
+            Collections.reverse(loaded);
+            Collections.reverse(loads);
+        }
+        for (int start = 0; start < loaded.size(); start += WARMUP_BATCH) {
+            int end = Math.min(start + WARMUP_BATCH, loaded.size());
+            List<Frame> batch = loaded.subList(start, end);
+            List<CompletableFuture<Void>> batchLoads = loads.subList(start, end);
+            List<ByteBuffer> buffs = new ArrayList<>(batch.size());
+            for (Frame frame : batch) {
+                buffs.add(frame.data);
+            }
+            diskManager.ReadPageBuffersAsync(pageIds.subList(start, end), buffs).whenComplete((v, e) -> {
+                for (int k = 0; k < batch.size(); k++) {
+                    Frame frame = batch.get(k);
+                    if (e == null) {
+                        frame.pendingLoad = null;
+                        batchLoads.get(k).complete(null);
+                    } else {
+                        // Reste dans la table : relue par le premier GetPage, ou remplacée
+                        batchLoads.get(k).completeExceptionally(e);
+                    }
+                    frame.pinCount.decrementAndGet();
+                }
+                synchronized (prefetchLock) {
+                    prefetchesInFlight--;
+                    if (prefetchesInFlight == 0) {
+                        prefetchLock.notifyAll();
+                    }
+                }
+            });
+        }
+        return loaded.size();
+    }
+
+    /**
+     * Point de reprise progressif : écrit les pages modifiées sans les retirer
+     * du buffer pool, par lots d'au plus batchSize pages, pendant que les
+     * autres threads continuent d'utiliser le buffer pool. Avec le journal
+     * (wal_enabled), enregistre ensuite un point de reprise au LSN du début
+     * de l'opération : les pages modifiées après ce LSN seront réappliquées
+     * au redémarrage si elles n'ont pas été écrites.
+     *
+     * @param batchSize nombre maximal de pages écrites par lot (au moins 1)
+     * @return le nombre de pages écrites
+     * @throws IOException si une écriture échoue (les pages du lot restent modifiées)
+     */
+    public int Checkpoint(int batchSize) throws IOException {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Taille de lot invalide : " + batchSize);
+        }
+        LogManager log = diskManager.getLogManager();
+        long startLsn = (log != null) ? log.commit() : 0;
+        int written = checkpointPages(batchSize);
+        if (log != null) {
+            log.checkpoint(startLsn);
+        }
+        return written;
+    }
+
+    /**
+     * Écrit par lots les pages modifiées, puis attend la fin des écritures de
+     * victimes en cours : toute page modifiée au début de l'appel est alors
+     * dans son fichier de données.
+     *
+     * @return le nombre de pages écrites
+     */
+    int checkpointPages(int batchSize) throws IOException {
+        int written = 0;
+        int cursor = 0;
+        List<Integer> batch = new ArrayList<>();
+        List<PageId> pageIds = new ArrayList<>();
+        List<ByteBuffer> buffs = new ArrayList<>();
+        while (true) {
+            cleanLock.lock();
+            try {
+                // Les pages du lot restent épinglées pendant l'écriture :
+                // pas plus d'un quart des frames à la fois
+                int max = Math.min(batchSize, Math.max(1, frames.length / 4));
+                if (cursor >= frames.length) {
+                    break;
+                }
+                batch.clear();
+                pageIds.clear();
+                buffs.clear();
+                long lsn = 0;
+                for (; cursor < frames.length && batch.size() < max; cursor++) {
+                    Frame frame = frames[cursor];
+                    PageId pageId = frame.pageId;
+                    if (pageId == null || !frame.dirty) {
+                        continue;
+                    }
+                    int pinned = pinIfPresent(PageTable.key(pageId));
+                    if (pinned != cursor) {
+                        // Remplacée entre-temps (et alors écrite par GetPage)
+                        if (pinned >= 0) {
+                            frames[pinned].pinCount.decrementAndGet();
+                        }
+                        continue;
+                    }
+                    // Image cohérente : pas de modification en cours sous verrou exclusif.
+                    // Un seul verrou tenu à la fois, et seulement pour la copie
+                    ByteBuffer copy = ByteBuffer.allocate(config.getPageSize());
+                    frame.latch.readLock().lock();
+                    try {
+                        synchronized (frame) {
+                            frame.dirty = false;
+                            lsn = Math.max(lsn, frame.pageLSN);
+                        }
+                        copy.put(frame.data.duplicate().clear()).flip();
+                    } finally {
+                        frame.latch.readLock().unlock();
+                    }
+                    batch.add(cursor);
+                    pageIds.add(pageId);
+                    buffs.add(copy);
+                }
+                try {
+                    LogManager log = diskManager.getLogManager();
+                    if (log != null) {
+                        log.flush(lsn);
+                    }
+                    diskManager.writeLoggedPages(pageIds, buffs);
+                } catch (IOException e) {
+                    for (int frameIdx : batch) {
+                        frames[frameIdx].dirty = true;
+                    }
+                    throw e;
+                } finally {
+                    for (int frameIdx : batch) {
+                        frames[frameIdx].pinCount.decrementAndGet();
+                    }
+                }
+                written += batch.size();
+            } finally {
+                cleanLock.unlock();
+            }
+        }
+
+        List<CompletableFuture<Void>> inFlight;
+        poolLock.lock();
+        try {
+            inFlight = new ArrayList<>(writeBacks.values());
+        } finally {
+            poolLock.unlock();
+        }
+        for (CompletableFuture<Void> writeBack : inFlight) {
+            try {
+                writeBack.join();
+            } catch (CompletionException | CancellationException e) {
+                throw new IOException("Écriture d'une page remplacée en échec pendant le point de reprise", e.getCause());
+            }
+        }
+        return written;
+    }
+
+    /**
+     * @param erase true pour effacer aussi le contenu des frames
+     * @param checkpoint voir flushBuffers
+     */
+    private void flushAndReset(boolean erase, boolean checkpoint) throws IOException {
         
+        LogManager log = checkpoint ? diskManager.getLogManager() : null;
+        if (log != null) {
+            // Une seule synchronisation du journal couvre toutes les pages écrites ensuite
+            log.commit();
+        }
+        // Pages modifiées regroupées par fichier ; WritePages les trie par pageIdx
+        // et fusionne les pages contiguës en une seule écriture
+        Map<Integer, List<Frame>> dirtyByFile = new TreeMap<>();
         for (Frame frame : frames) {
             if (frame.pageId != null && frame.dirty) {
-                diskManager.WritePage(frame.pageId, frame.buffer);
+                dirtyByFile.computeIfAbsent(frame.pageId.getFileIdx(), k -> new ArrayList<>()).add(frame);
             }
         }
+        writeDirtyFrames(dirtyByFile);
+        if (log != null) {
+            log.checkpoint();
+        }
         
         for (Frame frame : frames) {
             frame.pageId = null;
             frame.dirty = false;
-            frame.pinCount = 0;
-            frame.lastAccess = System.currentTimeMillis();
+            frame.pinCount.set(0);
+            frame.lastAccess = 0;
+            frame.pageLSN = 0;
+            frame.pendingLoad = null;
+            frame.prefetched = false;
             
-            for (int i = 0; i < frame.buffer.length; i++) {
-                frame.buffer[i] = 0;
+            if (erase) {
+                for (int i = 0; i < frame.data.capacity(); i++) {
+                    frame.data.put(i, (byte) 0);
+                }
             }
         }
         
         pageTable.clear();
+        prefetchedFrames.set(0);
+        resetFreeFrames();
+        lockReplacer();
+        try {
+            replacer = createReplacer(policy, frames, true);
+        } finally {
+            replacerLock.unlock();
+        }
     }
 
+    /**
+     * Écrit les frames modifiées : en un seul WritePages, ou, avec bm_parallelflush,
+     * un WritePages par fichier sur les threads d'entrées/sorties du DiskManager.
+     */
+    private void writeDirtyFrames(Map<Integer, List<Frame>> dirtyByFile) throws IOException {
+        if (!config.isParallelFlush() || dirtyByFile.size() < 2) {
+            List<PageId> pageIds = new ArrayList<>();
+            List<ByteBuffer> buffs = new ArrayList<>();
+            for (List<Frame> dirty : dirtyByFile.values()) {
+                for (Frame frame : dirty) {
+                    pageIds.add(frame.pageId);
+                    buffs.add(frame.data);
+                }
+            }
+            diskManager.writeLoggedPages(pageIds, buffs);
+            return;
+        }
 
+        List<CompletableFuture<Void>> writes = new ArrayList<>();
+        for (List<Frame> dirty : dirtyByFile.values()) {
+            List<PageId> pageIds = new ArrayList<>();
+            List<ByteBuffer> buffs = new ArrayList<>();
+            for (Frame frame : dirty) {
+                pageIds.add(frame.pageId);
+                buffs.add(frame.data);
+            }
+            writes.add(diskManager.writeLoggedPagesAsync(pageIds, buffs));
+        }
+
+        // Attend toutes les écritures avant de signaler la première erreur
+        IOException error = null;
+        for (CompletableFuture<Void> write : writes) {
+            try {
+                write.join();
+            } catch (CompletionException e) {
+                if (error == null) {
+                    error = (e.getCause() instanceof IOException) ? (IOException) e.getCause() : new IOException(e.getCause());
+                }
+            }
+        }
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    /**
+     * Vue en lecture seule de la table des pages : PageId -> Frame.
+     */
+    private class PageTableView extends AbstractMap<PageId, Frame> {
+
+        @Override
+        public Frame get(Object key) {
+            if (!(key instanceof PageId)) {
+                return null;
+            }
+            int frameIdx = lookup(PageTable.key((PageId) key));
+            Frame[] fs = frames;
+            return (frameIdx >= 0 && frameIdx < fs.length) ? fs[frameIdx] : null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return get(key) != null;
+        }
+
+        @Override
+        public int size() {
+            return pageTable.size();
+        }
+
+        @Override
+        public Set<Map.Entry<PageId, Frame>> entrySet() {
+            return new AbstractSet<Map.Entry<PageId, Frame>>() {
+                @Override
+                public int size() {
+                    return pageTable.size();
+                }
+
+                @Override
+                public Iterator<Map.Entry<PageId, Frame>> iterator() {
+                    // Copie des entrées prise sous le verrou de lecture de la table
+                    List<Map.Entry<PageId, Frame>> entries = new ArrayList<>();
+                    long stamp = tableLock.readLock();
+                    try {
+                        for (int slot = 0; slot < pageTable.capacity(); slot++) {
+                            int frameIdx = pageTable.frameAt(slot);
+                            if (frameIdx >= 0) {
+                                Frame frame = frames[frameIdx];
+                                entries.add(new AbstractMap.SimpleImmutableEntry<>(frame.pageId, frame));
+                            }
+                        }
+                    } finally {
+                        tableLock.unlockRead(stamp);
+                    }
+                    Iterator<Map.Entry<PageId, Frame>> it = entries.iterator();
+                    return new Iterator<Map.Entry<PageId, Frame>>() {
+                        @Override
+                        public boolean hasNext() {
+                            return it.hasNext();
+                        }
+
+                        @Override
+                        public Map.Entry<PageId, Frame> next() {
+                            return it.next();
+                        }
+                    };
+                }
+            };
+        }
+    }
 }
@@ -0,0 +1,780 @@
+package bdda;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class BufferManagerConcurrencyTests {
+
+    private static final int THREADS = 4;
+
+    public static void main(String[] args) {
+        System.out.println("TEST BUFFER MANAGER - ACCÈS CONCURRENTS");
+        System.out.println("=======================================");
+
+        try {
+            testLecturesConcurrentes();
+            testEcrituresConcurrentes();
+            testDebitLectures();
+            testChargementUnique();
+            testRedimensionnement();
+            for (BufferPolicy policy : new BufferPolicy[] {
+                    BufferPolicy.ARC, BufferPolicy.TWOQ, BufferPolicy.LRU2, BufferPolicy.CLOCKPRO }) {
+                testRedimensionnementFrequentes(policy);
+            }
+            testPartitions();
+            testPartitionsJournal();
+            testRelectureHorsVerrou();
+            testReductionHorsVerrou();
+            testEcritureVictimeEnEchec();
+            System.out.println("TOUS LES TESTS PASSÉS !");
+        } catch (Exception e) {
+            System.out.println("ERREUR : " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Lance THREADS threads exécutant la tâche et relance la première erreur.
+     */
+    private static void executer(Tache tache) throws Exception {
+        AtomicReference<Exception> erreur = new AtomicReference<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int numero = t;
+            Thread thread = new Thread(() -> {
+                try {
+                    tache.executer(numero);
+                } catch (Exception e) {
+                    erreur.compareAndSet(null, e);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        if (erreur.get() != null) {
+            throw erreur.get();
+        }
+    }
+
+    private interface Tache {
+        void executer(int numero) throws Exception;
+    }
+
+    public static void testLecturesConcurrentes() throws Exception {
+        System.out.println("\nTest lectures concurrentes avec remplacements...");
+
+        // 64 pages pour 8 frames : remplacements fréquents pendant les lectures
+        DBConfig config = TestDossiers.configDossier("concurrence", 8, BufferPolicy.LRU);
+        DiskManager dm = new DiskManager(config);
+        BufferManager bm = new BufferManager(config, dm);
+        PageId[] pages = new PageId[64];
+        for (int i = 0; i < pages.length; i++) {
+            pages[i] = dm.allocPage();
+            byte[] data = new byte[config.getPageSize()];
+            ByteBuffer.wrap(data).putInt(0, i).putInt(data.length - 4, i);
+            dm.WritePage(pages[i], data);
+        }
+
+        int operations = 5000;
+        executer(numero -> {
+            Random random = new Random(numero);
+            for (int n = 0; n < operations; n++) {
+                int i = random.nextInt(pages.length);
+                byte[] buffer = bm.GetPage(pages[i]);
+                bm.LatchPage(pages[i], false);
+                try {
+                    // Tant qu'elle est épinglée, la page ne doit pas être remplacée
+                    ByteBuffer bb = ByteBuffer.wrap(buffer);
+                    if (bb.getInt(0) != i || bb.getInt(buffer.length - 4) != i) {
+                        throw new IOException("Page " + i + " remplacée alors qu'elle était épinglée");
+                    }
+                } finally {
+                    bm.UnlatchPage(pages[i], false);
+                    bm.FreePage(pages[i], false);
+                }
+            }
+        });
+
+        long total = bm.getHitCount() + bm.getMissCount();
+        if (total != (long) THREADS * operations) {
+            throw new IOException("Compteurs incohérents : " + total + " GetPage comptés");
+        }
+        for (Frame frame : bm.getPageTable().values()) {
+            if (frame.pinCount.get() != 0) {
+                throw new IOException("Page encore épinglée après les lectures");
+            }
+        }
+        System.out.println("OK - " + total + " lectures sur " + THREADS + " threads, taux de succès "
+                + String.format("%.2f", bm.getHitRatio()));
+        dm.finish();
+    }
+
+    public static void testEcrituresConcurrentes() throws Exception {
+        System.out.println("\nTest écritures concurrentes (verrou exclusif)...");
+
+        // 8 compteurs pour 4 frames : des pages modifiées sont écrites à chaque remplacement
+        DBConfig config = TestDossiers.configDossier("concurrence", 4, BufferPolicy.LRU);
+        DiskManager dm = new DiskManager(config);
+        BufferManager bm = new BufferManager(config, dm);
+        PageId[] pages = new PageId[8];
+        for (int i = 0; i < pages.length; i++) {
+            pages[i] = dm.allocPage();
+            dm.WritePage(pages[i], new byte[config.getPageSize()]);
+        }
+
+        int increments = 2000;
+        executer(numero -> {
+            Random random = new Random(100 + numero);
+            for (int n = 0; n < increments; n++) {
+                PageId pageId = pages[random.nextInt(pages.length)];
+                byte[] buffer = bm.GetPage(pageId);
+                bm.LatchPage(pageId, true);
+                try {
+                    ByteBuffer bb = ByteBuffer.wrap(buffer);
+                    bb.putInt(0, bb.getInt(0) + 1);
+                } finally {
+                    bm.UnlatchPage(pageId, true);
+                    bm.FreePage(pageId, true);
+                }
+            }
+        });
+        bm.FlushBuffers();
+
+        long somme = 0;
+        byte[] data = new byte[config.getPageSize()];
+        for (PageId pageId : pages) {
+            dm.ReadPage(pageId, data);
+            somme += ByteBuffer.wrap(data).getInt(0);
+        }
+        if (somme != (long) THREADS * increments) {
+            throw new IOException("Incréments perdus : " + somme + " au lieu de " + (THREADS * increments));
+        }
+        System.out.println("OK - " + somme + " incréments conservés malgré les remplacements");
+        dm.finish();
+    }
+
+    public static void testDebitLectures() throws Exception {
+        System.out.println("\nTest débit des lectures de pages présentes...");
+
+        DBConfig config = TestDossiers.configDossier("concurrence", 16, BufferPolicy.LRU);
+        DiskManager dm = new DiskManager(config);
+        BufferManager bm = new BufferManager(config, dm);
+        PageId[] pages = new PageId[16];
+        for (int i = 0; i < pages.length; i++) {
+            pages[i] = dm.allocPage();
+            dm.WritePage(pages[i], new byte[config.getPageSize()]);
+            bm.GetPage(pages[i]);
+            bm.FreePage(pages[i], false);
+        }
+
+        int operations = 200000;
+        long debitUnThread = 0;
+        for (int threads : new int[] { 1, THREADS }) {
+            long debut = System.nanoTime();
+            List<Thread> lecteurs = new ArrayList<>();
+            AtomicReference<Exception> erreur = new AtomicReference<>();
+            for (int t = 0; t < threads; t++) {
+                int numero = t;
+                Thread thread = new Thread(() -> {
+                    try {
+                        for (int n = 0; n < operations; n++) {
+                            PageId pageId = pages[(n + numero) % pages.length];
+                            bm.GetPage(pageId);
+                            bm.FreePage(pageId, false);
+                        }
+                    } catch (Exception e) {
+                        erreur.compareAndSet(null, e);
+                    }
+                });
+                lecteurs.add(thread);
+                thread.start();
+            }
+            for (Thread thread : lecteurs) {
+                thread.join();
+            }
+            if (erreur.get() != null) {
+                throw erreur.get();
+            }
+            long debit = (long) threads * operations * 1_000_000_000L / Math.max(1, System.nanoTime() - debut);
+            if (threads == 1) {
+                debitUnThread = debit;
+            }
+            System.out.println("  " + threads + " thread(s) : " + debit + " GetPage/s"
+                    + (threads > 1 ? String.format(" (x%.1f, %d processeurs)", (double) debit / debitUnThread,
+                            Runtime.getRuntime().availableProcessors()) : ""));
+        }
+        if (bm.getMissCount() != pages.length) {
+            throw new IOException("Lectures disque inattendues : " + bm.getMissCount());
+        }
+        System.out.println("OK - lectures servies sans verrou exclusif");
+        dm.finish();
+    }
+
+    public static void testChargementUnique() throws Exception {
+        System.out.println("\nTest chargement unique d'une page demandée par plusieurs threads...");
+
+        // Pages modifiées dans un petit buffer pool : chaque défaut écrit une victime
+        DBConfig config = TestDossiers.configDossier("concurrence", 4, BufferPolicy.LRU);
+        DiskManager dm = new DiskManager(config);
+        BufferManager bm = new BufferManager(config, dm);
+        PageId[] pages = new PageId[200];
+        for (int i = 0; i < pages.length; i++) {
+            pages[i] = dm.allocPage();
+            byte[] data = new byte[config.getPageSize()];
+            ByteBuffer.wrap(data).putInt(0, i);
+            dm.WritePage(pages[i], data);
+        }
+
+        // À chaque tour, tous les threads demandent la même page absente en même temps
+        CyclicBarrier depart = new CyclicBarrier(THREADS);
+        executer(numero -> {
+            for (int i = 0; i < pages.length; i++) {
+                depart.await();
+                byte[] buffer = bm.GetPage(pages[i]);
+                bm.LatchPage(pages[i], true);
+                try {
+                    ByteBuffer bb = ByteBuffer.wrap(buffer);
+                    if (bb.getInt(0) % 1000 != i) {
+                        throw new IOException("Contenu incorrect pour la page " + i);
+                    }
+                    bb.putInt(0, bb.getInt(0) + 1000);
+                } finally {
+                    bm.UnlatchPage(pages[i], true);
+                    bm.FreePage(pages[i], true);
+                }
+            }
+        });
+
+        if (bm.getMissCount() != pages.length) {
+            throw new IOException(bm.getMissCount() + " lectures pour " + pages.length + " pages");
+        }
+        bm.FlushBuffers();
+        byte[] data = new byte[config.getPageSize()];
+        for (int i = 0; i < pages.length; i++) {
+            dm.ReadPage(pages[i], data);
+            if (ByteBuffer.wrap(data).getInt(0) != i + 1000 * THREADS) {
+                throw new IOException("Modifications perdues pour la page " + i);
+            }
+        }
+        System.out.println("OK - " + bm.getMissCount() + " lectures pour " + (pages.length * THREADS)
+                + " demandes, " + bm.getDirtyEvictionCount() + " victimes écrites hors verrou");
+        dm.finish();
+    }
+
+    public static void testRedimensionnement() throws Exception {
+        System.out.println("\nTest redimensionnement pendant les accès...");
+
+        DBConfig config = TestDossiers.configDossier("concurrence", 8, BufferPolicy.LRU);
+        DiskManager dm = new DiskManager(config);
+        BufferManager bm = new BufferManager(config, dm);
+        PageId[] pages = new PageId[32];
+        for (int i = 0; i < pages.length; i++) {
+            pages[i] = dm.allocPage();
+            dm.WritePage(pages[i], new byte[config.getPageSize()]);
+        }
+
+        // Agrandissement : les pages présentes restent, les nouvelles frames servent tout de suite
+        for (int i = 0; i < 8; i++) {
+            bm.GetPage(pages[i]);
+            bm.FreePage(pages[i], false);
+        }
+        bm.resize(32);
+        for (int i = 0; i < pages.length; i++) {
+            bm.GetPage(pages[i]);
+            bm.FreePage(pages[i], false);
+        }
+        if (bm.getMissCount() != pages.length || bm.getHitCount() != 8) {
+            throw new IOException("Pages perdues à l'agrandissement : " + bm.getMissCount() + " défauts");
+        }
+
+        // Réduction pendant que THREADS threads incrémentent des compteurs :
+        // les pages retirées modifiées doivent être écrites
+        int increments = 3000;
+        AtomicReference<Exception> erreur = new AtomicReference<>();
+        Thread travail = new Thread(() -> {
+            try {
+                executer(numero -> {
+                    Random random = new Random(200 + numero);
+                    for (int n = 0; n < increments; n++) {
+                        PageId pageId = pages[random.nextInt(pages.length)];
+                        byte[] buffer = bm.GetPage(pageId);
+                        bm.LatchPage(pageId, true);
+                        try {
+                            ByteBuffer bb = ByteBuffer.wrap(buffer);
+                            bb.putInt(0, bb.getInt(0) + 1);
+                        } finally {
+                            bm.UnlatchPage(pageId, true);
+                            bm.FreePage(pageId, true);
+                        }
+                    }
+                });
+            } catch (Exception e) {
+                erreur.set(e);
+            }
+        });
+        travail.start();
+        int[] tailles = { 6, 24, 5, 12 };
+        int n = 0;
+        while (travail.isAlive()) {
+            bm.resize(tailles[n++ % tailles.length]);
+            if (bm.getPageTable().size() > bm.getFrameCount()) {
+                throw new IOException("Plus de pages que de frames après resize");
+            }
+        }
+        travail.join();
+        if (erreur.get() != null) {
+            throw erreur.get();
+        }
+        bm.FlushBuffers();
+
+        long somme = 0;
+        byte[] data = new byte[config.getPageSize()];
+        for (PageId pageId : pages) {
+            dm.ReadPage(pageId, data);
+            somme += ByteBuffer.wrap(data).getInt(0);
+        }
+        if (somme != (long) THREADS * increments) {
+            throw new IOException("Incréments perdus : " + somme + " au lieu de " + (THREADS * increments));
+        }
+        System.out.println("OK - " + n + " redimensionnements pendant " + somme + " incréments, aucun perdu");
+        dm.finish();
+    }
+
+    /**
+     * Les pages fréquentes pour la politique le restent après un
+     * agrandissement puis une réduction, et les autres pages ne le deviennent pas.
+     */
+    public static void testRedimensionnementFrequentes(BufferPolicy policy) throws Exception {
+        System.out.println("\nTest redimensionnement et pages fréquentes " + policy + "...");
+
+        DBConfig config = TestDossiers.configDossier("concurrence", 4, policy);
+        // Sans lecture anticipée : seules les pages demandées sont chargées
+        config.setReadAhead(0);
+        DiskManager dm = new DiskManager(config);
+        BufferManager bm = new BufferManager(config, dm);
+        bm.StopCleaner();
+        PageId[] pages = new PageId[5];
+        for (int i = 0; i < pages.length; i++) {
+            pages[i] = dm.allocPage();
+            dm.WritePage(pages[i], new byte[config.getPageSize()]);
+        }
+
+        // pages[0] redemandée (ARC, LRU-2, CLOCK-Pro), ou remplacée puis
+        // rechargée (2Q) : elle devient fréquente, les autres pages non
+        bm.GetPage(pages[0]);
+        bm.FreePage(pages[0], false);
+        for (PageId pageId : pages) {
+            bm.GetPage(pageId);
+            bm.FreePage(pageId, false);
+        }
+        bm.GetPage(pages[0]);
+        bm.FreePage(pages[0], false);
+        verifierFrequentes(bm, pages, policy + " avant redimensionnement");
+
+        bm.resize(8);
+        verifierFrequentes(bm, pages, policy + " après agrandissement");
+        bm.resize(4);
+        verifierFrequentes(bm, pages, policy + " après réduction");
+        System.out.println("OK - " + policy + " : pages fréquentes conservées au redimensionnement");
+        bm.FlushBuffers();
+        dm.finish();
+    }
+
+    private static void verifierFrequentes(BufferManager bm, PageId[] pages, String etape) throws IOException {
+        int presentes = 0;
+        for (int i = 0; i < pages.length; i++) {
+            if (!bm.getPageTable().containsKey(pages[i])) {
+                continue;
+            }
+            presentes++;
+            if (bm.isFrequentPage(pages[i]) != (i == 0)) {
+                throw new IOException(etape + " : page " + pages[i]
+                        + (i == 0 ? " n'est plus fréquente" : " devenue fréquente"));
+            }
+        }
+        if (presentes != 4 || !bm.getPageTable().containsKey(pages[0])) {
+            throw new IOException(etape + " : " + presentes + " pages présentes au lieu de 4");
+        }
+    }
+
+    public static void testPartitions() throws Exception {
+        System.out.println("\nTest buffer pool partitionné...");
+
+        DBConfig config = TestDossiers.configDossier("concurrence", 16, BufferPolicy.LRU);
+        config.setPartitionCount(4);
+        DiskManager dm = new DiskManager(config);
+        BufferManager bm = new PartitionedBufferManager(config, dm);
+        PageId[] pages = new PageId[32];
+        for (int i = 0; i < pages.length; i++) {
+            pages[i] = dm.allocPage();
+            dm.WritePage(pages[i], new byte[config.getPageSize()]);
+        }
+
+        int increments = 2000;
+        executer(numero -> {
+            Random random = new Random(300 + numero);
+            for (int n = 0; n < increments; n++) {
+                PageId pageId = pages[random.nextInt(pages.length)];
+                byte[] buffer = bm.GetPage(pageId);
+                bm.LatchPage(pageId, true);
+                try {
+                    ByteBuffer bb = ByteBuffer.wrap(buffer);
+                    bb.putInt(0, bb.getInt(0) + 1);
+                } finally {
+                    bm.UnlatchPage(pageId, true);
+                    bm.FreePage(pageId, true);
+                }
+            }
+        });
+        if (bm.getPageTable().size() > 16 || bm.getHitCount() + bm.getMissCount() != (long) THREADS * increments) {
+            throw new IOException("Table ou compteurs incohérents : " + bm.getPageTable().size() + " pages");
+        }
+        bm.FlushBuffers();
+        long somme = 0;
+        byte[] data = new byte[config.getPageSize()];
+        for (PageId pageId : pages) {
+            dm.ReadPage(pageId, data);
+            somme += ByteBuffer.wrap(data).getInt(0);
+        }
+        if (somme != (long) THREADS * increments) {
+            throw new IOException("Incréments perdus : " + somme + " au lieu de " + (THREADS * increments));
+        }
+        System.out.println("OK - " + somme + " incréments répartis sur 4 partitions");
+
+        // Pages épinglées une à une jusqu'à saturation d'une partition
+        int[] epinglees = new int[2];
+        for (boolean emprunt : new boolean[] { false, true }) {
+            config.setBorrowFrames(emprunt);
+            PartitionedBufferManager pbm = new PartitionedBufferManager(config, dm);
+            int n = 0;
+            try {
+                while (n < 16) {
+                    pbm.GetPage(pages[n]);
+                    n++;
+                }
+            } catch (IOException e) {
+                // Partition saturée
+            }
+            epinglees[emprunt ? 1 : 0] = n;
+            if (pbm.getFrameCount() != 16) {
+                throw new IOException("Frames perdues lors des emprunts : " + pbm.getFrameCount());
+            }
+        }
+        // Avec emprunt, une partition peut recevoir une frame de chaque autre (part minimale : 2)
+        if (epinglees[1] < Math.min(16, epinglees[0] + 1) || epinglees[1] < 7) {
+            throw new IOException("L'emprunt de frames n'a pas évité la saturation : "
+                    + epinglees[1] + " pages épinglées");
+        }
+        System.out.println("OK - " + epinglees[0] + " pages épinglées sans emprunt, "
+                + epinglees[1] + " avec emprunt");
+        dm.finish();
+    }
+
+    /**
+     * FlushBuffers d'un buffer pool partitionné avec le journal : le point de
+     * reprise n'est établi qu'une fois toutes les partitions écrites. Un arrêt
+     * brutal pendant l'écriture d'une partition laisse les pages des autres
+     * dans le journal, réappliquées au démarrage.
+     */
+    public static void testPartitionsJournal() throws Exception {
+        System.out.println("\nTest journal et vidage d'un buffer pool partitionné...");
+
+        DBConfig config = TestDossiers.configDossier("concurrence", 8, BufferPolicy.LRU);
+        config.setPartitionCount(2);
+        config.setWalEnabled(true);
+        AtomicInteger ecritures = new AtomicInteger();
+        DiskManager dm = new DiskManager(config) {
+            @Override
+            void writeLoggedPages(List<PageId> pageIds, List<ByteBuffer> buffs) throws IOException {
+                // Arrêt brutal pendant l'écriture de la deuxième partition
+                if (!pageIds.isEmpty() && ecritures.incrementAndGet() == 2) {
+                    throw new IOException("Arrêt simulé");
+                }
+                super.writeLoggedPages(pageIds, buffs);
+            }
+        };
+        BufferManager bm = new PartitionedBufferManager(config, dm);
+        PageId[] pages = new PageId[8];
+        for (int i = 0; i < pages.length; i++) {
+            pages[i] = dm.allocPage();
+            dm.WritePage(pages[i], new byte[config.getPageSize()]);
+        }
+        for (int i = 0; i < pages.length; i++) {
+            ByteBuffer.wrap(bm.GetPage(pages[i])).putInt(0, 100 + i);
+            bm.FreePage(pages[i], true);
+        }
+        try {
+            bm.FlushBuffers();
+            throw new IOException("Arrêt simulé non atteint : une seule partition écrite");
+        } catch (IOException e) {
+            if (!"Arrêt simulé".equals(e.getMessage())) {
+                throw e;
+            }
+        }
+
+        dm = new DiskManager(config);
+        byte[] data = new byte[config.getPageSize()];
+        for (int i = 0; i < pages.length; i++) {
+            dm.ReadPage(pages[i], data);
+            int lu = ByteBuffer.wrap(data).getInt(0);
+            if (lu != 100 + i) {
+                throw new IOException("Page " + pages[i] + " perdue après l'arrêt : " + lu);
+            }
+        }
+        System.out.println("OK - Pages de toutes les partitions réappliquées après un arrêt pendant le vidage");
+        dm.finish();
+    }
+
+    /**
+     * Relecture d'une page dont le chargement a échoué : faite hors de
+     * poolLock, elle ne bloque pas les défauts de page des autres threads.
+     */
+    public static void testRelectureHorsVerrou() throws Exception {
+        System.out.println("\nTest relecture après échec d'un chargement...");
+
+        DBConfig config = TestDossiers.configDossier("concurrence", 8, BufferPolicy.LRU);
+        CountDownLatch lectureEnCours = new CountDownLatch(1);
+        CountDownLatch finLecture = new CountDownLatch(1);
+        AtomicInteger lectures = new AtomicInteger();
+        PageId[] cible = new PageId[1];
+        DiskManager dm = new DiskManager(config) {
+            @Override
+            public void ReadPage(PageId pageId, ByteBuffer buff) throws IOException {
+                if (pageId.equals(cible[0])) {
+                    int n = lectures.incrementAndGet();
+                    if (n == 1) {
+                        throw new IOException("Lecture en échec simulée");
+                    }
+                    lectureEnCours.countDown();
+                    try {
+                        finLecture.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                super.ReadPage(pageId, buff);
+            }
+        };
+        BufferManager bm = new BufferManager(config, dm);
+        PageId page = dm.allocPage();
+        PageId autre = dm.allocPage();
+        byte[] data = new byte[config.getPageSize()];
+        ByteBuffer.wrap(data).putInt(0, 4242);
+        dm.WritePage(page, data);
+        dm.WritePage(autre, new byte[config.getPageSize()]);
+        cible[0] = page;
+
+        // Premier chargement en échec : la page reste dans la table, à relire
+        try {
+            bm.GetPage(page);
+            throw new IOException("Échec de lecture non signalé");
+        } catch (IOException e) {
+            if (!e.getMessage().startsWith("Lecture en échec")) {
+                throw e;
+            }
+        }
+
+        // Deux threads redemandent la page : un seul la relit
+        List<CompletableFuture<byte[]>> demandes = new ArrayList<>();
+        for (int t = 0; t < 2; t++) {
+            demandes.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return bm.GetPage(page);
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            }));
+        }
+        if (!lectureEnCours.await(5, TimeUnit.SECONDS)) {
+            throw new IOException("Relecture non lancée");
+        }
+        // Pendant la relecture, un défaut de page sur une autre page aboutit
+        CompletableFuture<byte[]> defaut = CompletableFuture.supplyAsync(() -> {
+            try {
+                return bm.GetPage(autre);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        try {
+            defaut.get(5, TimeUnit.SECONDS);
+        } catch (java.util.concurrent.TimeoutException e) {
+            finLecture.countDown();
+            throw new IOException("Défaut de page bloqué par la relecture d'une autre page");
+        }
+        bm.FreePage(autre, false);
+        finLecture.countDown();
+        for (CompletableFuture<byte[]> demande : demandes) {
+            if (ByteBuffer.wrap(demande.get(5, TimeUnit.SECONDS)).getInt(0) != 4242) {
+                throw new IOException("Contenu relu incorrect");
+            }
+            bm.FreePage(page, false);
+        }
+        if (lectures.get() != 2) {
+            throw new IOException("Lectures de la page : " + lectures.get() + " au lieu de 2");
+        }
+        System.out.println("OK - relecture unique hors verrou, défaut de page concurrent servi");
+        bm.FlushBuffers();
+        dm.finish();
+    }
+
+    /**
+     * Réduction du buffer pool avec une page modifiée à écrire : l'écriture
+     * est faite hors de poolLock, les défauts de page des autres threads
+     * continuent d'être servis.
+     */
+    public static void testReductionHorsVerrou() throws Exception {
+        System.out.println("\nTest réduction avec écriture hors verrou...");
+
+        DBConfig config = TestDossiers.configDossier("concurrence", 8, BufferPolicy.LRU);
+        CountDownLatch ecritureEnCours = new CountDownLatch(1);
+        CountDownLatch finEcriture = new CountDownLatch(1);
+        PageId[] cible = new PageId[1];
+        DiskManager dm = new DiskManager(config) {
+            @Override
+            void writeLoggedPage(PageId pageId, ByteBuffer buff) throws IOException {
+                if (pageId.equals(cible[0])) {
+                    ecritureEnCours.countDown();
+                    try {
+                        finEcriture.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                super.writeLoggedPage(pageId, buff);
+            }
+        };
+        BufferManager bm = new BufferManager(config, dm);
+        PageId[] pages = new PageId[6];
+        for (int i = 0; i < pages.length; i++) {
+            pages[i] = dm.allocPage();
+            dm.WritePage(pages[i], new byte[config.getPageSize()]);
+        }
+        // Frames 0 à 3 occupées, page modifiée dans la frame 4 (retirée par la réduction)
+        for (int i = 0; i < 4; i++) {
+            bm.GetPage(pages[i]);
+            bm.FreePage(pages[i], false);
+        }
+        PageId modifiee = pages[4];
+        ByteBuffer.wrap(bm.GetPage(modifiee)).putInt(0, 4242);
+        bm.FreePage(modifiee, true);
+        cible[0] = modifiee;
+
+        CompletableFuture<Void> reduction = CompletableFuture.runAsync(() -> {
+            try {
+                bm.resize(4);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        if (!ecritureEnCours.await(5, TimeUnit.SECONDS)) {
+            throw new IOException("Écriture de la page modifiée non lancée");
+        }
+        // Pendant l'écriture : un défaut de page aboutit, la page retirée attend son écriture
+        CompletableFuture<byte[]> defaut = CompletableFuture.supplyAsync(() -> {
+            try {
+                return bm.GetPage(pages[5]);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        CompletableFuture<byte[]> relecture = CompletableFuture.supplyAsync(() -> {
+            try {
+                return bm.GetPage(modifiee);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        try {
+            defaut.get(5, TimeUnit.SECONDS);
+        } catch (java.util.concurrent.TimeoutException e) {
+            finEcriture.countDown();
+            throw new IOException("Défaut de page bloqué par l'écriture d'une frame retirée");
+        }
+        bm.FreePage(pages[5], false);
+        finEcriture.countDown();
+        reduction.get(5, TimeUnit.SECONDS);
+        if (ByteBuffer.wrap(relecture.get(5, TimeUnit.SECONDS)).getInt(0) != 4242) {
+            throw new IOException("Page retirée relue sans sa modification");
+        }
+        bm.FreePage(modifiee, false);
+        if (bm.getFrameCount() != 4) {
+            throw new IOException("Nombre de frames après réduction : " + bm.getFrameCount());
+        }
+        System.out.println("OK - page modifiée écrite hors verrou pendant la réduction, défaut de page servi");
+        bm.FlushBuffers();
+        dm.finish();
+    }
+
+    /**
+     * Écriture en échec d'une page modifiée choisie comme victime : la page
+     * reprend sa frame et la politique (2Q) la suit de nouveau. Passée dans
+     * l'historique A1out au chargement de la page demandée, elle y est
+     * retrouvée à son retour et entre dans Am.
+     */
+    public static void testEcritureVictimeEnEchec() throws Exception {
+        System.out.println("\nTest écriture de la victime en échec...");
+
+        DBConfig config = TestDossiers.configDossier("concurrence", 2, BufferPolicy.LRU);
+        AtomicInteger echecs = new AtomicInteger(1);
+        PageId[] cible = new PageId[1];
+        DiskManager dm = new DiskManager(config) {
+            @Override
+            void writeLoggedPage(PageId pageId, ByteBuffer buff) throws IOException {
+                if (pageId.equals(cible[0]) && echecs.getAndDecrement() > 0) {
+                    throw new IOException("Écriture en échec simulée");
+                }
+                super.writeLoggedPage(pageId, buff);
+            }
+        };
+        BufferManager bm = new BufferManager(config, dm);
+        bm.StopCleaner();
+        bm.SetCurrentReplacementPolicy(BufferPolicy.TWOQ);
+        PageId[] pages = new PageId[3];
+        for (int i = 0; i < pages.length; i++) {
+            pages[i] = dm.allocPage();
+            dm.WritePage(pages[i], new byte[config.getPageSize()]);
+        }
+        PageId victime = pages[0];
+        cible[0] = victime;
+        bm.GetPage(victime);
+        bm.FreePage(victime, true);
+        bm.GetPage(pages[1]);
+        bm.FreePage(pages[1], false);
+
+        // Chargement en échec : la victime modifiée reste en mémoire
+        try {
+            bm.GetPage(pages[2]);
+            throw new IOException("Échec d'écriture non signalé");
+        } catch (IOException e) {
+            if (!e.getMessage().startsWith("Écriture en échec")) {
+                throw e;
+            }
+        }
+        if (!bm.getPageTable().containsKey(victime) || bm.getPageTable().containsKey(pages[2])) {
+            throw new IOException("Victime non rétablie dans sa frame");
+        }
+        if (!bm.isFrequentPage(victime)) {
+            throw new IOException("Victime rétablie non suivie par la politique de remplacement");
+        }
+
+        // La page demandée se charge ensuite normalement
+        bm.GetPage(pages[2]);
+        bm.FreePage(pages[2], false);
+        System.out.println("OK - victime rétablie suivie par la politique de remplacement");
+        bm.FlushBuffers();
+        dm.finish();
+    }
+}
@@ -1,6 +1,5 @@
 package bdda;
 
-import java.io.File;
 import java.io.IOException;
 import java.util.Map;
 
@@ -13,6 +12,9 @@ public class BufferManagerRepTests {
         try {
             testIndexPages();
             testToutesPagesEpinglees();
+            testTableDesPages();
+            testPolitiquesClock();
+            testComparaisonPolitiques();
             System.out.println("TOUS LES TESTS PASSES !");
         } catch (Exception e) {
             System.out.println("ERREUR : " + e.getMessage());
@@ -24,8 +26,7 @@ public class BufferManagerRepTests {
         System.out.println("Test avec affichage des index...");
         
         // 1. Setup
-        File configFile = new File("config/config.txt");
-        DBConfig config = DBConfig.LoadDBConfig(configFile);
+        DBConfig config = TestDossiers.configDossier("index");
         DiskManager dm = new DiskManager(config);
         BufferManager bm = new BufferManager(config, dm);
         
@@ -90,13 +91,13 @@ public class BufferManagerRepTests {
     }
     
     private static void afficherEtatBuffer(BufferManager bm) {
-        Map<String, Frame> pageTable = bm.getPageTable();
+        Map<PageId, Frame> pageTable = bm.getPageTable();
         
         System.out.println("Pages en mémoire (" + pageTable.size() + "/8):");
         if(pageTable.isEmpty()) {
             System.out.println("  (Aucune page en mémoire)");
         } else {
-            for(String key : pageTable.keySet()) {
+            for(PageId key : pageTable.keySet()) {
                 Frame frame = pageTable.get(key);
                 System.out.println("  " + key + " (pinCount=" + frame.pinCount + ", lastAccess=" + frame.lastAccess + ")");
             }
@@ -115,8 +116,7 @@ public class BufferManagerRepTests {
         System.out.println("====================================");
         
         // 1. Setup nouveau
-        File configFile = new File("config/config.txt");
-        DBConfig config = DBConfig.LoadDBConfig(configFile);
+        DBConfig config = TestDossiers.configDossier("epinglees");
         DiskManager dm = new DiskManager(config);
         BufferManager bm = new BufferManager(config, dm);
         
@@ -165,4 +165,194 @@ public class BufferManagerRepTests {
         
         System.out.println("\nTest épinglage terminé !");
     }
-}
\ No newline at end of file
+    
+    public static void testTableDesPages() throws IOException {
+        System.out.println("\n\n====================================");
+        System.out.println("TEST TABLE DES PAGES");
+        System.out.println("====================================");
+        
+        DBConfig config = TestDossiers.configDossier("tablepages");
+        DiskManager dm = new DiskManager(config);
+        BufferManager bm = new BufferManager(config, dm);
+        
+        // Beaucoup plus de pages que de frames : nombreux remplacements
+        PageId[] pages = new PageId[3 * config.getBufferCount()];
+        for (int i = 0; i < pages.length; i++) {
+            pages[i] = dm.allocPage();
+        }
+        for (int tour = 0; tour < 20; tour++) {
+            for (int i = 0; i < pages.length; i++) {
+                PageId pageId = pages[(i * 5 + tour) % pages.length];
+                bm.GetPage(pageId);
+                bm.FreePage(pageId, false);
+            }
+        }
+        
+        Map<PageId, Frame> pageTable = bm.getPageTable();
+        int trouvees = 0;
+        for (PageId pageId : pages) {
+            Frame frame = pageTable.get(new PageId(pageId.getFileIdx(), pageId.getPageIdx()));
+            if (frame != null) {
+                trouvees++;
+                if (!frame.pageId.equals(pageId)) {
+                    throw new IOException("Frame de la page " + pageId + " associée à " + frame.pageId);
+                }
+            }
+        }
+        if (trouvees != pageTable.size() || pageTable.size() != config.getBufferCount()) {
+            throw new IOException("Table des pages incohérente : " + trouvees + " pages trouvées, taille " + pageTable.size());
+        }
+        for (Map.Entry<PageId, Frame> e : pageTable.entrySet()) {
+            if (!e.getKey().equals(e.getValue().pageId)) {
+                throw new IOException("Entrée incohérente : " + e.getKey());
+            }
+        }
+        System.out.println("Table cohérente après " + (20 * pages.length) + " accès : " + pageTable.size() + " pages en mémoire");
+        
+        try {
+            pageTable.clear();
+            throw new IOException("La table des pages ne devrait pas être modifiable");
+        } catch (UnsupportedOperationException e) {
+            System.out.println("Test réussi : table des pages en lecture seule");
+        }
+        
+        dm.finish();
+    }
+    
+    public static void testPolitiquesClock() throws IOException {
+        System.out.println("\n\n====================================");
+        System.out.println("TEST POLITIQUES CLOCK ET CLOCKPRO");
+        System.out.println("====================================");
+        
+        DBConfig base = TestDossiers.configBase();
+        for (BufferPolicy policy : new BufferPolicy[] { BufferPolicy.LRU, BufferPolicy.CLOCK, BufferPolicy.CLOCKPRO }) {
+            DBConfig config = TestDossiers.configDossier("clock", 8, policy);
+            DiskManager dm = new DiskManager(config);
+            BufferManager bm = new BufferManager(config, dm);
+            
+            // 8 pages chargées, les 4 premières redemandées : CLOCK doit remplacer les 4 autres
+            PageId[] pages = new PageId[12];
+            for (int i = 0; i < pages.length; i++) {
+                pages[i] = dm.allocPage();
+            }
+            for (int i = 0; i < 8; i++) {
+                bm.GetPage(pages[i]);
+                bm.FreePage(pages[i], false);
+            }
+            for (int i = 0; i < 4; i++) {
+                bm.GetPage(pages[i]);
+                bm.FreePage(pages[i], false);
+            }
+            for (int i = 8; i < 12; i++) {
+                bm.GetPage(pages[i]);
+                bm.FreePage(pages[i], false);
+            }
+            int conservees = 0;
+            for (int i = 0; i < 4; i++) {
+                if (bm.getPageTable().containsKey(pages[i])) {
+                    conservees++;
+                }
+            }
+            System.out.println(policy + " : " + conservees + "/4 pages redemandées conservées");
+            if (conservees != 4) {
+                throw new IOException("Politique " + policy + " : pages redemandées remplacées");
+            }
+            
+            // Parcours séquentiel de 24 pages lues une seule fois
+            bm.FlushBuffers();
+            for (int tour = 0; tour < 3; tour++) {
+                for (int i = 0; i < 4; i++) {
+                    bm.GetPage(pages[i]);
+                    bm.FreePage(pages[i], false);
+                }
+            }
+            for (int i = 0; i < 24; i++) {
+                PageId pageId = dm.allocPage();
+                bm.GetPage(pageId);
+                bm.FreePage(pageId, false);
+            }
+            conservees = 0;
+            for (int i = 0; i < 4; i++) {
+                if (bm.getPageTable().containsKey(pages[i])) {
+                    conservees++;
+                }
+            }
+            System.out.println(policy + " : " + conservees + "/4 pages utiles conservées après un parcours séquentiel");
+            if (policy == BufferPolicy.CLOCKPRO && conservees != 4) {
+                throw new IOException("CLOCKPRO : pages utiles chassées par un parcours séquentiel");
+            }
+            dm.finish();
+        }
+
+        // Passage de CLOCK à LRU : les pages présentes ont toutes la date 0 et
+        // sont toutes proposées au nettoyeur et au préchargement
+        Frame[] frames = new Frame[8];
+        for (int i = 0; i < frames.length; i++) {
+            frames[i] = new Frame(base.getPageSize());
+            frames[i].pageId = new PageId(0, i);
+        }
+        for (boolean mostRecent : new boolean[] { false, true }) {
+            int count = new LRUReplacer(frames, mostRecent).peekVictims(new int[frames.length], frames.length);
+            if (count != frames.length) {
+                throw new IOException((mostRecent ? "MRU" : "LRU") + " : " + count
+                        + " frame(s) listée(s) à date égale au lieu de " + frames.length);
+            }
+        }
+        System.out.println("Test réussi : politiques CLOCK et CLOCKPRO");
+    }
+
+    public static void testComparaisonPolitiques() throws IOException {
+        System.out.println("\n\n====================================");
+        System.out.println("TEST COMPARAISON DES POLITIQUES (TAUX DE SUCCÈS)");
+        System.out.println("====================================");
+        
+        DBConfig config = TestDossiers.configDossier("politiques", 16, BufferPolicy.LRU);
+        DiskManager dm = new DiskManager(config);
+        BufferManager bm = new BufferManager(config, dm);
+        
+        // 4 pages utiles (en-têtes, index) et une relation de 40 pages parcourue par morceaux
+        PageId[] utiles = new PageId[4];
+        PageId[] relation = new PageId[40];
+        for (int i = 0; i < utiles.length; i++) {
+            utiles[i] = dm.allocPage();
+        }
+        for (int i = 0; i < relation.length; i++) {
+            relation[i] = dm.allocPage();
+        }
+        
+        // Même charge pour chaque politique : les pages utiles sont lues deux fois,
+        // puis 16 pages de la relation sont parcourues, et ainsi de suite
+        double tauxLRU = 0;
+        for (BufferPolicy policy : BufferPolicy.values()) {
+            bm.FlushBuffers();
+            bm.SetCurrentReplacementPolicy(policy);
+            bm.resetHitStatistics();
+            for (int phase = 0; phase < 20; phase++) {
+                for (int i = 0; i < 2 * utiles.length; i++) {
+                    bm.GetPage(utiles[i % utiles.length]);
+                    bm.FreePage(utiles[i % utiles.length], false);
+                }
+                for (int i = 0; i < 16; i++) {
+                    PageId pageId = relation[(phase * 16 + i) % relation.length];
+                    bm.GetPage(pageId);
+                    bm.FreePage(pageId, false);
+                }
+            }
+            double taux = bm.getHitRatio();
+            System.out.printf("%-8s : %4d succès, %4d lectures, taux de succès %.2f%n",
+                    policy, bm.getHitCount(), bm.getMissCount(), taux);
+            if (bm.getHitCount() + bm.getMissCount() != 20 * 24) {
+                throw new IOException("Politique " + policy + " : compteurs de succès incohérents");
+            }
+            if (policy == BufferPolicy.LRU) {
+                tauxLRU = taux;
+            }
+            if ((policy == BufferPolicy.LRU2 || policy == BufferPolicy.TWOQ || policy == BufferPolicy.ARC)
+                    && taux <= tauxLRU) {
+                throw new IOException("Politique " + policy + " : pas meilleure que LRU face au parcours");
+            }
+        }
+        dm.finish();
+        System.out.println("Test réussi : comparaison des politiques");
+    }
+}
@@ -2,6 +2,11 @@ package bdda;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 public class BufferManagerTests {
 
@@ -11,6 +16,19 @@ public class BufferManagerTests {
         
         try {
             testCycleComplet();
+            testJournal();
+            testJournalEcriturePerdue();
+            testJournalEcritureDirecte();
+            testFlushGroupe();
+            testHorsDuTas();
+            testNettoyeur();
+            testLectureAnticipee();
+            testPageHandle();
+            testPointDeReprise();
+            testPrechargement();
+            testAnneau();
+            testAnneauHistorique(BufferPolicy.ARC);
+            testAnneauHistorique(BufferPolicy.TWOQ);
             System.out.println("TOUS LES TESTS PASSÉS !");
         } catch (Exception e) {
             System.out.println("ERREUR : " + e.getMessage());
@@ -22,8 +40,7 @@ public class BufferManagerTests {
         System.out.println("Test cycle complet...");
         
         // 1. Setup
-        File configFile = new File("config/config.txt");
-        DBConfig config = DBConfig.LoadDBConfig(configFile);
+        DBConfig config = TestDossiers.configDossier("cycle");
         DiskManager dm = new DiskManager(config);
         BufferManager bm = new BufferManager(config, dm);
         
@@ -98,4 +115,759 @@ public class BufferManagerTests {
         
         System.out.println("\nTest cycle complet terminé !");
     }
+    
+    /**
+     * Journal des écritures : des pages modifiées dans le buffer pool et validées
+     * par commit() (jamais écrites dans les fichiers de données) sont retrouvées
+     * après un arrêt brutal. Une page écrite directement ensuite n'est pas
+     * écrasée par le journal, et les validations concurrentes partagent
+     * les synchronisations du journal.
+     */
+    public static void testJournal() throws IOException {
+        System.out.println("\nTest journal des écritures...");
+        
+        DBConfig config = TestDossiers.configDossier("wal");
+        File dossier = new File(config.getPath());
+        config.setWalEnabled(true);
+        config.setWalSegmentSize(4096);
+        
+        // 1. Modifications validées puis arrêt brutal (ni FlushBuffers ni finish)
+        DiskManager dm = new DiskManager(config);
+        BufferManager bm = new BufferManager(config, dm);
+        List<PageId> pages = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            PageId pageId = dm.allocPage();
+            byte[] buffer = bm.GetPage(pageId);
+            byte[] msg = ("Journal " + i).getBytes();
+            System.arraycopy(msg, 0, buffer, 0, msg.length);
+            bm.FreePage(pageId, true);
+            pages.add(pageId);
+        }
+        dm.getLogManager().commit();
+        
+        // 2. Redémarrage : les pages sont réécrites depuis le journal
+        dm = new DiskManager(config);
+        for (int i = 0; i < pages.size(); i++) {
+            byte[] data = new byte[config.getPageSize()];
+            dm.ReadPage(pages.get(i), data);
+            String lu = new String(data, 0, ("Journal " + i).length());
+            if (!lu.equals("Journal " + i)) {
+                throw new IOException("Page " + pages.get(i) + " non restaurée par le journal : '" + lu + "'");
+            }
+        }
+        System.out.println("   OK - " + pages.size() + " pages validées restaurées après un arrêt brutal");
+        
+        // 3. Une écriture directe postérieure au journal n'est pas écrasée au redémarrage
+        byte[] direct = new byte[config.getPageSize()];
+        System.arraycopy("Direct".getBytes(), 0, direct, 0, 6);
+        dm.WritePage(pages.get(0), direct);
+        dm.finish();
+        dm = new DiskManager(config);
+        byte[] data = new byte[config.getPageSize()];
+        dm.ReadPage(pages.get(0), data);
+        if (!Arrays.equals(direct, data)) {
+            throw new IOException("Écriture directe écrasée par le journal");
+        }
+        System.out.println("   OK - Écriture directe conservée au redémarrage");
+        
+        // 4. Validations concurrentes (group commit)
+        LogManager log = dm.getLogManager();
+        long syncAvant = log.getSyncCount();
+        int nbThreads = 8;
+        int nbCommits = 50;
+        Thread[] threads = new Thread[nbThreads];
+        IOException[] erreur = new IOException[1];
+        for (int t = 0; t < nbThreads; t++) {
+            PageId pageId = pages.get(t % pages.size());
+            threads[t] = new Thread(() -> {
+                byte[] image = new byte[config.getPageSize()];
+                try {
+                    for (int i = 0; i < nbCommits; i++) {
+                        log.flush(log.appendPage(pageId, image));
+                    }
+                } catch (IOException e) {
+                    erreur[0] = e;
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread t : threads) {
+            try {
+                t.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (erreur[0] != null) {
+            throw erreur[0];
+        }
+        long syncs = log.getSyncCount() - syncAvant;
+        System.out.println("   OK - " + (nbThreads * nbCommits) + " validations concurrentes en " + syncs + " synchronisations");
+        
+        // 5. Point de reprise : seuls les segments encore utiles sont conservés
+        bm = new BufferManager(config, dm);
+        bm.FlushBuffers();
+        int segments = dossier.list((d, name) -> name.endsWith(".wal")).length;
+        if (segments != 1) {
+            throw new IOException("Segments du journal non supprimés après le point de reprise : " + segments);
+        }
+        System.out.println("   OK - Point de reprise établi, anciens segments supprimés");
+        dm.finish();
+    }
+    
+    /**
+     * Journal des écritures : une page écrite dans son fichier de données mais
+     * dont l'écriture n'a pas atteint le disque avant l'arrêt (non forcée)
+     * est réécrite depuis le journal au redémarrage.
+     */
+    public static void testJournalEcriturePerdue() throws IOException {
+        System.out.println("\nTest écriture perdue rattrapée par le journal...");
+        
+        DBConfig config = TestDossiers.configDossier("walperdu");
+        config.setWalEnabled(true);
+        DiskManager dm = new DiskManager(config);
+        BufferManager bm = new BufferManager(config, dm);
+        bm.StopCleaner();
+        PageId pageId = dm.allocPage();
+        dm.WritePage(pageId, new byte[config.getPageSize()]);
+        PageId[] autres = new PageId[config.getBufferCount()];
+        for (int i = 0; i < autres.length; i++) {
+            autres[i] = dm.allocPage();
+            dm.WritePage(autres[i], new byte[config.getPageSize()]);
+        }
+        File fichier = new File(config.getPath(), "Data" + pageId.getFileIdx() + ".bin");
+        byte[] avant = Files.readAllBytes(fichier.toPath());
+        
+        // Page modifiée et validée, puis écrite dans son fichier quand elle est
+        // remplacée (sans point de reprise ni synchronisation du fichier)
+        try (PageHandle page = bm.PinPage(pageId)) {
+            page.putInt(0, 4242);
+        }
+        dm.getLogManager().commit();
+        for (PageId autre : autres) {
+            bm.GetPage(autre);
+            bm.FreePage(autre, false);
+        }
+        try (PageHandle page = bm.PinPage(pageId)) {
+            if (page.getInt(0) != 4242) {
+                throw new IOException("Page remplacée mal écrite : " + page.getInt(0));
+            }
+        }
+        dm.getLogManager().commit();
+        
+        // Arrêt brutal : l'écriture non forcée de la page est perdue, le journal reste
+        Files.write(fichier.toPath(), avant);
+        dm = new DiskManager(config);
+        byte[] data = new byte[config.getPageSize()];
+        dm.ReadPage(pageId, data);
+        int lu = ByteBuffer.wrap(data).getInt(0);
+        if (lu != 4242) {
+            throw new IOException("Écriture perdue non rattrapée par le journal : " + lu);
+        }
+        System.out.println("   OK - Image du journal réappliquée après la perte de l'écriture");
+        dm.finish();
+    }
+    
+    /**
+     * Journal des écritures : une page journalisée par le buffer pool, puis
+     * désallouée, réallouée et écrite directement (WritePage, WritePages) n'est
+     * pas ramenée à l'image du buffer pool par un arrêt brutal sans point de reprise.
+     */
+    public static void testJournalEcritureDirecte() throws IOException {
+        System.out.println("\nTest écriture directe après le journal, sans point de reprise...");
+        
+        DBConfig config = TestDossiers.configDossier("waldirect");
+        config.setWalEnabled(true);
+        DiskManager dm = new DiskManager(config);
+        BufferManager bm = new BufferManager(config, dm);
+        bm.StopCleaner();
+        PageId[] pages = new PageId[2];
+        for (int i = 0; i < pages.length; i++) {
+            pages[i] = dm.allocPage();
+            dm.WritePage(pages[i], new byte[config.getPageSize()]);
+            try (PageHandle page = bm.PinPage(pages[i])) {
+                page.putInt(0, 1000 + i);
+            }
+        }
+        dm.getLogManager().commit();
+        long checkpoint = dm.getLogManager().getCheckpointLsn();
+        
+        // Pages libérées puis réutilisées, écrites hors du buffer pool
+        for (PageId pageId : pages) {
+            dm.DeallocPage(pageId);
+        }
+        PageId reuse = dm.allocPage();
+        if (!reuse.equals(pages[0]) && !reuse.equals(pages[1])) {
+            throw new IOException("Page libérée non réutilisée : " + reuse);
+        }
+        byte[] direct = new byte[config.getPageSize()];
+        ByteBuffer.wrap(direct).putInt(0, 2000);
+        dm.WritePage(reuse, direct);
+        PageId other = reuse.equals(pages[0]) ? pages[1] : pages[0];
+        if (!dm.allocPage().equals(other)) {
+            throw new IOException("Seconde page libérée non réutilisée");
+        }
+        byte[] batch = new byte[config.getPageSize()];
+        ByteBuffer.wrap(batch).putInt(0, 3000);
+        dm.WritePages(Arrays.asList(other), Arrays.asList(batch));
+        if (dm.getLogManager().getCheckpointLsn() != checkpoint) {
+            throw new IOException("Point de reprise inattendu avant l'arrêt");
+        }
+        
+        // Arrêt brutal : ni FlushBuffers, ni finish, ni point de reprise
+        dm = new DiskManager(config);
+        byte[] data = new byte[config.getPageSize()];
+        dm.ReadPage(reuse, data);
+        if (ByteBuffer.wrap(data).getInt(0) != 2000) {
+            throw new IOException("WritePage ramené à l'image du buffer pool : " + ByteBuffer.wrap(data).getInt(0));
+        }
+        dm.ReadPage(other, data);
+        if (ByteBuffer.wrap(data).getInt(0) != 3000) {
+            throw new IOException("WritePages ramené à l'image du buffer pool : " + ByteBuffer.wrap(data).getInt(0));
+        }
+        System.out.println("   OK - Écritures directes conservées après un arrêt brutal");
+        dm.finish();
+    }
+    
+    /**
+     * FlushBuffers écrit en lot les pages modifiées de plusieurs fichiers,
+     * dans le désordre du buffer pool, puis en parallèle (bm_parallelflush).
+     */
+    public static void testFlushGroupe() throws IOException {
+        System.out.println("\nTest FlushBuffers groupé...");
+        
+        DBConfig base = TestDossiers.configBase();
+        DBConfig config = TestDossiers.configDossier("flush", 32, base.getBufferPolicy());
+        config.setMaxFileSize(base.getMaxFileSize());
+        
+        for (boolean parallele : new boolean[] { false, true }) {
+            config.setParallelFlush(parallele);
+            DiskManager dm = new DiskManager(config);
+            BufferManager bm = new BufferManager(config, dm);
+            List<PageId> pages = new ArrayList<>();
+            for (int i = 0; i < 24; i++) {
+                pages.add(dm.allocPage());
+            }
+            // Modifie les pages dans un ordre mélangé, sur plusieurs fichiers
+            for (int i = 0; i < pages.size(); i++) {
+                PageId pageId = pages.get((i * 7) % pages.size());
+                byte[] buffer = bm.GetPage(pageId);
+                byte[] msg = ("Flush " + pageId).getBytes();
+                System.arraycopy(msg, 0, buffer, 0, msg.length);
+                bm.FreePage(pageId, true);
+            }
+            bm.FlushBuffers();
+            
+            for (PageId pageId : pages) {
+                byte[] data = new byte[config.getPageSize()];
+                dm.ReadPage(pageId, data);
+                String attendu = "Flush " + pageId;
+                if (!new String(data, 0, attendu.length()).equals(attendu)) {
+                    throw new IOException("Page " + pageId + " mal écrite par FlushBuffers");
+                }
+            }
+            dm.finish();
+            System.out.println("   OK - " + pages.size() + " pages sur " + (pages.get(pages.size() - 1).getFileIdx() + 1)
+                    + " fichiers écrites" + (parallele ? " en parallèle" : " en lot"));
+        }
+    }
+
+    /**
+     * Buffer pool hors du tas (bm_offheap) : les pages sont lues, modifiées
+     * par GetPageBuffer et écrites directement depuis la zone hors du tas.
+     */
+    public static void testHorsDuTas() throws IOException {
+        System.out.println("\nTest buffer pool hors du tas...");
+        
+        DBConfig base = TestDossiers.configBase();
+        DBConfig config = TestDossiers.configDossier("offheap", 4, base.getBufferPolicy());
+        config.setOffHeap(true);
+        DiskManager dm = new DiskManager(config);
+        BufferManager bm = new BufferManager(config, dm);
+        
+        // 12 pages pour 4 frames : les pages modifiées sont écrites lors des remplacements
+        List<PageId> pages = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            pages.add(dm.allocPage());
+        }
+        for (int i = 0; i < pages.size(); i++) {
+            ByteBuffer page = bm.GetPageBuffer(pages.get(i));
+            if (!page.isDirect() || page.remaining() != config.getPageSize()) {
+                throw new IOException("Vue de page invalide : " + page);
+            }
+            page.putInt(0, 1000 + i).putInt(config.getPageSize() - 4, i);
+            bm.FreePage(pages.get(i), true);
+        }
+        for (int i = 0; i < pages.size(); i++) {
+            ByteBuffer page = bm.GetPageBuffer(pages.get(i));
+            if (page.getInt(0) != 1000 + i || page.getInt(config.getPageSize() - 4) != i) {
+                throw new IOException("Page " + pages.get(i) + " mal relue dans la zone hors du tas");
+            }
+            bm.FreePage(pages.get(i), false);
+        }
+        System.out.println("   OK - " + pages.size() + " pages modifiées et relues à travers 4 frames hors du tas");
+        
+        bm.FlushBuffers();
+        byte[] data = new byte[config.getPageSize()];
+        dm.ReadPage(pages.get(11), data);
+        if (ByteBuffer.wrap(data).getInt(0) != 1011) {
+            throw new IOException("Page non écrite par FlushBuffers depuis la zone hors du tas");
+        }
+        try {
+            bm.GetPage(pages.get(0));
+            throw new IOException("GetPage aurait dû être refusé avec bm_offheap");
+        } catch (IllegalStateException e) {
+            System.out.println("   OK - GetPage refusé : " + e.getMessage());
+        }
+        dm.finish();
+    }
+
+    /**
+     * Nettoyeur de pages : les prochaines victimes sont écrites à l'avance,
+     * les remplacements suivants ne font plus qu'une lecture.
+     */
+    public static void testNettoyeur() throws IOException {
+        System.out.println("\nTest nettoyeur de pages...");
+        
+        DBConfig config = TestDossiers.configDossier("cleaner", 8, BufferPolicy.LRU);
+        
+        for (int pourcentage : new int[] { 0, 50 }) {
+            config.setCleanPercent(pourcentage);
+            config.setCleanRate(100000);
+            DiskManager dm = new DiskManager(config);
+            BufferManager bm = new BufferManager(config, dm);
+            List<PageId> pages = new ArrayList<>();
+            for (int i = 0; i < 12; i++) {
+                pages.add(dm.allocPage());
+            }
+            // Le buffer pool se remplit de pages modifiées
+            for (int i = 0; i < 8; i++) {
+                ByteBuffer page = bm.GetPageBuffer(pages.get(i));
+                page.putInt(0, 500 + i);
+                bm.FreePage(pages.get(i), true);
+            }
+            if (pourcentage > 0) {
+                // Les 4 prochaines victimes (50 % des frames) doivent être écrites par le nettoyeur
+                long limite = System.currentTimeMillis() + 5000;
+                while (bm.getCleanerWriteCount() < 4 && System.currentTimeMillis() < limite) {
+                    try {
+                        Thread.sleep(5);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                }
+            }
+            // 4 nouvelles pages : remplacent les 4 pages les moins récemment utilisées
+            for (int i = 8; i < 12; i++) {
+                bm.GetPageBuffer(pages.get(i));
+                bm.FreePage(pages.get(i), false);
+            }
+            long ecrituresGetPage = bm.getDirtyEvictionCount();
+            bm.StopCleaner();
+            
+            if (pourcentage == 0 && ecrituresGetPage != 4) {
+                throw new IOException("Sans nettoyeur, 4 victimes modifiées auraient dû être écrites par GetPage : " + ecrituresGetPage);
+            }
+            if (pourcentage > 0 && ecrituresGetPage != 0) {
+                throw new IOException("Victimes encore modifiées malgré le nettoyeur : " + ecrituresGetPage);
+            }
+            bm.FlushBuffers();
+            byte[] data = new byte[config.getPageSize()];
+            for (int i = 0; i < 8; i++) {
+                dm.ReadPage(pages.get(i), data);
+                if (ByteBuffer.wrap(data).getInt(0) != 500 + i) {
+                    throw new IOException("Page " + pages.get(i) + " perdue");
+                }
+            }
+            dm.finish();
+            System.out.println("   OK - bm_cleanpercent = " + pourcentage + " : " + ecrituresGetPage
+                    + " victime(s) modifiée(s) écrite(s) par GetPage, " + bm.getCleanerWriteCount() + " page(s) écrite(s) par le nettoyeur");
+        }
+    }
+
+    public static void testLectureAnticipee() throws IOException {
+        System.out.println("\nTest lecture anticipée...");
+        
+        DBConfig config = TestDossiers.configDossier("readahead", 16, BufferPolicy.LRU);
+        DiskManager dm = new DiskManager(config);
+        List<PageId> pages = new ArrayList<>();
+        for (int i = 0; i < 32; i++) {
+            PageId pageId = dm.allocPage();
+            byte[] data = new byte[config.getPageSize()];
+            ByteBuffer.wrap(data).putInt(0, 1000 + i);
+            dm.WritePage(pageId, data);
+            pages.add(pageId);
+        }
+        
+        long[] defauts = new long[2];
+        for (int fenetre : new int[] { 0, 8 }) {
+            config.setReadAhead(fenetre);
+            config.setPrefetchLimit(8);
+            BufferManager bm = new BufferManager(config, dm);
+            // Parcours séquentiel de toutes les pages
+            for (int i = 0; i < pages.size(); i++) {
+                ByteBuffer page = bm.GetPageBuffer(pages.get(i));
+                if (page.getInt(0) != 1000 + i) {
+                    throw new IOException("Contenu incorrect pour la page " + i + " : " + page.getInt(0));
+                }
+                bm.FreePage(pages.get(i), false);
+            }
+            defauts[fenetre == 0 ? 0 : 1] = bm.getMissCount();
+            System.out.println("  bm_readahead = " + fenetre + " : " + bm.getMissCount() + " défauts, "
+                    + bm.getPrefetchCount() + " pages anticipées, " + bm.getPrefetchHitCount() + " utilisées, "
+                    + bm.getWastedPrefetchCount() + " perdues");
+            if (fenetre > 0) {
+                if (bm.getPrefetchHitCount() == 0) {
+                    throw new IOException("Aucune page lue par anticipation n'a servi");
+                }
+                // Parcours abandonné : les pages anticipées sont remplacées sans être demandées
+                bm.FlushBuffers();
+                long anticipees = bm.getPrefetchCount();
+                bm.GetPageBuffer(pages.get(0));
+                bm.FreePage(pages.get(0), false);
+                bm.GetPageBuffer(pages.get(1));
+                bm.FreePage(pages.get(1), false);
+                // Fin des lectures anticipées (pages épinglées pendant la lecture)
+                for (Frame frame : bm.getPageTable().values()) {
+                    while (frame.pinCount.get() > 0) {
+                        Thread.onSpinWait();
+                    }
+                }
+                for (int i = 31; i >= 16; i--) {
+                    bm.GetPageBuffer(pages.get(i));
+                    bm.FreePage(pages.get(i), false);
+                }
+                if (bm.getPrefetchCount() == anticipees || bm.getWastedPrefetchCount() == 0) {
+                    throw new IOException("Pages anticipées perdues non comptées");
+                }
+                System.out.println("  parcours abandonné : " + bm.getWastedPrefetchCount() + " pages perdues");
+            }
+            bm.FlushBuffers();
+        }
+        if (defauts[1] >= defauts[0]) {
+            throw new IOException("La lecture anticipée n'a pas réduit les défauts : " + defauts[1]
+                    + " contre " + defauts[0]);
+        }
+        System.out.println("OK - lecture anticipée : " + defauts[1] + " défauts au lieu de " + defauts[0]);
+        
+        // Pages sautées (limite atteinte, aucune frame propre) : proposées de nouveau
+        ReadAhead readAhead = new ReadAhead(8);
+        readAhead.onAccess(new PageId(0, 0));
+        int[] plage = readAhead.onAccess(new PageId(0, 1));
+        readAhead.onPrefetched(0, plage[0], plage[0] + 1);
+        plage = readAhead.onAccess(new PageId(0, 2));
+        if (plage == null || plage[0] != 3) {
+            throw new IOException("Pages non lues par anticipation abandonnées par le flux");
+        }
+        System.out.println("OK - pages sautées proposées de nouveau au flux");
+        dm.finish();
+    }
+
+    public static void testPageHandle() throws IOException {
+        System.out.println("\nTest PageHandle...");
+        
+        DBConfig config = TestDossiers.configDossier("handle");
+        DiskManager dm = new DiskManager(config);
+        BufferManager bm = new BufferManager(config, dm);
+        PageId pageId = dm.allocPage();
+        dm.WritePage(pageId, new byte[config.getPageSize()]);
+        
+        // Lecture seule : la page reste propre
+        PageHandle lecture;
+        try (PageHandle page = bm.PinPage(pageId)) {
+            lecture = page;
+            page.latch(false);
+            if (page.getInt(0) != 0 || page.isDirty()) {
+                throw new IOException("Page modifiée par une lecture");
+            }
+        }
+        Frame frame = bm.getPageTable().get(pageId);
+        if (frame.pinCount.get() != 0 || frame.dirty || frame.latch.getReadLockCount() != 0) {
+            throw new IOException("Page non libérée par close");
+        }
+        // Second close sans effet, accès refusé après close
+        lecture.close();
+        if (frame.pinCount.get() != 0) {
+            throw new IOException("Second close a désépinglé la page");
+        }
+        try {
+            lecture.getInt(0);
+            throw new IOException("Accès accepté après close");
+        } catch (IllegalStateException e) {
+            // Attendu
+        }
+        
+        // Écriture : la page est marquée modifiée à la libération, même sur exception
+        try (PageHandle page = bm.PinPage(pageId)) {
+            page.latch(true);
+            page.putInt(0, 4242);
+            throw new IllegalStateException("interruption");
+        } catch (IllegalStateException e) {
+            // Attendu
+        }
+        if (frame.pinCount.get() != 0 || !frame.dirty || frame.latch.isWriteLocked()) {
+            throw new IOException("Page modifiée mal libérée après exception");
+        }
+        bm.FlushBuffers();
+        byte[] data = new byte[config.getPageSize()];
+        dm.ReadPage(pageId, data);
+        if (ByteBuffer.wrap(data).getInt(0) != 4242) {
+            throw new IOException("Écriture par le handle perdue");
+        }
+        System.out.println("OK - PageHandle libère la page une fois, verrou relâché, modification suivie");
+        dm.finish();
+    }
+
+    public static void testPointDeReprise() throws IOException {
+        System.out.println("\nTest point de reprise...");
+        
+        DBConfig config = TestDossiers.configDossier("checkpoint");
+        DiskManager dm = new DiskManager(config);
+        BufferManager bm = new BufferManager(config, dm);
+        bm.StopCleaner();
+        int n = Math.min(4, config.getBufferCount());
+        PageId[] pages = new PageId[n];
+        for (int i = 0; i < n; i++) {
+            pages[i] = dm.allocPage();
+            dm.WritePage(pages[i], new byte[config.getPageSize()]);
+            try (PageHandle page = bm.PinPage(pages[i])) {
+                page.putInt(0, 100 + i);
+            }
+        }
+        
+        // Lots d'une page : chaque page est écrite, aucune n'est retirée du buffer pool
+        int written = bm.Checkpoint(1);
+        if (written != n) {
+            throw new IOException("Pages écrites par le point de reprise : " + written + " au lieu de " + n);
+        }
+        byte[] data = new byte[config.getPageSize()];
+        for (int i = 0; i < n; i++) {
+            dm.ReadPage(pages[i], data);
+            Frame frame = bm.getPageTable().get(pages[i]);
+            if (ByteBuffer.wrap(data).getInt(0) != 100 + i) {
+                throw new IOException("Page non écrite par le point de reprise");
+            }
+            if (frame == null || frame.dirty || frame.pinCount.get() != 0) {
+                throw new IOException("Page retirée, modifiée ou épinglée après le point de reprise");
+            }
+        }
+        
+        // Les pages restent utilisables sans relecture, avec leur contenu
+        long misses = bm.getMissCount();
+        for (int i = 0; i < n; i++) {
+            try (PageHandle page = bm.PinPage(pages[i])) {
+                if (page.getInt(0) != 100 + i) {
+                    throw new IOException("Contenu perdu par le point de reprise");
+                }
+            }
+        }
+        if (bm.getMissCount() != misses) {
+            throw new IOException("Pages relues après le point de reprise");
+        }
+        
+        // Rien à écrire au second passage
+        if (bm.Checkpoint(8) != 0) {
+            throw new IOException("Pages propres réécrites");
+        }
+        
+        // Shutdown vide le buffer pool et efface le contenu des frames
+        Frame frame = bm.getPageTable().get(pages[0]);
+        bm.Shutdown();
+        if (!bm.getPageTable().isEmpty() || frame.data.getInt(0) != 0) {
+            throw new IOException("Buffer pool non vidé par Shutdown");
+        }
+        System.out.println("OK - point de reprise sans invalidation, contenu effacé par Shutdown");
+        dm.finish();
+    }
+
+    public static void testPrechargement() throws IOException {
+        System.out.println("\nTest préchargement (bm.warm)...");
+        
+        DBConfig config = TestDossiers.configDossier("warmup");
+        config.setWarmup(true);
+        DiskManager dm = new DiskManager(config);
+        BufferManager bm = new BufferManager(config, dm);
+        int frameCount = config.getBufferCount();
+        
+        // Plus de pages que de frames : seules les dernières utilisées restent
+        PageId[] pages = new PageId[frameCount + 4];
+        for (int i = 0; i < pages.length; i++) {
+            pages[i] = dm.allocPage();
+            byte[] data = new byte[config.getPageSize()];
+            ByteBuffer.wrap(data).putInt(0, 500 + i);
+            dm.WritePage(pages[i], data);
+            bm.GetPage(pages[i]);
+            bm.FreePage(pages[i], false);
+        }
+        // La plus ancienne des pages présentes redevient la plus récente
+        PageId oldest = pages[4];
+        bm.GetPage(oldest);
+        bm.FreePage(oldest, false);
+        PageId victim = bm.selectVictimFrame().pageId;
+        bm.Shutdown();
+        
+        // Redémarrage : les mêmes pages reviennent, dans le même ordre de remplacement
+        bm = new BufferManager(config, dm);
+        int started = bm.WarmUp();
+        if (started != frameCount) {
+            throw new IOException("Pages préchargées : " + started + " au lieu de " + frameCount);
+        }
+        awaitLoads(bm);
+        if (!victim.equals(bm.selectVictimFrame().pageId)) {
+            throw new IOException("Ordre de remplacement perdu par le préchargement");
+        }
+        bm.resetHitStatistics();
+        for (int i = 4; i < pages.length; i++) {
+            ByteBuffer data = ByteBuffer.wrap(bm.GetPage(pages[i]));
+            bm.FreePage(pages[i], false);
+            if (data.getInt(0) != 500 + i) {
+                throw new IOException("Contenu préchargé incorrect");
+            }
+        }
+        if (bm.getMissCount() != 0) {
+            throw new IOException(bm.getMissCount() + " page(s) relue(s) après le préchargement");
+        }
+        bm.FlushBuffers();
+        
+        // Buffer pool déjà en partie occupé : le préchargement s'arrête aux frames vides,
+        // en commençant par les pages les plus récentes
+        bm = new BufferManager(config, dm);
+        for (int i = 0; i < frameCount - 2; i++) {
+            bm.GetPage(pages[i]);
+            bm.FreePage(pages[i], false);
+        }
+        started = bm.WarmUp();
+        awaitLoads(bm);
+        if (started != 2 || !bm.getPageTable().containsKey(oldest)
+                || !bm.getPageTable().containsKey(pages[pages.length - 1])) {
+            throw new IOException("Préchargement dans un buffer pool plein : " + started + " page(s)");
+        }
+        bm.FlushBuffers();
+        WarmupFile.location(config).delete();
+        System.out.println("OK - " + frameCount + " pages préchargées sans défaut, ordre de remplacement conservé");
+        dm.finish();
+    }
+
+    public static void testAnneau() throws IOException {
+        System.out.println("\nTest anneau de frames (parcours en masse)...");
+        
+        DBConfig config = TestDossiers.configDossier("ring");
+        DiskManager dm = new DiskManager(config);
+        BufferManager bm = new BufferManager(config, dm);
+        bm.StopCleaner();
+        int frameCount = config.getBufferCount();
+        
+        // Pages utiles, présentes avant le parcours
+        PageId[] hot = new PageId[frameCount / 2];
+        for (int i = 0; i < hot.length; i++) {
+            hot[i] = dm.allocPage();
+            dm.WritePage(hot[i], new byte[config.getPageSize()]);
+            bm.GetPage(hot[i]);
+            bm.FreePage(hot[i], false);
+        }
+        PageId victim = bm.selectVictimFrame().pageId;
+        
+        // Parcours de 5 fois plus de pages que de frames, dont une modifiée
+        PageId[] scan = new PageId[frameCount * 5];
+        for (int i = 0; i < scan.length; i++) {
+            scan[i] = dm.allocPage();
+            byte[] data = new byte[config.getPageSize()];
+            ByteBuffer.wrap(data).putInt(0, 700 + i);
+            dm.WritePage(scan[i], data);
+        }
+        BufferRing ring = bm.createRing(16);
+        bm.resetHitStatistics();
+        for (int i = 0; i < scan.length; i++) {
+            try (PageHandle page = bm.PinPage(scan[i], ring)) {
+                if (page.getInt(0) != 700 + i) {
+                    throw new IOException("Contenu incorrect lu par l'anneau");
+                }
+                if (i == 0) {
+                    page.putInt(4, 4242);
+                }
+            }
+            // Une page utile relue par le parcours n'est pas promue
+            try (PageHandle page = bm.PinPage(hot[0], ring)) {
+                page.getInt(0);
+            }
+        }
+        
+        // Le parcours n'a occupé que les frames de l'anneau
+        for (PageId pageId : hot) {
+            if (!bm.getPageTable().containsKey(pageId)) {
+                throw new IOException("Page utile chassée par le parcours");
+            }
+        }
+        if (bm.getPageTable().size() != hot.length + ring.size()) {
+            throw new IOException("Pages présentes après le parcours : " + bm.getPageTable().size()
+                    + " au lieu de " + (hot.length + ring.size()));
+        }
+        if (bm.getMissCount() != scan.length) {
+            throw new IOException("Défauts pendant le parcours : " + bm.getMissCount());
+        }
+        // Ordre de remplacement des pages utiles inchangé
+        if (!victim.equals(bm.selectVictimFrame().pageId)) {
+            throw new IOException("État de la politique modifié par le parcours");
+        }
+        // Page modifiée écrite avant la réutilisation de sa frame
+        byte[] data = new byte[config.getPageSize()];
+        dm.ReadPage(scan[0], data);
+        if (ByteBuffer.wrap(data).getInt(4) != 4242) {
+            throw new IOException("Modification perdue à la réutilisation d'une frame de l'anneau");
+        }
+        bm.FlushBuffers();
+        System.out.println("OK - " + scan.length + " pages parcourues dans " + ring.size() + " frames, pages utiles conservées");
+        dm.finish();
+    }
+
+    /**
+     * Les pages remplacées dans les frames de l'anneau entrent dans
+     * l'historique de la politique (listes fantômes d'ARC et de 2Q) : une page
+     * du parcours redemandée juste après est reconnue.
+     */
+    public static void testAnneauHistorique(BufferPolicy policy) throws IOException {
+        System.out.println("\nTest anneau de frames et historique " + policy + "...");
+        
+        DBConfig config = TestDossiers.configDossier("ringhistory");
+        DiskManager dm = new DiskManager(config);
+        BufferManager bm = new BufferManager(config, dm);
+        bm.StopCleaner();
+        bm.SetCurrentReplacementPolicy(policy);
+        
+        PageId[] scan = new PageId[config.getBufferCount() + 2];
+        for (int i = 0; i < scan.length; i++) {
+            scan[i] = dm.allocPage();
+            dm.WritePage(scan[i], new byte[config.getPageSize()]);
+        }
+        BufferRing ring = bm.createRing(16);
+        for (PageId pageId : scan) {
+            try (PageHandle page = bm.PinPage(pageId, ring)) {
+                page.getInt(0);
+            }
+        }
+        
+        // Dernière page remplacée dans une frame de l'anneau : redemandée, elle
+        // est reconnue par l'historique et entre directement parmi les fréquentes
+        PageId last = scan[scan.length - ring.size() - 1];
+        bm.GetPage(last);
+        bm.FreePage(last, false);
+        if (!bm.isFrequentPage(last)) {
+            throw new IOException(policy + " : page remplacée dans l'anneau absente de l'historique");
+        }
+        System.out.println("OK - " + policy + " : pages remplacées dans l'anneau suivies dans l'historique");
+        bm.FlushBuffers();
+        dm.finish();
+    }
+
+    /**
+     * Attend la fin des lectures lancées par WarmUp (pages désépinglées).
+     */
+    private static void awaitLoads(BufferManager bm) {
+        for (Frame frame : bm.getPageTable().values()) {
+            while (frame.pinCount.get() > 0) {
+                Thread.onSpinWait();
+            }
+        }
+    }
 }
@@ -0,0 +1,5 @@
+package bdda;
+
+enum BufferPolicy {
+    LRU, MRU, CLOCK, CLOCKPRO, LRU2, TWOQ, ARC
+}
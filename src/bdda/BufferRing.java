@@ -0,0 +1,69 @@
+package bdda;
+
+/**
+ * Anneau de frames réservé à une opération en masse (parcours complet d'une
+ * relation, insertions en masse), créé par BufferManager.createRing et passé
+ * à PinPage, GetPage, GetPageBuffer et FreePage.
+ *
+ * Une page absente demandée avec l'anneau est chargée dans la plus ancienne
+ * frame de l'anneau si elle contient encore la page que l'anneau y a chargée
+ * et qu'elle n'est plus épinglée (écrite d'abord si elle a été modifiée) ;
+ * sinon dans une frame prise au buffer pool comme pour GetPage, qui entre
+ * dans l'anneau. L'opération n'occupe donc que quelques frames : les pages
+ * utiles du buffer pool restent en place. Chaque chargement est signalé à la
+ * politique de remplacement (son historique des pages remplacées reste
+ * exact), mais pas les accès ni les libérations : une page utile relue par
+ * l'opération n'est pas promue.
+ *
+ * Les pages chargées par l'anneau restent partagées : les autres threads les
+ * trouvent dans la table des pages comme les autres. L'état de l'anneau est
+ * modifié sous le verrou du BufferManager ; il peut donc être utilisé par
+ * plusieurs threads, mais il est prévu pour une seule opération.
+ */
+public final class BufferRing {
+
+    final BufferManager owner;
+    // Frames de l'anneau (-1 : pas encore prise) et page que l'anneau y a chargée
+    final int[] frameIdx;
+    final PageId[] pages;
+    // Prochaine frame à réutiliser
+    int next;
+    // Un anneau par partition (PartitionedBufferManager), null sinon
+    final BufferRing[] parts;
+
+    BufferRing(BufferManager owner, int size) {
+        this.owner = owner;
+        this.frameIdx = new int[size];
+        this.pages = new PageId[size];
+        this.next = 0;
+        this.parts = null;
+        for (int i = 0; i < size; i++) {
+            frameIdx[i] = -1;
+        }
+    }
+
+    /**
+     * @param parts anneau de chaque partition, dans l'ordre des partitions
+     */
+    BufferRing(BufferManager owner, BufferRing[] parts) {
+        this.owner = owner;
+        this.frameIdx = new int[0];
+        this.pages = new PageId[0];
+        this.next = 0;
+        this.parts = parts;
+    }
+
+    /**
+     * @return le nombre maximal de frames de l'anneau
+     */
+    public int size() {
+        if (parts == null) {
+            return frameIdx.length;
+        }
+        int size = 0;
+        for (BufferRing part : parts) {
+            size += part.size();
+        }
+        return size;
+    }
+}
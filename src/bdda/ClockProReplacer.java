@@ -0,0 +1,215 @@
+package bdda;
+
+import java.util.Arrays;
+
+/**
+ * Politique CLOCK-Pro : variante de CLOCK qui distingue les pages chaudes
+ * (réutilisées à court terme) des pages froides, et résiste aux parcours
+ * séquentiels qui chasseraient de la mémoire les pages utiles.
+ *
+ * Une page chargée est froide et « en test ». Si elle est redemandée pendant
+ * son test, elle devient chaude quand l'aiguille froide la rencontre. Si elle
+ * est remplacée pendant son test, son identifiant est gardé dans un historique
+ * de pages sorties (au plus une par frame) : rechargée ensuite, elle revient
+ * directement chaude, et la place réservée aux pages froides augmente.
+ * Quand une page sort de l'historique sans avoir été rechargée, cette place diminue.
+ *
+ * L'aiguille froide ne remplace que des pages froides. L'aiguille chaude
+ * refroidit une page chaude non référencée quand il y a trop de pages chaudes
+ * (plus que le nombre de frames moins la place réservée aux pages froides) ;
+ * au passage, elle termine le test des pages froides qu'elle rencontre.
+ * Chaque aiguille fait au plus deux tours par appel : le coût ne dépend pas
+ * du nombre de frames (en moyenne).
+ */
+class ClockProReplacer implements Replacer {
+
+    private static final long NO_PAGE = -1L;
+
+    private final Frame[] frames;
+    private final boolean[] hot;
+    private final boolean[] referenced;
+    private final boolean[] test;
+    private int handCold;
+    private int handHot;
+    private int hotCount;
+    // Nombre visé de pages froides en mémoire, adapté selon l'historique
+    private int coldTarget;
+
+    // Historique circulaire des pages froides remplacées pendant leur test
+    private final long[] history;
+    private int historyNext;
+    // Clé de page -> position dans l'historique
+    private final PageTable historyIndex;
+
+    ClockProReplacer(Frame[] frames) {
+        int n = frames.length;
+        this.frames = frames;
+        this.hot = new boolean[n];
+        this.referenced = new boolean[n];
+        this.test = new boolean[n];
+        this.handCold = 0;
+        this.handHot = 0;
+        this.hotCount = 0;
+        this.coldTarget = Math.max(1, n / 2);
+        this.history = new long[n];
+        this.historyNext = 0;
+        this.historyIndex = new PageTable(n);
+        Arrays.fill(history, NO_PAGE);
+    }
+
+    @Override
+    public void recordLoad(int frameIdx) {
+        referenced[frameIdx] = false;
+        int pos = historyIndex.remove(PageTable.key(frames[frameIdx].pageId));
+        if (pos >= 0) {
+            // Réutilisée peu après sa sortie : elle aurait dû rester, plus de place aux froides
+            history[pos] = NO_PAGE;
+            coldTarget = Math.min(frames.length - 1, coldTarget + 1);
+            test[frameIdx] = false;
+            makeHot(frameIdx);
+        } else {
+            hot[frameIdx] = false;
+            test[frameIdx] = true;
+        }
+    }
+
+    @Override
+    public void recordAccess(int frameIdx) {
+        referenced[frameIdx] = true;
+    }
+
+    @Override
+    public void recordRelease(int frameIdx) {
+    }
+
+    @Override
+    public boolean isFrequent(int frameIdx) {
+        return hot[frameIdx];
+    }
+
+    @Override
+    public void restoreFrequent(int frameIdx) {
+        test[frameIdx] = false;
+        if (!hot[frameIdx]) {
+            makeHot(frameIdx);
+        }
+    }
+
+    @Override
+    public int selectVictim(long incomingKey) {
+        int n = frames.length;
+        for (int attempt = 0; attempt < 2; attempt++) {
+            for (int steps = 0; steps < 2 * n; steps++) {
+                int f = handCold;
+                handCold = (handCold + 1) % n;
+                if (frames[f].pageId == null || frames[f].pinCount.get() > 0 || hot[f]) {
+                    continue;
+                }
+                if (referenced[f]) {
+                    referenced[f] = false;
+                    if (test[f]) {
+                        test[f] = false;
+                        makeHot(f);
+                    } else {
+                        test[f] = true;
+                    }
+                    continue;
+                }
+                if (test[f]) {
+                    remember(PageTable.key(frames[f].pageId));
+                }
+                test[f] = false;
+                return f;
+            }
+            // Aucune page froide remplaçable : en refroidir une chaude et recommencer
+            if (!coolOne()) {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Rend une page chaude, puis refroidit des pages chaudes s'il y en a trop.
+     */
+    private void makeHot(int frameIdx) {
+        hot[frameIdx] = true;
+        hotCount++;
+        while (hotCount > frames.length - coldTarget) {
+            if (!coolOne()) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Avance l'aiguille chaude jusqu'à une page chaude non épinglée et non
+     * référencée, et la rend froide (sans test). Les bits de référence des
+     * pages chaudes rencontrées sont remis à 0 ; le test des pages froides
+     * rencontrées se termine.
+     *
+     * @return false si aucune page chaude ne peut être refroidie
+     */
+    private boolean coolOne() {
+        int n = frames.length;
+        for (int steps = 0; steps < 2 * n; steps++) {
+            int f = handHot;
+            handHot = (handHot + 1) % n;
+            if (frames[f].pageId == null || frames[f].pinCount.get() > 0) {
+                continue;
+            }
+            if (!hot[f]) {
+                if (test[f] && !referenced[f]) {
+                    // Test terminé sans réutilisation : moins de place aux froides
+                    test[f] = false;
+                    coldTarget = Math.max(1, coldTarget - 1);
+                }
+                continue;
+            }
+            if (referenced[f]) {
+                referenced[f] = false;
+                continue;
+            }
+            hot[f] = false;
+            test[f] = false;
+            hotCount--;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Ajoute une page remplacée pendant son test à l'historique ; la plus
+     * ancienne en sort si l'historique est plein.
+     */
+    private void remember(long key) {
+        long oldest = history[historyNext];
+        if (oldest != NO_PAGE) {
+            historyIndex.remove(oldest);
+            coldTarget = Math.max(1, coldTarget - 1);
+        }
+        history[historyNext] = key;
+        historyIndex.put(key, historyNext);
+        historyNext = (historyNext + 1) % history.length;
+    }
+
+    @Override
+    public int peekVictims(int[] candidates, int max) {
+        // Depuis l'aiguille froide : froides non référencées, froides référencées, puis chaudes
+        int n = frames.length;
+        int count = 0;
+        for (int pass = 0; pass < 3 && count < max; pass++) {
+            for (int steps = 0; steps < n && count < max; steps++) {
+                int f = (handCold + steps) % n;
+                if (frames[f].pageId == null || frames[f].pinCount.get() > 0) {
+                    continue;
+                }
+                int rank = hot[f] ? 2 : (referenced[f] ? 1 : 0);
+                if (rank == pass) {
+                    candidates[count++] = f;
+                }
+            }
+        }
+        return count;
+    }
+}
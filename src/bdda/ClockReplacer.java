@@ -0,0 +1,73 @@
+package bdda;
+
+/**
+ * Politique CLOCK : les frames forment un cercle parcouru par une aiguille.
+ * Chaque frame a un bit de référence, mis à 1 quand sa page est redemandée
+ * alors qu'elle est déjà en mémoire. L'aiguille remet à 0 les bits qu'elle
+ * trouve à 1 (seconde chance) et s'arrête sur la première frame non épinglée
+ * dont le bit est à 0. Une page chargée a son bit à 0 : une page lue une seule
+ * fois (parcours séquentiel) est remplacée avant les pages réutilisées.
+ * Le coût d'un choix ne dépend pas du nombre de frames (en moyenne).
+ */
+class ClockReplacer implements Replacer {
+
+    private final Frame[] frames;
+    private final boolean[] referenced;
+    private int hand;
+
+    ClockReplacer(Frame[] frames) {
+        this.frames = frames;
+        this.referenced = new boolean[frames.length];
+        this.hand = 0;
+    }
+
+    @Override
+    public void recordLoad(int frameIdx) {
+        referenced[frameIdx] = false;
+    }
+
+    @Override
+    public void recordAccess(int frameIdx) {
+        referenced[frameIdx] = true;
+    }
+
+    @Override
+    public void recordRelease(int frameIdx) {
+    }
+
+    @Override
+    public int selectVictim(long incomingKey) {
+        // Deux tours au plus : le premier remet les bits à 0
+        for (int steps = 0; steps < 2 * frames.length; steps++) {
+            int f = hand;
+            hand = (hand + 1) % frames.length;
+            if (frames[f].pageId == null || frames[f].pinCount.get() > 0) {
+                continue;
+            }
+            if (referenced[f]) {
+                referenced[f] = false;
+                continue;
+            }
+            return f;
+        }
+        return -1;
+    }
+
+    @Override
+    public int peekVictims(int[] candidates, int max) {
+        // Depuis l'aiguille : d'abord les frames dont le bit est à 0, puis les autres
+        int count = 0;
+        for (int pass = 0; pass < 2 && count < max; pass++) {
+            for (int steps = 0; steps < frames.length && count < max; steps++) {
+                int f = (hand + steps) % frames.length;
+                if (frames[f].pageId == null || frames[f].pinCount.get() > 0) {
+                    continue;
+                }
+                if (referenced[f] == (pass == 1)) {
+                    candidates[count++] = f;
+                }
+            }
+        }
+        return count;
+    }
+}
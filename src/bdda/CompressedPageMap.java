@@ -0,0 +1,264 @@
+package bdda;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Table de correspondance page -> emplacement d'un fichier de données compressé
+ * (mode dm_compression). Chaque page compressée est rangée dans un emplacement
+ * de taille variable (multiple de GRANULE octets) du fichier DataN.zbin ;
+ * la table donne, pour chaque page, la position et la capacité de son emplacement.
+ * Elle est stockée dans DataN.zmap : un en-tête (nombre de pages allouées,
+ * fin de la zone des emplacements) suivi d'une entrée de 12 octets par page.
+ * Seules les entrées modifiées depuis la dernière sauvegarde sont réécrites.
+ * Le nombre de pages allouées de l'en-tête peut dépasser celui du fichier :
+ * les pages sont réservées par blocs (voir reserve()).
+ */
+class CompressedPageMap {
+
+    /** Les capacités d'emplacement sont des multiples de GRANULE octets. */
+    static final int GRANULE = 16;
+
+    private static final int MAGIC = 0x5A4D4150;
+    private static final int HEADER_SIZE = 16;
+    private static final int ENTRY_SIZE = 12;
+
+    private final File file;
+    // Position de l'emplacement de chaque page, -1 si la page n'a jamais été écrite
+    private long[] offsets;
+    private int[] capacities;
+    private int allocated;
+    // Fin de la zone des emplacements dans DataN.zbin
+    private long slotEnd;
+    // Emplacements libres réutilisables, par capacité
+    private final TreeMap<Integer, ArrayDeque<Long>> freeSlots;
+    // Emplacements libérés depuis la dernière sauvegarde : réutilisables seulement
+    // après flush(), sinon une table sur disque encore ancienne pourrait y pointer
+    private final List<long[]> releasedSlots;
+    private final BitSet dirtyEntries;
+    private boolean headerDirty;
+
+    private CompressedPageMap(File file) {
+        this.file = file;
+        this.offsets = new long[0];
+        this.capacities = new int[0];
+        this.allocated = 0;
+        this.slotEnd = 0;
+        this.freeSlots = new TreeMap<>();
+        this.releasedSlots = new ArrayList<>();
+        this.dirtyEntries = new BitSet();
+        this.headerDirty = false;
+    }
+
+    /**
+     * Charge la table depuis son fichier (table vide s'il n'existe pas) et
+     * reconstruit la liste des emplacements libres à partir des trous entre
+     * les emplacements utilisés.
+     *
+     * @param file fichier DataN.zmap
+     * @param dataLength longueur actuelle du fichier DataN.zbin
+     * @return la table chargée
+     * @throws IOException si erreur de lecture ou si le fichier n'est pas une table valide
+     */
+    static CompressedPageMap load(File file, long dataLength) throws IOException {
+        CompressedPageMap map = new CompressedPageMap(file);
+        map.slotEnd = dataLength;
+
+        if (!file.exists()) {
+            return map;
+        }
+
+        ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+        if (bytes.remaining() < HEADER_SIZE || bytes.getInt(0) != MAGIC) {
+            throw new IOException("Table de pages compressées invalide : " + file.getAbsolutePath());
+        }
+        map.allocated = bytes.getInt(4);
+        map.slotEnd = Math.max(bytes.getLong(8), dataLength);
+
+        int entries = Math.min(map.allocated, (bytes.remaining() - HEADER_SIZE) / ENTRY_SIZE);
+        map.ensureCapacity(map.allocated);
+        Map<Long, Integer> used = new TreeMap<>();
+        for (int i = 0; i < entries; i++) {
+            int pos = HEADER_SIZE + i * ENTRY_SIZE;
+            map.offsets[i] = bytes.getLong(pos);
+            map.capacities[i] = bytes.getInt(pos + 8);
+            if (map.offsets[i] >= 0) {
+                used.put(map.offsets[i], map.capacities[i]);
+            }
+        }
+
+        long cursor = 0;
+        for (Map.Entry<Long, Integer> e : used.entrySet()) {
+            if (e.getKey() > cursor) {
+                map.addFreeSlot(cursor, (int) (e.getKey() - cursor));
+            }
+            cursor = Math.max(cursor, e.getKey() + e.getValue());
+        }
+        if (map.slotEnd > cursor) {
+            // Fin du fichier non référencée (écrite après la dernière sauvegarde)
+            map.addFreeSlot(cursor, (int) Math.min(map.slotEnd - cursor, Integer.MAX_VALUE));
+        }
+        return map;
+    }
+
+    /**
+     * @return le nombre de pages allouées enregistré à la dernière sauvegarde
+     *         ou réservation
+     */
+    synchronized int getAllocated() {
+        return allocated;
+    }
+
+    /**
+     * Enregistre un nombre de pages réservées dans l'en-tête de DataN.zmap
+     * et le force sur le disque, sans écrire les entrées modifiées : après
+     * un arrêt brutal, les pages rendues avant la prochaine réservation ne
+     * sont pas rendues une seconde fois.
+     *
+     * @param reservedPages nombre de pages réservées dans le fichier
+     * @throws IOException si erreur lors de l'écriture
+     */
+    synchronized void reserve(int reservedPages) throws IOException {
+        allocated = reservedPages;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(allocated).putLong(slotEnd).flip();
+            writeFully(channel, header, 0);
+            channel.force(false);
+        }
+        headerDirty = false;
+    }
+
+    /**
+     * @param pageIdx indice de la page
+     * @return la position de l'emplacement de la page, ou -1 si elle n'a jamais été écrite
+     */
+    synchronized long getOffset(int pageIdx) {
+        return (pageIdx < offsets.length) ? offsets[pageIdx] : -1;
+    }
+
+    /**
+     * @param pageIdx indice de la page
+     * @return la capacité de l'emplacement de la page en octets
+     */
+    synchronized int getCapacity(int pageIdx) {
+        return (pageIdx < capacities.length) ? capacities[pageIdx] : 0;
+    }
+
+    /**
+     * Choisit l'emplacement où écrire une page de size octets : son emplacement
+     * actuel s'il est assez grand, sinon un emplacement libre de capacité
+     * suffisante (au plus le double), sinon un nouvel emplacement en fin de fichier.
+     *
+     * @param pageIdx indice de la page
+     * @param size taille à écrire (en-tête compris)
+     * @return la position où écrire la page
+     */
+    synchronized long place(int pageIdx, int size) {
+        ensureCapacity(pageIdx + 1);
+        if (offsets[pageIdx] >= 0 && capacities[pageIdx] >= size) {
+            return offsets[pageIdx];
+        }
+        if (offsets[pageIdx] >= 0) {
+            releasedSlots.add(new long[] { offsets[pageIdx], capacities[pageIdx] });
+        }
+
+        int capacity = (size + GRANULE - 1) / GRANULE * GRANULE;
+        long offset;
+        Map.Entry<Integer, ArrayDeque<Long>> free = freeSlots.ceilingEntry(capacity);
+        if (free != null && free.getKey() <= 2 * capacity) {
+            capacity = free.getKey();
+            offset = free.getValue().poll();
+            if (free.getValue().isEmpty()) {
+                freeSlots.remove(capacity);
+            }
+        } else {
+            offset = slotEnd;
+            slotEnd += capacity;
+            headerDirty = true;
+        }
+
+        offsets[pageIdx] = offset;
+        capacities[pageIdx] = capacity;
+        dirtyEntries.set(pageIdx);
+        return offset;
+    }
+
+    /**
+     * Écrit dans DataN.zmap l'en-tête et les entrées modifiées depuis la dernière
+     * sauvegarde, et les force sur le disque, puis rend réutilisables les
+     * emplacements libérés entre-temps.
+     *
+     * @param allocatedPages nombre de pages allouées dans le fichier
+     * @throws IOException si erreur lors de l'écriture
+     */
+    synchronized void flush(int allocatedPages) throws IOException {
+        if (allocatedPages != allocated) {
+            allocated = allocatedPages;
+            headerDirty = true;
+        }
+        if (!headerDirty && dirtyEntries.isEmpty()) {
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(allocated).putLong(slotEnd).flip();
+            writeFully(channel, header, 0);
+
+            // Entrées modifiées, par suites d'indices consécutifs
+            int start = dirtyEntries.nextSetBit(0);
+            while (start >= 0) {
+                int end = dirtyEntries.nextClearBit(start);
+                ByteBuffer entries = ByteBuffer.allocate((end - start) * ENTRY_SIZE);
+                for (int i = start; i < end; i++) {
+                    entries.putLong(offsets[i]).putInt(capacities[i]);
+                }
+                entries.flip();
+                writeFully(channel, entries, HEADER_SIZE + (long) start * ENTRY_SIZE);
+                start = dirtyEntries.nextSetBit(end);
+            }
+            channel.force(false);
+        }
+
+        dirtyEntries.clear();
+        headerDirty = false;
+        for (long[] slot : releasedSlots) {
+            addFreeSlot(slot[0], (int) slot[1]);
+        }
+        releasedSlots.clear();
+    }
+
+    private void ensureCapacity(int pages) {
+        if (pages > offsets.length) {
+            int oldLength = offsets.length;
+            int newLength = Math.max(pages, oldLength * 2);
+            offsets = Arrays.copyOf(offsets, newLength);
+            capacities = Arrays.copyOf(capacities, newLength);
+            Arrays.fill(offsets, oldLength, newLength, -1L);
+        }
+    }
+
+    private void addFreeSlot(long offset, int capacity) {
+        if (capacity >= GRANULE) {
+            freeSlots.computeIfAbsent(capacity, k -> new ArrayDeque<>()).add(offset);
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer src, long offset) throws IOException {
+        while (src.hasRemaining()) {
+            offset += channel.write(src, offset);
+        }
+    }
+}
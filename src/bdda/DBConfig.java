@@ -4,17 +4,35 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
-
-enum BufferPolicy {
-    LRU, MRU
-}
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 public class DBConfig {
     private String dbpath;
+    private List<String> dm_datapaths = new ArrayList<>();
     private int pagesize;
     private int dm_maxfilecount;
+    private long dm_maxfilesize = Long.MAX_VALUE;
+    private int dm_extentpages = 64;
+    private boolean dm_sparseextents = false;
+    private boolean dm_compression = false;
     private int bm_buffercount;
     private BufferPolicy bm_policy;
+    private int dm_maxopenfiles = 16;
+    private DiskIOMode dm_iomode = DiskIOMode.STANDARD;
+    private int dm_ioqueuedepth = 8;
+    private boolean wal_enabled = false;
+    private boolean bm_parallelflush = false;
+    private boolean bm_offheap = false;
+    private int bm_cleanpercent = 0;
+    private int bm_cleanrate = 1000;
+    private int bm_readahead = 0;
+    private int bm_prefetchlimit = 16;
+    private int bm_partitions = 1;
+    private boolean bm_borrowframes = false;
+    private boolean bm_warmup = false;
+    private long wal_segmentsize = 16 * 1024 * 1024;
     
     /**
      * Constructeur complet de la classe DBConfig
@@ -38,6 +56,33 @@ public class DBConfig {
         return this.dbpath;
     }
 
+    /**
+     * Récupère les dossiers où sont répartis les fichiers de données
+     * (DataN.bin est dans le dossier N modulo leur nombre)
+     * @return les dossiers de dm_datapaths, ou le seul dbpath s'il n'y en a pas
+     */
+    public List<String> getDataPaths() {
+        if (dm_datapaths.isEmpty()) {
+            return Collections.singletonList(dbpath);
+        }
+        return Collections.unmodifiableList(dm_datapaths);
+    }
+
+    /**
+     * Modifie les dossiers où sont répartis les fichiers de données, par exemple
+     * un par disque. Le journal et les autres fichiers restent dans dbpath.
+     * L'ordre des dossiers ne doit plus changer une fois la base créée.
+     * @param dm_datapaths liste des dossiers (vide pour tout mettre dans dbpath)
+     */
+    public void setDataPaths(List<String> dm_datapaths) {
+        for (String path : dm_datapaths) {
+            if (path == null || path.isEmpty()) {
+                throw new IllegalArgumentException("Dossier de données vide dans dm_datapaths");
+            }
+        }
+        this.dm_datapaths = new ArrayList<>(dm_datapaths);
+    }
+
     /**
      * Récupère la taille des pages de la base de données
      * @return la taille des pages en octets
@@ -58,6 +103,331 @@ public class DBConfig {
         return bm_policy;
     }
 
+    /**
+     * Récupère le nombre maximal de fichiers de données gardés ouverts par le DiskManager
+     * @return le nombre maximal de canaux ouverts simultanément (16 par défaut)
+     */
+    public int getMaxOpenFiles() {
+        return dm_maxopenfiles;
+    }
+
+    /**
+     * Modifie le nombre maximal de fichiers de données gardés ouverts par le DiskManager
+     * @param dm_maxopenfiles le nombre maximal de canaux ouverts simultanément (au moins 1)
+     */
+    public void setMaxOpenFiles(int dm_maxopenfiles) {
+        if (dm_maxopenfiles < 1) {
+            throw new IllegalArgumentException("dm_maxopenfiles doit être au moins 1 : " + dm_maxopenfiles);
+        }
+        this.dm_maxopenfiles = dm_maxopenfiles;
+    }
+
+    /**
+     * Récupère la taille maximale d'un fichier de données
+     * @return la taille maximale d'un fichier DataN.bin en octets (illimitée par défaut)
+     */
+    public long getMaxFileSize() {
+        return dm_maxfilesize;
+    }
+
+    /**
+     * Modifie la taille maximale d'un fichier de données
+     * @param dm_maxfilesize la taille maximale d'un fichier DataN.bin en octets
+     */
+    public void setMaxFileSize(long dm_maxfilesize) {
+        if (dm_maxfilesize <= 0) {
+            throw new IllegalArgumentException("dm_maxfilesize doit être positif : " + dm_maxfilesize);
+        }
+        this.dm_maxfilesize = dm_maxfilesize;
+    }
+
+    /**
+     * Récupère le nombre de pages ajoutées à la fois quand un fichier de données est étendu
+     * @return la taille d'un bloc d'extension en pages (64 par défaut)
+     */
+    public int getExtentPages() {
+        return dm_extentpages;
+    }
+
+    /**
+     * Modifie le nombre de pages ajoutées à la fois quand un fichier de données est étendu
+     * @param dm_extentpages la taille d'un bloc d'extension en pages (au moins 1)
+     */
+    public void setExtentPages(int dm_extentpages) {
+        if (dm_extentpages < 1) {
+            throw new IllegalArgumentException("dm_extentpages doit être au moins 1 : " + dm_extentpages);
+        }
+        this.dm_extentpages = dm_extentpages;
+    }
+
+    /**
+     * Indique si les blocs d'extension sont créés creux (sans écrire de zéros)
+     * @return true pour des fichiers creux, false pour remplir les blocs de zéros (par défaut)
+     */
+    public boolean isSparseExtents() {
+        return dm_sparseextents;
+    }
+
+    /**
+     * Choisit si les blocs d'extension sont créés creux (sans écrire de zéros)
+     * @param dm_sparseextents true pour des fichiers creux
+     */
+    public void setSparseExtents(boolean dm_sparseextents) {
+        this.dm_sparseextents = dm_sparseextents;
+    }
+
+    /**
+     * Indique si les pages sont compressées sur le disque (fichiers DataN.zbin)
+     * @return true si les pages sont compressées, false sinon (par défaut)
+     */
+    public boolean isCompression() {
+        return dm_compression;
+    }
+
+    /**
+     * Active ou non la compression des pages sur le disque. Les fichiers
+     * compressés (DataN.zbin) et non compressés (DataN.bin) sont distincts :
+     * changer ce paramètre ne convertit pas une base existante.
+     * @param dm_compression true pour compresser les pages
+     */
+    public void setCompression(boolean dm_compression) {
+        this.dm_compression = dm_compression;
+    }
+
+    /**
+     * Indique si FlushBuffers écrit les pages de chaque fichier de données en parallèle
+     * @return true pour une écriture par fichier en parallèle, false sinon (par défaut)
+     */
+    public boolean isParallelFlush() {
+        return bm_parallelflush;
+    }
+
+    /**
+     * Choisit si FlushBuffers écrit les pages de chaque fichier de données en parallèle
+     * @param bm_parallelflush true pour une écriture par fichier en parallèle
+     */
+    public void setParallelFlush(boolean bm_parallelflush) {
+        this.bm_parallelflush = bm_parallelflush;
+    }
+
+    /**
+     * Indique si les frames du buffer pool sont découpées dans une zone de mémoire hors du tas Java
+     * @return true pour une zone hors du tas (pages accessibles par GetPageBuffer seulement), false sinon (par défaut)
+     */
+    public boolean isOffHeap() {
+        return bm_offheap;
+    }
+
+    /**
+     * Choisit si les frames du buffer pool sont découpées dans une zone de mémoire hors du tas Java
+     * @param bm_offheap true pour une zone hors du tas
+     */
+    public void setOffHeap(boolean bm_offheap) {
+        this.bm_offheap = bm_offheap;
+    }
+
+    /**
+     * Indique si les modifications de pages sont journalisées (journal LogN.wal)
+     * @return true si le journal est activé, false sinon (par défaut)
+     */
+    public boolean isWalEnabled() {
+        return wal_enabled;
+    }
+
+    /**
+     * Active ou non le journal des écritures
+     * @param wal_enabled true pour journaliser les modifications de pages
+     */
+    public void setWalEnabled(boolean wal_enabled) {
+        this.wal_enabled = wal_enabled;
+    }
+
+    /**
+     * Récupère la taille maximale d'un segment du journal
+     * @return la taille en octets (16 Mo par défaut)
+     */
+    public long getWalSegmentSize() {
+        return wal_segmentsize;
+    }
+
+    /**
+     * Modifie la taille maximale d'un segment du journal
+     * @param wal_segmentsize taille en octets (au moins 4096)
+     */
+    public void setWalSegmentSize(long wal_segmentsize) {
+        if (wal_segmentsize < 4096) {
+            throw new IllegalArgumentException("wal_segmentsize doit être au moins 4096 : " + wal_segmentsize);
+        }
+        this.wal_segmentsize = wal_segmentsize;
+    }
+
+    /**
+     * Récupère le mode d'entrées/sorties du DiskManager
+     * @return STANDARD (lectures/écritures explicites, par défaut), MMAP (fichiers projetés en mémoire)
+     *         ou DIRECT (O_DIRECT, sans le cache du système, si le système de fichiers l'accepte)
+     */
+    public DiskIOMode getIOMode() {
+        return dm_iomode;
+    }
+
+    /**
+     * Modifie le mode d'entrées/sorties du DiskManager
+     * @param dm_iomode le mode d'entrées/sorties à utiliser
+     */
+    public void setIOMode(DiskIOMode dm_iomode) {
+        if (dm_iomode == null) {
+            throw new IllegalArgumentException("Mode d'entrées/sorties invalide.");
+        }
+        this.dm_iomode = dm_iomode;
+    }
+
+    /**
+     * Récupère le nombre maximal d'entrées/sorties asynchrones en cours simultanément
+     * @return la profondeur de file des entrées/sorties asynchrones (8 par défaut)
+     */
+    public int getIOQueueDepth() {
+        return dm_ioqueuedepth;
+    }
+
+    /**
+     * Modifie le nombre maximal d'entrées/sorties asynchrones en cours simultanément
+     * @param dm_ioqueuedepth la profondeur de file des entrées/sorties asynchrones (au moins 1)
+     */
+    public void setIOQueueDepth(int dm_ioqueuedepth) {
+        if (dm_ioqueuedepth < 1) {
+            throw new IllegalArgumentException("dm_ioqueuedepth doit être au moins 1 : " + dm_ioqueuedepth);
+        }
+        this.dm_ioqueuedepth = dm_ioqueuedepth;
+    }
+
+    /**
+     * Récupère la part des frames remplaçables que le nettoyeur de pages garde propres
+     * @return un pourcentage des frames, compté dans l'ordre de remplacement (0 : pas de nettoyeur, par défaut)
+     */
+    public int getCleanPercent() {
+        return bm_cleanpercent;
+    }
+
+    /**
+     * Modifie la part des frames remplaçables que le nettoyeur de pages garde propres
+     * @param bm_cleanpercent pourcentage entre 0 (pas de nettoyeur) et 100
+     */
+    public void setCleanPercent(int bm_cleanpercent) {
+        if (bm_cleanpercent < 0 || bm_cleanpercent > 100) {
+            throw new IllegalArgumentException("bm_cleanpercent doit être entre 0 et 100 : " + bm_cleanpercent);
+        }
+        this.bm_cleanpercent = bm_cleanpercent;
+    }
+
+    /**
+     * Récupère le débit maximal d'écriture du nettoyeur de pages
+     * @return le nombre maximal de pages écrites par seconde (1000 par défaut)
+     */
+    public int getCleanRate() {
+        return bm_cleanrate;
+    }
+
+    /**
+     * Modifie le débit maximal d'écriture du nettoyeur de pages
+     * @param bm_cleanrate nombre maximal de pages écrites par seconde (au moins 1)
+     */
+    public void setCleanRate(int bm_cleanrate) {
+        if (bm_cleanrate < 1) {
+            throw new IllegalArgumentException("bm_cleanrate doit être au moins 1 : " + bm_cleanrate);
+        }
+        this.bm_cleanrate = bm_cleanrate;
+    }
+
+    /**
+     * Récupère la taille maximale de la fenêtre de lecture anticipée
+     * @return le nombre maximal de pages lues à l'avance par flux séquentiel (0 : pas de lecture anticipée, par défaut)
+     */
+    public int getReadAhead() {
+        return bm_readahead;
+    }
+
+    /**
+     * Modifie la taille maximale de la fenêtre de lecture anticipée
+     * @param bm_readahead nombre maximal de pages lues à l'avance par flux séquentiel (0 pour désactiver)
+     */
+    public void setReadAhead(int bm_readahead) {
+        if (bm_readahead < 0) {
+            throw new IllegalArgumentException("bm_readahead ne peut pas être négatif : " + bm_readahead);
+        }
+        this.bm_readahead = bm_readahead;
+    }
+
+    /**
+     * Récupère le nombre maximal de frames occupées par des pages lues à l'avance et pas encore demandées
+     * @return le nombre maximal de frames (16 par défaut, au plus la moitié des frames en pratique)
+     */
+    public int getPrefetchLimit() {
+        return bm_prefetchlimit;
+    }
+
+    /**
+     * Modifie le nombre maximal de frames occupées par des pages lues à l'avance et pas encore demandées
+     * @param bm_prefetchlimit nombre maximal de frames (au moins 1)
+     */
+    public void setPrefetchLimit(int bm_prefetchlimit) {
+        if (bm_prefetchlimit < 1) {
+            throw new IllegalArgumentException("bm_prefetchlimit doit être au moins 1 : " + bm_prefetchlimit);
+        }
+        this.bm_prefetchlimit = bm_prefetchlimit;
+    }
+
+    /**
+     * Récupère le nombre de partitions du buffer pool (PartitionedBufferManager)
+     * @return le nombre de partitions (1 par défaut)
+     */
+    public int getPartitionCount() {
+        return bm_partitions;
+    }
+
+    /**
+     * Modifie le nombre de partitions du buffer pool (PartitionedBufferManager)
+     * @param bm_partitions nombre de partitions (au moins 1)
+     */
+    public void setPartitionCount(int bm_partitions) {
+        if (bm_partitions < 1) {
+            throw new IllegalArgumentException("bm_partitions doit être au moins 1 : " + bm_partitions);
+        }
+        this.bm_partitions = bm_partitions;
+    }
+
+    /**
+     * Indique si une partition saturée peut emprunter des frames aux autres partitions
+     * @return true si l'emprunt est autorisé, false sinon (par défaut)
+     */
+    public boolean isBorrowFrames() {
+        return bm_borrowframes;
+    }
+
+    /**
+     * Choisit si une partition saturée peut emprunter des frames aux autres partitions
+     * @param bm_borrowframes true pour autoriser l'emprunt
+     */
+    public void setBorrowFrames(boolean bm_borrowframes) {
+        this.bm_borrowframes = bm_borrowframes;
+    }
+
+    /**
+     * Indique si BufferManager.Shutdown enregistre les pages présentes (bm.warm)
+     * pour les recharger au démarrage suivant (BufferManager.WarmUp)
+     * @return true si l'enregistrement est activé, false sinon (par défaut)
+     */
+    public boolean isWarmup() {
+        return bm_warmup;
+    }
+
+    /**
+     * Active ou désactive l'enregistrement des pages présentes à l'arrêt
+     * @param bm_warmup true pour enregistrer les pages présentes
+     */
+    public void setWarmup(boolean bm_warmup) {
+        this.bm_warmup = bm_warmup;
+    }
+
     /**
      * Charge la configuration complète de la base de données depuis un fichier
      * @param fichier_config le fichier de configuration à lire
@@ -68,10 +438,29 @@ public class DBConfig {
         BufferedReader reader = new BufferedReader(new FileReader(fichier_config));
         String line  = reader.readLine();
         String dbpath = null;
+        List<String> dm_datapaths = new ArrayList<>();
         int pagesize = 0;
         int dm_maxfilecount = 0;
         int bm_buffercount = 0;
         BufferPolicy bm_Policy = null;
+        int dm_maxopenfiles = 0;
+        long dm_maxfilesize = 0;
+        int dm_extentpages = 0;
+        String dm_sparseextents = null;
+        String dm_compression = null;
+        String wal_enabled = null;
+        String bm_parallelflush = null;
+        String bm_offheap = null;
+        int bm_cleanpercent = -1;
+        int bm_cleanrate = 0;
+        int bm_readahead = -1;
+        int bm_prefetchlimit = 0;
+        int bm_partitions = 0;
+        String bm_borrowframes = null;
+        String bm_warmup = null;
+        long wal_segmentsize = 0;
+        DiskIOMode dm_iomode = null;
+        int dm_ioqueuedepth = 0;
         
         while(line != null) {
             if(line.startsWith("dbpath = '")) {
@@ -79,6 +468,15 @@ public class DBConfig {
                 int end = line.indexOf("'", start + 1);
                 dbpath = line.substring(start + 1, end);
             }
+            else if(line.startsWith("dm_datapaths = '")) {
+                // Liste de dossiers entre apostrophes, séparés par des virgules
+                int start = line.indexOf("'");
+                while (start >= 0) {
+                    int end = line.indexOf("'", start + 1);
+                    dm_datapaths.add(line.substring(start + 1, end));
+                    start = line.indexOf("'", end + 1);
+                }
+            }
             else if (line.startsWith("pagesize = ")) {
                 String value = line.substring("pagesize = ".length()).trim();
                 pagesize = Integer.parseInt(value);
@@ -97,12 +495,135 @@ public class DBConfig {
                 String value = line.substring("bm_buffercount = ".length()).trim();
                 bm_buffercount = Integer.parseInt(value);
             }
+            else if(line.startsWith("dm_maxopenfiles = ")) {
+                String value = line.substring("dm_maxopenfiles = ".length()).trim();
+                dm_maxopenfiles = Integer.parseInt(value);
+            }
+            else if(line.startsWith("dm_maxfilesize = ")) {
+                String value = line.substring("dm_maxfilesize = ".length()).trim();
+                dm_maxfilesize = Long.parseLong(value);
+            }
+            else if(line.startsWith("dm_extentpages = ")) {
+                String value = line.substring("dm_extentpages = ".length()).trim();
+                dm_extentpages = Integer.parseInt(value);
+            }
+            else if(line.startsWith("dm_sparseextents = ")) {
+                dm_sparseextents = line.substring("dm_sparseextents = ".length()).trim();
+            }
+            else if(line.startsWith("dm_compression = ")) {
+                dm_compression = line.substring("dm_compression = ".length()).trim();
+            }
+            else if(line.startsWith("bm_parallelflush = ")) {
+                bm_parallelflush = line.substring("bm_parallelflush = ".length()).trim();
+            }
+            else if(line.startsWith("bm_offheap = ")) {
+                bm_offheap = line.substring("bm_offheap = ".length()).trim();
+            }
+            else if(line.startsWith("bm_cleanpercent = ")) {
+                String value = line.substring("bm_cleanpercent = ".length()).trim();
+                bm_cleanpercent = Integer.parseInt(value);
+            }
+            else if(line.startsWith("bm_cleanrate = ")) {
+                String value = line.substring("bm_cleanrate = ".length()).trim();
+                bm_cleanrate = Integer.parseInt(value);
+            }
+            else if(line.startsWith("bm_readahead = ")) {
+                String value = line.substring("bm_readahead = ".length()).trim();
+                bm_readahead = Integer.parseInt(value);
+            }
+            else if(line.startsWith("bm_prefetchlimit = ")) {
+                String value = line.substring("bm_prefetchlimit = ".length()).trim();
+                bm_prefetchlimit = Integer.parseInt(value);
+            }
+            else if(line.startsWith("bm_partitions = ")) {
+                String value = line.substring("bm_partitions = ".length()).trim();
+                bm_partitions = Integer.parseInt(value);
+            }
+            else if(line.startsWith("bm_borrowframes = ")) {
+                bm_borrowframes = line.substring("bm_borrowframes = ".length()).trim();
+            }
+            else if(line.startsWith("bm_warmup = ")) {
+                bm_warmup = line.substring("bm_warmup = ".length()).trim();
+            }
+            else if(line.startsWith("wal_enabled = ")) {
+                wal_enabled = line.substring("wal_enabled = ".length()).trim();
+            }
+            else if(line.startsWith("wal_segmentsize = ")) {
+                String value = line.substring("wal_segmentsize = ".length()).trim();
+                wal_segmentsize = Long.parseLong(value);
+            }
+            else if(line.startsWith("dm_ioqueuedepth = ")) {
+                String value = line.substring("dm_ioqueuedepth = ".length()).trim();
+                dm_ioqueuedepth = Integer.parseInt(value);
+            }
+            else if(line.startsWith("dm_iomode = '")) {
+                int start = line.indexOf("'");
+                int end = line.indexOf("'", start + 1);
+                dm_iomode = DiskIOMode.valueOf(line.substring(start + 1, end).toUpperCase());
+            }
             line = reader.readLine();
         }
         
         reader.close();
         if (dbpath != null && pagesize > 0 && dm_maxfilecount > 0 && bm_Policy != null && bm_buffercount > 0) {
-            return new DBConfig(dbpath, pagesize, dm_maxfilecount, bm_buffercount, bm_Policy);
+            DBConfig config = new DBConfig(dbpath, pagesize, dm_maxfilecount, bm_buffercount, bm_Policy);
+            // Paramètres optionnels : valeur par défaut si absents du fichier
+            config.setDataPaths(dm_datapaths);
+            if (dm_maxopenfiles > 0) {
+                config.setMaxOpenFiles(dm_maxopenfiles);
+            }
+            if (dm_maxfilesize > 0) {
+                config.setMaxFileSize(dm_maxfilesize);
+            }
+            if (dm_extentpages > 0) {
+                config.setExtentPages(dm_extentpages);
+            }
+            if (dm_sparseextents != null) {
+                config.setSparseExtents(Boolean.parseBoolean(dm_sparseextents));
+            }
+            if (dm_compression != null) {
+                config.setCompression(Boolean.parseBoolean(dm_compression));
+            }
+            if (bm_parallelflush != null) {
+                config.setParallelFlush(Boolean.parseBoolean(bm_parallelflush));
+            }
+            if (bm_offheap != null) {
+                config.setOffHeap(Boolean.parseBoolean(bm_offheap));
+            }
+            if (bm_cleanpercent >= 0) {
+                config.setCleanPercent(bm_cleanpercent);
+            }
+            if (bm_cleanrate > 0) {
+                config.setCleanRate(bm_cleanrate);
+            }
+            if (bm_readahead >= 0) {
+                config.setReadAhead(bm_readahead);
+            }
+            if (bm_prefetchlimit > 0) {
+                config.setPrefetchLimit(bm_prefetchlimit);
+            }
+            if (bm_partitions > 0) {
+                config.setPartitionCount(bm_partitions);
+            }
+            if (bm_borrowframes != null) {
+                config.setBorrowFrames(Boolean.parseBoolean(bm_borrowframes));
+            }
+            if (bm_warmup != null) {
+                config.setWarmup(Boolean.parseBoolean(bm_warmup));
+            }
+            if (wal_enabled != null) {
+                config.setWalEnabled(Boolean.parseBoolean(wal_enabled));
+            }
+            if (wal_segmentsize > 0) {
+                config.setWalSegmentSize(wal_segmentsize);
+            }
+            if (dm_iomode != null) {
+                config.setIOMode(dm_iomode);
+            }
+            if (dm_ioqueuedepth > 0) {
+                config.setIOQueueDepth(dm_ioqueuedepth);
+            }
+            return config;
         }
 
         return null;
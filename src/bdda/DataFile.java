@@ -0,0 +1,64 @@
+package bdda;
+
+import java.io.File;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * État d'un fichier de données DataN.bin tel que vu par le DiskManager.
+ * Conserve la longueur connue du fichier (pour éviter un appel système
+ * à chaque accès) et le canal ouvert tant que le fichier reste dans
+ * le cache de fichiers ouverts du DiskManager.
+ */
+class DataFile {
+
+    /** Indice du fichier (le x dans DataX.bin). */
+    final int fileIdx;
+
+    /** Chemin du fichier sur le disque. */
+    final File file;
+
+    /** Canal ouvert sur le fichier, ou null s'il a été fermé. */
+    FileChannel channel;
+
+    /** Longueur du fichier en octets, ou -1 tant qu'elle n'est pas connue. */
+    long length;
+
+    /**
+     * Nombre de pages allouées dans le fichier. Au-delà, jusqu'à length,
+     * se trouvent les pages pré-étendues pas encore distribuées par allocPage().
+     */
+    volatile int allocated;
+
+    /** Projection en mémoire du fichier en mode MMAP (null sinon ou si pas encore projeté). */
+    volatile MappedByteBuffer mapping;
+
+    /** Carte des pages libres du fichier, ou null tant qu'elle n'a pas été chargée. */
+    FreeSpaceMap fsm;
+
+    /** Table des emplacements des pages en mode dm_compression (null sinon ou tant que le fichier n'a pas été ouvert). */
+    CompressedPageMap pageMap;
+
+    /** true si le canal a été ouvert avec O_DIRECT (mode DIRECT accepté par le système de fichiers). */
+    boolean direct;
+
+    /** Taille de bloc du système de fichiers, à laquelle sont alignées les entrées/sorties directes. */
+    int blockSize;
+
+    /** Nombre d'opérations en cours sur le canal (un canal utilisé n'est jamais fermé). */
+    int users;
+
+    DataFile(int fileIdx, File file) {
+        this.fileIdx = fileIdx;
+        this.file = file;
+        this.channel = null;
+        this.length = -1;
+        this.allocated = 0;
+        this.mapping = null;
+        this.fsm = null;
+        this.pageMap = null;
+        this.direct = false;
+        this.blockSize = 1;
+        this.users = 0;
+    }
+}
@@ -0,0 +1,5 @@
+package bdda;
+
+enum DiskIOMode {
+    STANDARD, MMAP, DIRECT
+}
@@ -1,32 +1,75 @@
 package bdda;
 
+import com.sun.nio.file.ExtendedOpenOption;
+
 import java.io.BufferedReader;
-import java.io.BufferedWriter;
+import java.io.EOFException;
 import java.io.File;
 import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.io.RandomAccessFile;
-import java.util.LinkedList;
-import java.util.Queue;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
 
 public class DiskManager {
     
     private DBConfig config;
-    private Queue<PageId> freePages;
+    private DataFile[] dataFiles;
+    // Fichiers dont le canal est ouvert, du moins récemment utilisé au plus récent
+    private LinkedHashMap<Integer, DataFile> openFiles;
+    // Premier fichier susceptible d'avoir encore de la place pour une nouvelle page
+    private int allocFileIdx;
+    // Premier fichier susceptible de contenir une page désallouée
+    private int freeFileIdx;
+    // Exécuteurs des entrées/sorties asynchrones, un par dossier de données,
+    // chacun créé à la première utilisation
+    private ThreadPoolExecutor[] ioExecutors;
+    // Nombre d'entrées/sorties asynchrones soumises et pas encore terminées
+    private int pendingIO;
+    private final Object ioLock = new Object();
+    // Buffer intermédiaire aligné, par thread, pour les entrées/sorties directes
+    private static final ThreadLocal<ByteBuffer> alignedBuffer = new ThreadLocal<>();
+    // Buffers de travail, par thread, pour la compression des pages (page, emplacement)
+    private static final ThreadLocal<byte[][]> compressionBuffers = ThreadLocal.withInitial(() -> new byte[2][0]);
+    // Compteurs de la compression des pages
+    private final LongAdder uncompressedBytes = new LongAdder();
+    private final LongAdder compressedBytes = new LongAdder();
+    private final LongAdder compressNanos = new LongAdder();
+    private final LongAdder decompressNanos = new LongAdder();
+    // Journal des écritures (wal_enabled), null s'il est désactivé
+    private LogManager logManager;
 
     /**
      * Constructeur du DiskManager.
-     * Initialise le gestionnaire avec la configuration fournie et
-     * crée une queue vide pour les pages libres.
+     * Initialise le gestionnaire avec la configuration fournie ;
+     * les cartes de pages libres sont chargées à la demande.
      * 
      * @param config configuration de la base de données contenant
      *               le chemin, la taille des pages et le nombre max de fichiers
      */
     public DiskManager(DBConfig config) throws IOException {
         this.config = config;
-        this.freePages = new LinkedList<>();
+        this.dataFiles = new DataFile[config.getMaxFileCount()];
+        this.openFiles = new LinkedHashMap<>(16, 0.75f, true);
+        this.allocFileIdx = 0;
+        this.freeFileIdx = 0;
+        this.ioExecutors = new ThreadPoolExecutor[config.getDataPaths().size()];
         this.Init();
     }
 
@@ -38,37 +81,62 @@ public class DiskManager {
     public DBConfig getConfig() {
         return config;
     }
+
+    /**
+     * Retourne le journal des écritures de la base.
+     * 
+     * @return le journal, ou null si wal_enabled est désactivé
+     */
+    public LogManager getLogManager() {
+        return logManager;
+    }
     
     /**
      * Alloue une nouvelle page pour stockage.
-     * Si une page précédemment désallouée est disponible, elle est réutilisée.
-     * Sinon, une nouvelle page est créée à la fin d'un fichier existant
-     * ou dans un nouveau fichier si nécessaire.
+     * Si une page précédemment désallouée est disponible, elle est réutilisée
+     * (celle du premier fichier qui en contient, d'après sa carte de pages libres).
+     * Sinon, une nouvelle page est prise à la fin du premier fichier qui n'a pas
+     * atteint dm_maxfilesize, en passant au fichier suivant (Data1.bin, Data2.bin...)
+     * quand il est plein. Les fichiers sont étendus par blocs de dm_extentpages pages :
+     * la plupart des allocations ne font donc aucune entrée/sortie. En mode
+     * compressé, une page n'occupe de place qu'à sa première écriture : le
+     * fichier n'est pas étendu, mais les pages sont réservées par blocs de
+     * dm_extentpages dans la table des pages compressées avant d'être rendues.
      * 
      * @return PageId identifiant unique de la page allouée
-     * @throws IOException si impossible de créer le fichier ou d'écrire la page,
+     * @throws IOException si impossible de créer ou d'étendre le fichier,
      *                     ou si la limite maximale de fichiers est atteinte
      */
-    public PageId allocPage() throws IOException {
+    public synchronized PageId allocPage() throws IOException {
+
+        int maxFiles = config.getMaxFileCount(); 
 
-        if (!freePages.isEmpty()) {
-            return freePages.poll();
+        for (; freeFileIdx < maxFiles; freeFileIdx++) {
+            int pageIdx = getFreeSpaceMap(freeFileIdx).takeFree();
+            if (pageIdx >= 0) {
+                return new PageId(freeFileIdx, pageIdx);
+            }
         }
         
-        int maxFiles = config.getMaxFileCount(); 
+        int maxPages = getMaxPagesPerFile();
         
-        for (int fileIdx = 0; fileIdx < maxFiles; fileIdx++) {
-            File f = new File(config.getPath(), "Data" + fileIdx + ".bin");
-            if (!f.exists()) {
-                f.createNewFile();
-            }
+        for (; allocFileIdx < maxFiles; allocFileIdx++) {
+            DataFile df = acquire(allocFileIdx, true);
 
-            try (RandomAccessFile raf = new RandomAccessFile(f, "rw")) {
-                long pageIdx = raf.length() / config.getPageSize();
-                raf.seek(raf.length());
-                // Écrit une page vide (remplie de zéros) pour réserver l'espace
-                raf.write(new byte[config.getPageSize()]);
-                return new PageId(fileIdx, (int) pageIdx);
+            try {
+                if (df.allocated >= maxPages) {
+                    continue;
+                }
+                if (df.pageMap == null && (long) (df.allocated + 1) * config.getPageSize() > df.length) {
+                    extend(df, maxPages);
+                }
+                if (df.pageMap != null && df.allocated >= df.pageMap.getAllocated()) {
+                    // Une page réservée mais jamais écrite n'occupe pas de place
+                    df.pageMap.reserve(Math.min(df.allocated + config.getExtentPages(), maxPages));
+                }
+                return new PageId(allocFileIdx, df.allocated++);
+            } finally {
+                release(df);
             }
         }
         
@@ -76,18 +144,95 @@ public class DiskManager {
     }
 
     /**
-     * Désalloue une page en l'ajoutant à la liste des pages libres.
-     * La page pourra être réutilisée lors du prochain appel à allocPage().
-     * Vérifie que la page existe avant de la désallouer.
+     * Nombre maximal de pages dans un fichier de données, d'après dm_maxfilesize.
+     * 
+     * @return le nombre de pages par fichier (au moins 1)
+     */
+    private int getMaxPagesPerFile() {
+        long maxPages = config.getMaxFileSize() / config.getPageSize();
+        return (int) Math.max(1, Math.min(maxPages, Integer.MAX_VALUE));
+    }
+
+    /**
+     * Pré-étend un fichier de données d'un bloc de dm_extentpages pages
+     * (sans dépasser maxPages), en une seule écriture : soit un bloc de zéros,
+     * soit, si dm_sparseextents est activé, un seul octet à la fin du bloc
+     * (ou un seul bloc en mode DIRECT ; fichier creux). Le nombre de pages
+     * allouées est ensuite enregistré dans la carte de pages libres : après un
+     * arrêt brutal, seules les pages du dernier bloc sont examinées (voir
+     * allocatedPages()).
+     * 
+     * @param df fichier de données (obtenu par acquire())
+     * @param maxPages nombre maximal de pages du fichier
+     * @throws IOException si l'écriture échoue
+     */
+    private void extend(DataFile df, int maxPages) throws IOException {
+        int pageSize = config.getPageSize();
+        long target = Math.min((long) df.allocated + config.getExtentPages(), maxPages) * pageSize;
+
+        if (config.isSparseExtents()) {
+            // En mode DIRECT, l'écriture doit couvrir un bloc aligné
+            int tail = df.direct ? df.blockSize : 1;
+            writeFully(df, ByteBuffer.allocate(tail), target - tail);
+        } else {
+            writeFully(df, ByteBuffer.allocate((int) (target - df.length)), df.length);
+        }
+        df.length = target;
+        remap(df);
+        FreeSpaceMap fsm = getFreeSpaceMap(df.fileIdx);
+        fsm.setAllocated(df.allocated);
+        fsm.flush();
+    }
+
+    /**
+     * Désalloue une page en la marquant libre dans la carte de pages libres
+     * de son fichier. La page pourra être réutilisée lors d'un prochain appel
+     * à allocPage(). Vérifie que la page existe et n'est pas déjà libre.
      * 
      * @param pageId identifiant de la page à désallouer
-     * @throws IOException si la page n'existe pas ou si le fichier est inaccessible
+     * @throws IOException si la page n'existe pas, si elle est déjà désallouée
+     *                     ou si le fichier est inaccessible
+     */
+    public synchronized void DeallocPage(PageId pageId) throws IOException {
+        DataFile df = acquire(pageId.getFileIdx(), false);
+        try {
+            // Vérifie que la page existe
+            getOffset(pageId, df);
+        } finally {
+            release(df);
+        }
+
+        FreeSpaceMap fsm = getFreeSpaceMap(pageId.getFileIdx());
+        if (fsm.isFree(pageId.getPageIdx())) {
+            throw new IOException("Page " + pageId.getPageIdx() + 
+                    " déjà désallouée dans le fichier " + df.file.getName());
+        }
+        fsm.markFree(pageId.getPageIdx());
+        freeFileIdx = Math.min(freeFileIdx, pageId.getFileIdx());
+    }
+
+    /**
+     * Retourne le nombre de pages allouées dans un fichier de données
+     * (par exemple pour ne pas lire par anticipation au-delà de sa fin).
+     * 
+     * @param fileIdx indice du fichier
+     * @return le nombre de pages allouées, 0 si le fichier n'existe pas
+     * @throws IOException si le fichier existe mais ne peut pas être ouvert
      */
-    public void DeallocPage(PageId pageId) throws IOException {
-        File f = getFile(pageId);
-        // Vérifie que la page existe
-        getOffset(pageId, f);
-        freePages.add(pageId);
+    public synchronized int getPageCount(int fileIdx) throws IOException {
+        if (fileIdx < 0 || fileIdx >= dataFiles.length) {
+            return 0;
+        }
+        DataFile df = getDataFile(fileIdx);
+        if (df.channel == null && !df.file.exists()) {
+            return 0;
+        }
+        df = acquire(fileIdx, false);
+        try {
+            return df.allocated;
+        } finally {
+            release(df);
+        }
     }
 
     /**
@@ -105,12 +250,36 @@ public class DiskManager {
             throw new IOException("Taille du buffer (" + buff.length + ") différente de la taille d'une page (" + config.getPageSize() + ")");
         }
 
-        File f = getFile(pageId);
+        ReadPage(pageId, ByteBuffer.wrap(buff));
+    }
+
+    /**
+     * Lit le contenu d'une page dans les octets du buffer compris entre
+     * sa position et sa limite, qui doivent couvrir exactement une page.
+     * La position et la limite du buffer ne sont pas modifiées.
+     * 
+     * @param pageId identifiant de la page à lire
+     * @param buff buffer de destination (config.getPageSize() octets restants)
+     * @throws IOException si la page n'existe pas, le fichier est inaccessible,
+     *                     ou si la taille du buffer est incorrecte
+     */
+    public void ReadPage(PageId pageId, ByteBuffer buff) throws IOException {
+
+        if (buff.remaining() != config.getPageSize()) {
+            throw new IOException("Taille du buffer (" + buff.remaining() + ") différente de la taille d'une page (" + config.getPageSize() + ")");
+        }
+
+        DataFile df = acquire(pageId.getFileIdx(), false);
 
-        try (RandomAccessFile raf = new RandomAccessFile(f, "r")) {
-            long offset = getOffset(pageId, f);
-            raf.seek(offset);
-            raf.readFully(buff);
+        try {
+            long offset = getOffset(pageId, df);
+            if (df.pageMap != null) {
+                readCompressed(df, buff.duplicate(), pageId.getPageIdx());
+            } else {
+                readPage(df, buff.duplicate(), offset);
+            }
+        } finally {
+            release(df);
         }
     }
 
@@ -129,49 +298,626 @@ public class DiskManager {
             throw new IOException("Taille du buffer (" + buff.length + ") différente de la taille d'une page (" + config.getPageSize() + ")");
         }
 
-        File f = getFile(pageId);
+        WritePage(pageId, ByteBuffer.wrap(buff));
+    }
+
+    /**
+     * Écrit dans la page spécifiée les octets du buffer compris entre
+     * sa position et sa limite, qui doivent couvrir exactement une page.
+     * La position et la limite du buffer ne sont pas modifiées.
+     * Avec wal_enabled, l'image de la page est d'abord ajoutée au journal et
+     * forcée : la reprise ne remplace pas cette écriture par une image plus ancienne.
+     * 
+     * @param pageId identifiant de la page où écrire
+     * @param buff buffer contenant les données à écrire (config.getPageSize() octets restants)
+     * @throws IOException si la page n'existe pas, le fichier est inaccessible,
+     *                     ou si la taille du buffer est incorrecte
+     */
+    public void WritePage(PageId pageId, ByteBuffer buff) throws IOException {
+        if (logManager != null) {
+            checkPageSize(buff);
+            checkAllocated(pageId);
+            logManager.flush(logManager.appendPage(pageId, buff));
+        }
+        writeLoggedPage(pageId, buff);
+    }
+
+    /**
+     * Écrit une page comme WritePage, sans l'ajouter au journal : utilisée par
+     * le BufferManager pour une page dont l'image est déjà dans le journal,
+     * forcé jusqu'à elle avant l'appel.
+     * 
+     * @param pageId identifiant de la page où écrire
+     * @param buff buffer contenant les données à écrire (config.getPageSize() octets restants)
+     * @throws IOException si la page n'existe pas, le fichier est inaccessible,
+     *                     ou si la taille du buffer est incorrecte
+     */
+    void writeLoggedPage(PageId pageId, ByteBuffer buff) throws IOException {
+        checkPageSize(buff);
+
+        DataFile df = acquire(pageId.getFileIdx(), false);
+
+        try {
+            long offset = getOffset(pageId, df);
+            if (df.pageMap != null) {
+                writeCompressed(df, buff.duplicate(), pageId.getPageIdx());
+            } else {
+                writePage(df, buff.duplicate(), offset);
+            }
+        } finally {
+            release(df);
+        }
+    }
+
+    /**
+     * Lance la lecture d'une page sans attendre sa fin.
+     * La lecture est faite par l'un des dm_ioqueuedepth threads d'entrées/sorties
+     * du dossier de données du fichier : jusqu'à dm_ioqueuedepth lectures ou
+     * écritures peuvent être en cours en même temps sur chaque dossier (chaque disque),
+     * les suivantes attendent leur tour dans une file. La soumission ne bloque jamais.
+     * Le buffer ne doit pas être utilisé avant la fin de la lecture.
+     * 
+     * @param pageId identifiant de la page à lire
+     * @param buff buffer de destination (config.getPageSize() octets restants)
+     * @return un futur terminé quand la page a été lue, ou terminé en erreur
+     *         avec l'IOException qu'aurait levée ReadPage
+     */
+    public CompletableFuture<Void> ReadPageAsync(PageId pageId, ByteBuffer buff) {
+        return submitIO(() -> ReadPage(pageId, buff), pageId.getFileIdx());
+    }
+
+    /**
+     * Lance l'écriture d'une page sans attendre sa fin (voir ReadPageAsync).
+     * Le buffer ne doit pas être modifié avant la fin de l'écriture.
+     * 
+     * @param pageId identifiant de la page où écrire
+     * @param buff buffer contenant les données à écrire (config.getPageSize() octets restants)
+     * @return un futur terminé quand la page a été écrite, ou terminé en erreur
+     *         avec l'IOException qu'aurait levée WritePage
+     */
+    public CompletableFuture<Void> WritePageAsync(PageId pageId, ByteBuffer buff) {
+        return submitIO(() -> WritePage(pageId, buff), pageId.getFileIdx());
+    }
+
+    /**
+     * Lance l'écriture groupée de plusieurs pages sans attendre sa fin
+     * (voir WritePages et ReadPageAsync). Les pages sont réparties par dossier
+     * de données : chaque dossier écrit les siennes en parallèle des autres.
+     * Les buffers ne doivent pas être modifiés avant la fin de l'écriture.
+     * 
+     * @param pageIds identifiants des pages où écrire
+     * @param buffs buffers contenant les données, dans le même ordre que pageIds
+     * @return un futur terminé quand toutes les pages ont été écrites, ou terminé
+     *         en erreur avec l'IOException qu'aurait levée WritePages
+     */
+    public CompletableFuture<Void> WritePagesAsync(List<PageId> pageIds, List<byte[]> buffs) {
+        return WritePageBuffersAsync(pageIds, wrapAll(buffs));
+    }
+
+    /**
+     * Lance l'écriture groupée de plusieurs pages contenues dans des ByteBuffer
+     * sans attendre sa fin (voir WritePagesAsync et WritePageBuffers).
+     * 
+     * @param pageIds identifiants des pages où écrire
+     * @param buffs buffers contenant les données, dans le même ordre que pageIds
+     * @return un futur terminé quand toutes les pages ont été écrites, ou terminé
+     *         en erreur avec l'IOException qu'aurait levée WritePageBuffers
+     */
+    public CompletableFuture<Void> WritePageBuffersAsync(List<PageId> pageIds, List<ByteBuffer> buffs) {
+        return transferPagesAsync(pageIds, buffs, true, true);
+    }
+
+    /**
+     * Lance l'écriture groupée de pages déjà journalisées, sans les ajouter
+     * au journal (voir WritePageBuffersAsync et writeLoggedPage).
+     * 
+     * @param pageIds identifiants des pages où écrire
+     * @param buffs buffers contenant les données, dans le même ordre que pageIds
+     * @return un futur terminé quand toutes les pages ont été écrites
+     */
+    CompletableFuture<Void> writeLoggedPagesAsync(List<PageId> pageIds, List<ByteBuffer> buffs) {
+        return transferPagesAsync(pageIds, buffs, true, false);
+    }
+
+    /**
+     * Lance la lecture groupée de plusieurs pages dans des ByteBuffer sans
+     * attendre sa fin : les pages sont réparties par dossier de données et
+     * chaque dossier lit les siennes (regroupées comme par ReadPages) en
+     * parallèle des autres. Les buffers ne doivent pas être lus avant la fin.
+     * 
+     * @param pageIds identifiants des pages à lire
+     * @param buffs buffers de destination, dans le même ordre que pageIds
+     * @return un futur terminé quand toutes les pages ont été lues, ou terminé
+     *         en erreur avec l'IOException qu'aurait levée ReadPages
+     */
+    public CompletableFuture<Void> ReadPageBuffersAsync(List<PageId> pageIds, List<ByteBuffer> buffs) {
+        return transferPagesAsync(pageIds, buffs, false, false);
+    }
+
+    /**
+     * @param log true pour ajouter les pages écrites au journal (voir WritePageBuffers)
+     */
+    private CompletableFuture<Void> transferPagesAsync(List<PageId> pageIds, List<ByteBuffer> buffs,
+            boolean write, boolean log) {
+        if (pageIds.size() != buffs.size()) {
+            throw new IllegalArgumentException("Nombre de pages (" + pageIds.size() + ") différent du nombre de buffers (" + buffs.size() + ")");
+        }
+        int dirCount = ioExecutors.length;
+        List<List<PageId>> dirPages = new ArrayList<>();
+        List<List<ByteBuffer>> dirBuffs = new ArrayList<>();
+        for (int d = 0; d < dirCount; d++) {
+            dirPages.add(new ArrayList<>());
+            dirBuffs.add(new ArrayList<>());
+        }
+        for (int i = 0; i < pageIds.size(); i++) {
+            int d = Math.floorMod(pageIds.get(i).getFileIdx(), dirCount);
+            dirPages.get(d).add(pageIds.get(i));
+            dirBuffs.get(d).add(buffs.get(i));
+        }
+
+        List<CompletableFuture<Void>> transfers = new ArrayList<>();
+        for (int d = 0; d < dirCount; d++) {
+            List<PageId> ids = dirPages.get(d);
+            List<ByteBuffer> data = dirBuffs.get(d);
+            if (!ids.isEmpty()) {
+                if (write && log) {
+                    transfers.add(submitIO(() -> WritePageBuffers(ids, data), d));
+                } else {
+                    transfers.add(submitIO(() -> transferPages(ids, data, write), d));
+                }
+            }
+        }
+        if (transfers.size() == 1) {
+            return transfers.get(0);
+        }
+        return CompletableFuture.allOf(transfers.toArray(new CompletableFuture<?>[0]));
+    }
+
+    /**
+     * Une entrée/sortie à exécuter par un thread d'entrées/sorties.
+     */
+    private interface IOTask {
+        void run() throws IOException;
+    }
+
+    /**
+     * Confie une entrée/sortie à l'exécuteur asynchrone du dossier de données d'un fichier.
+     * 
+     * @param task l'entrée/sortie à exécuter
+     * @param fileIdx indice du fichier concerné (ou du dossier, qui lui correspond)
+     * @return un futur terminé à la fin de l'entrée/sortie
+     */
+    private CompletableFuture<Void> submitIO(IOTask task, int fileIdx) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        synchronized (ioLock) {
+            pendingIO++;
+        }
+
+        try {
+            getIOExecutor(Math.floorMod(fileIdx, ioExecutors.length)).execute(() -> {
+                try {
+                    task.run();
+                    future.complete(null);
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                } finally {
+                    endIO();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            endIO();
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * Retourne l'exécuteur des entrées/sorties asynchrones d'un dossier de données,
+     * en le créant si besoin. Ses threads sont des démons qui s'arrêtent après
+     * 30 secondes d'inactivité.
+     * 
+     * @param dirIdx indice du dossier dans dm_datapaths
+     */
+    private ThreadPoolExecutor getIOExecutor(int dirIdx) {
+        synchronized (ioLock) {
+            if (ioExecutors[dirIdx] == null) {
+                int depth = config.getIOQueueDepth();
+                ThreadPoolExecutor executor = new ThreadPoolExecutor(depth, depth, 30, TimeUnit.SECONDS,
+                        new LinkedBlockingQueue<>(), r -> {
+                            Thread t = new Thread(r, "dm-io-" + dirIdx);
+                            t.setDaemon(true);
+                            return t;
+                        });
+                executor.allowCoreThreadTimeOut(true);
+                ioExecutors[dirIdx] = executor;
+            }
+            return ioExecutors[dirIdx];
+        }
+    }
+
+    /**
+     * Signale la fin d'une entrée/sortie asynchrone.
+     */
+    private void endIO() {
+        synchronized (ioLock) {
+            pendingIO--;
+            if (pendingIO == 0) {
+                ioLock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Attend la fin de toutes les entrées/sorties asynchrones en cours.
+     */
+    private void awaitPendingIO() {
+        synchronized (ioLock) {
+            boolean interrupted = false;
+            while (pendingIO > 0) {
+                try {
+                    ioLock.wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Lit plusieurs pages en regroupant les entrées/sorties.
+     * Les demandes sont triées par (fileIdx, pageIdx) ; les pages contiguës
+     * d'un même fichier sont lues en une seule lecture dispersée (scattering read)
+     * qui remplit directement les buffers correspondants.
+     * 
+     * @param pageIds identifiants des pages à lire
+     * @param buffs buffers de destination, dans le même ordre que pageIds
+     *              (chacun doit faire config.getPageSize() octets)
+     * @throws IOException si une page n'existe pas, un fichier est inaccessible,
+     *                     ou si la taille d'un buffer est incorrecte
+     */
+    public void ReadPages(List<PageId> pageIds, List<byte[]> buffs) throws IOException {
+        transferPages(pageIds, wrapAll(buffs), false);
+    }
+
+    /**
+     * Écrit plusieurs pages en regroupant les entrées/sorties.
+     * Les demandes sont triées par (fileIdx, pageIdx) ; les pages contiguës
+     * d'un même fichier sont écrites en une seule écriture regroupée (gathering write).
+     * Si une même page apparaît plusieurs fois, la dernière occurrence de la liste l'emporte.
+     * 
+     * @param pageIds identifiants des pages à écrire
+     * @param buffs buffers contenant les données, dans le même ordre que pageIds
+     *              (chacun doit faire config.getPageSize() octets)
+     * @throws IOException si une page n'existe pas, un fichier est inaccessible,
+     *                     ou si la taille d'un buffer est incorrecte
+     */
+    public void WritePages(List<PageId> pageIds, List<byte[]> buffs) throws IOException {
+        WritePageBuffers(pageIds, wrapAll(buffs));
+    }
 
-        try (RandomAccessFile raf = new RandomAccessFile(f, "rw")) {
-            long offset = getOffset(pageId, f);
-            raf.seek(offset);
-            raf.write(buff);
+    /**
+     * Écrit plusieurs pages contenues dans des ByteBuffer (par exemple des
+     * frames hors du tas Java), comme WritePages. Pour chaque buffer, les octets
+     * entre la position et la limite forment la page ; position et limite ne
+     * sont pas modifiées. Avec wal_enabled, les images des pages sont d'abord
+     * ajoutées au journal, forcé une seule fois pour toutes (voir WritePage).
+     * 
+     * @param pageIds identifiants des pages à écrire
+     * @param buffs buffers contenant les données, dans le même ordre que pageIds
+     *              (config.getPageSize() octets restants chacun)
+     * @throws IOException si une page n'existe pas, un fichier est inaccessible,
+     *                     ou si la taille d'un buffer est incorrecte
+     */
+    public void WritePageBuffers(List<PageId> pageIds, List<ByteBuffer> buffs) throws IOException {
+        if (logManager != null && !pageIds.isEmpty()) {
+            if (pageIds.size() != buffs.size()) {
+                throw new IllegalArgumentException("Nombre de pages (" + pageIds.size() + ") différent du nombre de buffers (" + buffs.size() + ")");
+            }
+            for (int i = 0; i < pageIds.size(); i++) {
+                checkPageSize(buffs.get(i));
+                checkAllocated(pageIds.get(i));
+            }
+            long lsn = 0;
+            for (int i = 0; i < pageIds.size(); i++) {
+                lsn = logManager.appendPage(pageIds.get(i), buffs.get(i));
+            }
+            logManager.flush(lsn);
+        }
+        transferPages(pageIds, buffs, true);
+    }
+
+    /**
+     * Écrit plusieurs pages comme WritePageBuffers, sans les ajouter au
+     * journal (pages déjà journalisées par le BufferManager, voir writeLoggedPage).
+     * 
+     * @param pageIds identifiants des pages à écrire
+     * @param buffs buffers contenant les données, dans le même ordre que pageIds
+     * @throws IOException si une page n'existe pas, un fichier est inaccessible,
+     *                     ou si la taille d'un buffer est incorrecte
+     */
+    void writeLoggedPages(List<PageId> pageIds, List<ByteBuffer> buffs) throws IOException {
+        transferPages(pageIds, buffs, true);
+    }
+
+    private static List<ByteBuffer> wrapAll(List<byte[]> buffs) {
+        List<ByteBuffer> wrapped = new ArrayList<>(buffs.size());
+        for (byte[] buff : buffs) {
+            wrapped.add(ByteBuffer.wrap(buff));
+        }
+        return wrapped;
+    }
+
+    /**
+     * Implémentation commune de ReadPages et WritePages : trie les demandes,
+     * les découpe en suites de pages contiguës et transfère chaque suite
+     * en un seul appel.
+     */
+    private void transferPages(List<PageId> pageIds, List<ByteBuffer> buffs, boolean write) throws IOException {
+        if (pageIds.size() != buffs.size()) {
+            throw new IllegalArgumentException("Nombre de pages (" + pageIds.size() + ") différent du nombre de buffers (" + buffs.size() + ")");
+        }
+        for (ByteBuffer buff : buffs) {
+            checkPageSize(buff);
+        }
+
+        // Tri stable : pour une même page, l'ordre de la liste est conservé
+        Integer[] order = new Integer[pageIds.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingInt((Integer i) -> pageIds.get(i).getFileIdx())
+                .thenComparingInt(i -> pageIds.get(i).getPageIdx()));
+
+        int start = 0;
+        while (start < order.length) {
+            PageId first = pageIds.get(order[start]);
+            int end = start + 1;
+            while (end < order.length) {
+                PageId next = pageIds.get(order[end]);
+                if (next.getFileIdx() != first.getFileIdx()
+                        || next.getPageIdx() != first.getPageIdx() + (end - start)) {
+                    break;
+                }
+                end++;
+            }
+
+            ByteBuffer[] run = new ByteBuffer[end - start];
+            for (int i = start; i < end; i++) {
+                run[i - start] = buffs.get(order[i]).duplicate();
+            }
+
+            DataFile df = acquire(first.getFileIdx(), false);
+            try {
+                long offset = getOffset(first, df);
+                // Vérifie que la dernière page de la suite existe aussi
+                getOffset(pageIds.get(order[end - 1]), df);
+                if (df.pageMap != null) {
+                    // Pages compressées : emplacements de tailles variables, page par page
+                    for (int i = 0; i < run.length; i++) {
+                        if (write) {
+                            writeCompressed(df, run[i], first.getPageIdx() + i);
+                        } else {
+                            readCompressed(df, run[i], first.getPageIdx() + i);
+                        }
+                    }
+                } else if (write) {
+                    writeRun(df, run, offset);
+                } else {
+                    readRun(df, run, offset);
+                }
+            } finally {
+                release(df);
+            }
+            start = end;
+        }
+    }
+
+    /**
+     * Lit une suite de pages contiguës dans les buffers fournis.
+     * Sur le canal, la lecture dispersée utilise la position du canal :
+     * elle est donc faite sous le verrou du fichier.
+     */
+    private static void readRun(DataFile df, ByteBuffer[] run, long offset) throws IOException {
+        if (df.direct && run.length > 1) {
+            // Une seule lecture alignée de toute la suite, puis copie dans chaque buffer
+            int total = 0;
+            for (ByteBuffer b : run) {
+                total += b.remaining();
+            }
+            ByteBuffer aligned = getAlignedBuffer(total, df.blockSize);
+            readFully(df, aligned, offset);
+            aligned.flip();
+            for (ByteBuffer b : run) {
+                aligned.limit(aligned.position() + b.remaining());
+                b.put(aligned);
+            }
+            return;
+        }
+        if (df.mapping != null || run.length == 1) {
+            for (ByteBuffer b : run) {
+                int len = b.remaining();
+                readPage(df, b, offset);
+                offset += len;
+            }
+            return;
+        }
+        synchronized (df) {
+            df.channel.position(offset);
+            ByteBuffer last = run[run.length - 1];
+            while (last.hasRemaining()) {
+                if (df.channel.read(run) < 0) {
+                    throw new EOFException("Fin du fichier " + df.file.getName() + " atteinte");
+                }
+            }
+        }
+    }
+
+    /**
+     * Écrit une suite de pages contiguës depuis les buffers fournis.
+     * Sur le canal, l'écriture regroupée utilise la position du canal :
+     * elle est donc faite sous le verrou du fichier.
+     */
+    private static void writeRun(DataFile df, ByteBuffer[] run, long offset) throws IOException {
+        if (df.direct && run.length > 1) {
+            // Copie de toute la suite dans un buffer aligné, puis une seule écriture
+            int total = 0;
+            for (ByteBuffer b : run) {
+                total += b.remaining();
+            }
+            ByteBuffer aligned = getAlignedBuffer(total, df.blockSize);
+            for (ByteBuffer b : run) {
+                aligned.put(b);
+            }
+            aligned.flip();
+            writeFully(df, aligned, offset);
+            return;
+        }
+        if (df.mapping != null || run.length == 1) {
+            for (ByteBuffer b : run) {
+                int len = b.remaining();
+                writePage(df, b, offset);
+                offset += len;
+            }
+            return;
+        }
+        synchronized (df) {
+            df.channel.position(offset);
+            ByteBuffer last = run[run.length - 1];
+            while (last.hasRemaining()) {
+                df.channel.write(run);
+            }
         }
     }
 
     /**
      * Finalise le DiskManager à l'arrêt du SGBD.
-     * Sauvegarde la liste des pages libres dans un fichier au format CSV
-     * pour permettre leur récupération au prochain démarrage.
+     * Écrit les pages modifiées des cartes de pages libres (DataN.fsm),
+     * avec le nombre de pages allouées de chaque fichier, pour permettre
+     * leur récupération au prochain démarrage,
+     * puis ferme les fichiers de données encore ouverts. En mode MMAP,
+     * les projections sont d'abord forcées sur le disque.
+     * Les blocs pré-étendus mais pas encore alloués sont retirés de la fin
+     * des fichiers.
+     * Attend d'abord la fin des entrées/sorties asynchrones en cours.
+     * Si le journal est activé, il est forcé puis fermé : les pages journalisées
+     * depuis le dernier point de reprise et pas encore écrites seront
+     * réappliquées au prochain démarrage.
      * 
-     * @throws IOException si impossible d'écrire le fichier de sauvegarde
+     * @throws IOException si impossible d'écrire une carte de pages libres
      */
     public void finish() throws IOException {
-        File saveFile = new File(config.getPath(), "dm.save");
-        
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(saveFile))) {
-            for (PageId page : freePages) {
-                writer.write(page.getFileIdx() + "," + page.getPageIdx());
-                writer.newLine();
+        awaitPendingIO();
+        if (logManager != null) {
+            logManager.close();
+            logManager = null;
+        }
+        finishFiles();
+    }
+
+    /**
+     * Force sur le disque les fichiers de données ouverts et les tables des
+     * pages compressées (point de reprise du journal), puis enregistre le
+     * nombre de pages allouées des autres fichiers dans leur carte de pages libres. Les canaux fermés
+     * entre-temps l'ont été après avoir été forcés (voir closeIdleFiles()).
+     * 
+     * @throws IOException si une synchronisation échoue
+     */
+    synchronized void syncFiles() throws IOException {
+        for (DataFile df : openFiles.values()) {
+            if (df.mapping != null) {
+                df.mapping.force();
+            }
+            df.channel.force(false);
+        }
+        for (DataFile df : dataFiles) {
+            if (df != null && df.pageMap != null) {
+                df.pageMap.flush(df.allocated);
+            } else if (df != null && df.length >= 0) {
+                FreeSpaceMap fsm = getFreeSpaceMap(df.fileIdx);
+                fsm.setAllocated(df.allocated);
+                fsm.flush();
+            }
+        }
+    }
+
+    /**
+     * Réécrit une page d'après son image dans le journal (reprise au démarrage).
+     * Si la page est au-delà des pages allouées de son fichier (allocation
+     * perdue par l'arrêt brutal), le fichier est d'abord étendu jusqu'à elle.
+     * 
+     * @param pageId identifiant de la page
+     * @param page contenu de la page
+     * @throws IOException si la page est hors des limites de la base ou si l'écriture échoue
+     */
+    void redoPage(PageId pageId, byte[] page) throws IOException {
+        synchronized (this) {
+            int maxPages = getMaxPagesPerFile();
+            if (pageId.getPageIdx() < 0 || pageId.getPageIdx() >= maxPages) {
+                throw new IOException("Page " + pageId + " du journal hors des limites de la base");
+            }
+            DataFile df = acquire(pageId.getFileIdx(), true);
+            try {
+                while (df.allocated <= pageId.getPageIdx()) {
+                    if (df.pageMap == null && (long) (df.allocated + 1) * config.getPageSize() > df.length) {
+                        extend(df, maxPages);
+                    }
+                    df.allocated++;
+                }
+            } finally {
+                release(df);
+            }
+        }
+        writeLoggedPage(pageId, ByteBuffer.wrap(page));
+    }
+
+    /**
+     * Sauvegarde les cartes de pages libres et ferme les fichiers (voir finish()).
+     */
+    private synchronized void finishFiles() throws IOException {
+        for (DataFile df : dataFiles) {
+            if (df != null && df.pageMap == null && df.length >= 0) {
+                getFreeSpaceMap(df.fileIdx).setAllocated(df.allocated);
+            }
+            if (df != null && df.fsm != null) {
+                df.fsm.flush();
+            }
+            if (df != null && df.pageMap != null) {
+                df.pageMap.flush(df.allocated);
             }
         }
+
+        closeAll();
     }
 
     /**
      * Initialise le DiskManager au démarrage du SGBD.
-     * Charge la liste des pages libres depuis le fichier de sauvegarde
-     * pour restaurer l'état du gestionnaire au dernier arrêt.
+     * Oublie l'état des pages libres en mémoire : les cartes de pages libres
+     * seront relues depuis le disque à leur première utilisation.
+     * Si wal_enabled est activé, ouvre le journal et réapplique les pages
+     * journalisées qui n'avaient pas été écrites avant l'arrêt (redo).
      * 
      * @throws IOException si erreur lors de la lecture du fichier de sauvegarde
+     *                     ou du journal
      */
-    public void Init() throws IOException {
+    public synchronized void Init() throws IOException {
         LoadState();
+        if (logManager == null && config.isWalEnabled()) {
+            logManager = LogManager.open(this);
+        }
     }
 
     /**
-     * Charge la liste des pages libres depuis le fichier de sauvegarde.
-     * Lit le fichier dm.save ligne par ligne, chaque ligne contenant
-     * un PageId au format "fileIdx,pageIdx". Si le fichier n'existe pas,
-     * commence avec une liste de pages libres vide.
+     * Réinitialise l'état des pages libres. Les cartes DataN.fsm sont
+     * chargées plus tard, à la demande. Si un ancien fichier dm.save existe
+     * (liste texte, une ligne "fileIdx,pageIdx" par page libre), ses pages
+     * sont reportées dans les cartes, qui sont aussitôt écrites, puis il est
+     * supprimé : après un arrêt brutal, il n'est pas relu par-dessus des
+     * pages réallouées entre-temps.
+     * Un fichier de données sans carte a été créé avant les cartes de pages
+     * libres (avec dm.save) : toutes ses pages sont allouées.
      * 
      * @throws IOException si erreur lors de la lecture du fichier ou
      *                     si le format des données est invalide
@@ -179,8 +925,26 @@ public class DiskManager {
     private void LoadState() throws IOException {
         File saveFile = new File(config.getPath(), "dm.save");
         
-        freePages.clear();
+        for (DataFile df : dataFiles) {
+            if (df != null) {
+                df.fsm = null;
+            }
+        }
+        freeFileIdx = 0;
         
+        // Fichiers de l'ancien format (sans carte) : nombre de pages allouées
+        // d'après leur taille. Les autres cartes sont chargées à la première utilisation.
+        if (!config.isCompression()) {
+            for (int fileIdx = 0; fileIdx < dataFiles.length; fileIdx++) {
+                File file = getDataFile(fileIdx).file;
+                if (file.exists() && !getFreeSpaceMapFile(fileIdx).exists()) {
+                    FreeSpaceMap fsm = getFreeSpaceMap(fileIdx);
+                    fsm.setAllocated((int) Math.min(file.length() / config.getPageSize(), Integer.MAX_VALUE));
+                    fsm.flush();
+                }
+            }
+        }
+
         if (!saveFile.exists()) {
             return;
         }
@@ -193,48 +957,587 @@ public class DiskManager {
                 if (parts.length == 2) {
                     int fileIdx = Integer.parseInt(parts[0].trim());
                     int pageIdx = Integer.parseInt(parts[1].trim());
-                    freePages.add(new PageId(fileIdx, pageIdx));
+                    FreeSpaceMap fsm = getFreeSpaceMap(fileIdx);
+                    if (!fsm.isFree(pageIdx)) {
+                        fsm.markFree(pageIdx);
+                    }
                 }
             }
         }
+        for (DataFile df : dataFiles) {
+            if (df != null && df.fsm != null) {
+                df.fsm.flush();
+            }
+        }
+        saveFile.delete();
     }
 
     /**
-     * Retourne l'objet File correspondant au PageId fourni.
-     * Vérifie que le fichier existe sur le disque.
+     * Retourne l'état du fichier de données d'indice fileIdx, sans l'ouvrir.
      * 
-     * @param pageId identifiant de la page
-     * @return objet File correspondant au fichier contenant cette page
-     * @throws IOException si le fichier n'existe pas
+     * @param fileIdx indice du fichier
+     * @return l'état du fichier
+     * @throws IOException si l'indice dépasse dm_maxfilecount
      */
-    private File getFile(PageId pageId) throws IOException {
-        File f = new File(config.getPath(), "Data" + pageId.getFileIdx() + ".bin");
-        
-        if (!f.exists()) {
-            throw new IOException("Fichier inexistant : " + f.getAbsolutePath());
+    private synchronized DataFile getDataFile(int fileIdx) throws IOException {
+        if (fileIdx < 0 || fileIdx >= dataFiles.length) {
+            throw new IOException("Fichier inexistant : Data" + fileIdx + ".bin");
+        }
+
+        DataFile df = dataFiles[fileIdx];
+        if (df == null) {
+            // Les fichiers compressés ont leurs propres noms : pas de confusion entre les deux formats
+            String ext = config.isCompression() ? ".zbin" : ".bin";
+            df = new DataFile(fileIdx, new File(getDataDir(fileIdx), "Data" + fileIdx + ext));
+            dataFiles[fileIdx] = df;
+        }
+        return df;
+    }
+
+    /**
+     * Dossier où se trouve le fichier de données d'indice fileIdx (et ses
+     * fichiers annexes) : les fichiers sont répartis à tour de rôle entre
+     * les dossiers de dm_datapaths.
+     * 
+     * @param fileIdx indice du fichier
+     * @return le dossier du fichier
+     */
+    private File getDataDir(int fileIdx) {
+        List<String> paths = config.getDataPaths();
+        return new File(paths.get(fileIdx % paths.size()));
+    }
+
+    /**
+     * Retourne la carte des pages libres d'un fichier, en la chargeant
+     * depuis DataN.fsm à la première utilisation.
+     * 
+     * @param fileIdx indice du fichier
+     * @return la carte des pages libres du fichier
+     * @throws IOException si erreur lors de la lecture de la carte
+     */
+    private synchronized FreeSpaceMap getFreeSpaceMap(int fileIdx) throws IOException {
+        DataFile df = getDataFile(fileIdx);
+        if (df.fsm == null) {
+            df.fsm = FreeSpaceMap.load(getFreeSpaceMapFile(fileIdx), config.getPageSize());
+        }
+        return df.fsm;
+    }
+
+    /**
+     * @param fileIdx indice du fichier
+     * @return le fichier DataN.fsm de la carte des pages libres du fichier
+     */
+    private File getFreeSpaceMapFile(int fileIdx) {
+        String ext = config.isCompression() ? ".zfsm" : ".fsm";
+        return new File(getDataDir(fileIdx), "Data" + fileIdx + ext);
+    }
+
+    /**
+     * Retourne le fichier de données d'indice fileIdx avec son canal ouvert,
+     * en l'ouvrant si nécessaire. Le fichier est marqué comme utilisé jusqu'à
+     * l'appel de release() : son canal ne peut pas être fermé entre-temps.
+     * Si le cache dépasse dm_maxopenfiles, les canaux inutilisés les moins
+     * récemment accédés sont fermés.
+     * 
+     * @param fileIdx indice du fichier
+     * @param create true pour créer le fichier s'il n'existe pas
+     * @return le fichier de données, à rendre avec release()
+     * @throws IOException si le fichier n'existe pas (et create vaut false)
+     *                     ou ne peut pas être ouvert
+     */
+    private synchronized DataFile acquire(int fileIdx, boolean create) throws IOException {
+        DataFile df = getDataFile(fileIdx);
+
+        if (df.channel == null) {
+            if (!create && !df.file.exists()) {
+                throw new IOException("Fichier inexistant : " + df.file.getAbsolutePath());
+            }
+            if (create) {
+                df.file.getParentFile().mkdirs();
+            }
+            df.channel = openChannel(df);
+            if (df.length < 0) {
+                df.length = df.channel.size();
+                if (config.isCompression()) {
+                    df.pageMap = CompressedPageMap.load(new File(getDataDir(fileIdx), "Data" + fileIdx + ".zmap"), df.length);
+                    df.allocated = df.pageMap.getAllocated();
+                } else {
+                    df.allocated = allocatedPages(df);
+                }
+            }
+            openFiles.put(fileIdx, df);
+            if (df.mapping == null) {
+                remap(df);
+            }
+        } else {
+            // Marque le fichier comme le plus récemment utilisé
+            openFiles.get(fileIdx);
+        }
+
+        df.users++;
+        closeIdleFiles();
+        return df;
+    }
+
+    /**
+     * Nombre de pages allouées d'un fichier de données non compressé à son
+     * ouverture : celui enregistré dans sa carte de pages libres (à chaque
+     * extension, à chaque synchronisation et par finish()), plus les pages
+     * suivantes jusqu'à la dernière qui n'est pas entièrement nulle. Après un
+     * arrêt brutal, la fin pré-étendue jamais écrite n'est donc pas comptée ;
+     * une page allouée après le dernier enregistrement mais jamais écrite
+     * (ou écrite avec des zéros) redevient disponible. Les fichiers de
+     * l'ancien format, sans carte, ont reçu leur nombre par LoadState().
+     * 
+     * @param df fichier de données dont le canal vient d'être ouvert
+     * @return le nombre de pages allouées du fichier
+     * @throws IOException si la carte ou la fin du fichier ne peut pas être lue
+     */
+    private int allocatedPages(DataFile df) throws IOException {
+        int pageSize = config.getPageSize();
+        int pages = (int) Math.min(df.length / pageSize, Integer.MAX_VALUE);
+        int stored = Math.max(0, getFreeSpaceMap(df.fileIdx).getAllocated());
+        if (stored >= pages) {
+            return stored;
+        }
+        ByteBuffer page = ByteBuffer.allocate(pageSize);
+        for (int p = pages - 1; p >= stored; p--) {
+            page.clear();
+            readFully(df, page, (long) p * pageSize);
+            for (int i = 0; i < pageSize; i++) {
+                if (page.get(i) != 0) {
+                    return p + 1;
+                }
+            }
+        }
+        return stored;
+    }
+
+    /**
+     * Ouvre le canal d'un fichier de données. En mode DIRECT, le fichier est
+     * ouvert avec O_DIRECT (sans passer par le cache du système) si la taille
+     * des pages et la longueur actuelle du fichier sont des multiples de la taille
+     * de bloc du système de fichiers ; sinon, ou si le système de fichiers
+     * refuse O_DIRECT, le fichier est ouvert normalement.
+     * 
+     * @param df fichier de données à ouvrir
+     * @return le canal ouvert
+     * @throws IOException si le fichier ne peut pas être ouvert
+     */
+    private FileChannel openChannel(DataFile df) throws IOException {
+        Path path = df.file.toPath();
+        df.direct = false;
+
+        if (config.getIOMode() == DiskIOMode.DIRECT && !config.isCompression()) {
+            try {
+                int blockSize = (int) Files.getFileStore(path.toAbsolutePath().getParent()).getBlockSize();
+                if (Integer.bitCount(blockSize) == 1 && config.getPageSize() % blockSize == 0
+                        && df.file.length() % blockSize == 0) {
+                    FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                            StandardOpenOption.READ, StandardOpenOption.WRITE, ExtendedOpenOption.DIRECT);
+                    df.direct = true;
+                    df.blockSize = blockSize;
+                    return channel;
+                }
+            } catch (IOException | UnsupportedOperationException e) {
+                // O_DIRECT refusé (tmpfs par exemple) : entrées/sorties standard pour ce fichier
+            }
+        }
+
+        return FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    /**
+     * Rend un fichier obtenu par acquire().
+     * 
+     * @param df le fichier de données à rendre
+     * @throws IOException si la fermeture d'un canal inutilisé échoue
+     */
+    private synchronized void release(DataFile df) throws IOException {
+        df.users--;
+        closeIdleFiles();
+    }
+
+    /**
+     * Ferme les canaux inutilisés les moins récemment accédés
+     * tant que le cache dépasse dm_maxopenfiles.
+     * 
+     * @throws IOException si la fermeture d'un canal échoue
+     */
+    private void closeIdleFiles() throws IOException {
+        Iterator<DataFile> it = openFiles.values().iterator();
+        while (openFiles.size() > config.getMaxOpenFiles() && it.hasNext()) {
+            DataFile df = it.next();
+            if (df.users == 0) {
+                it.remove();
+                if (logManager != null) {
+                    // Le prochain point de reprise ne verra plus ce canal
+                    df.channel.force(false);
+                }
+                df.channel.close();
+                df.channel = null;
+            }
+        }
+    }
+
+    /**
+     * Ferme tous les canaux ouverts. Les fichiers seront rouverts
+     * au prochain accès.
+     * 
+     * @throws IOException si la fermeture d'un canal échoue
+     */
+    private synchronized void closeAll() throws IOException {
+        for (DataFile df : dataFiles) {
+            if (df != null && df.mapping != null) {
+                df.mapping.force();
+                df.mapping = null;
+            }
+        }
+        for (DataFile df : dataFiles) {
+            long allocatedLength = (df == null) ? -1 : (long) df.allocated * config.getPageSize();
+            if (df != null && df.pageMap == null && df.length > allocatedLength) {
+                acquire(df.fileIdx, false);
+                try {
+                    df.channel.truncate(allocatedLength);
+                    df.length = allocatedLength;
+                } finally {
+                    release(df);
+                }
+            }
+        }
+        for (DataFile df : openFiles.values()) {
+            df.channel.close();
+            df.channel = null;
+        }
+        openFiles.clear();
+    }
+
+    /**
+     * En mode MMAP, projette en mémoire le fichier sur toute sa longueur connue.
+     * Appelée à l'ouverture du fichier et à chaque fois qu'il grandit ;
+     * l'ancienne projection reste valide pour les lectures en cours.
+     * Un fichier vide ou trop grand pour une seule projection (plus de 2 Go)
+     * n'est pas projeté et reste servi par le canal.
+     * 
+     * @param df fichier de données dont le canal est ouvert
+     * @throws IOException si la projection échoue
+     */
+    private synchronized void remap(DataFile df) throws IOException {
+        if (config.getIOMode() != DiskIOMode.MMAP || config.isCompression()) {
+            return;
+        }
+        if (df.length == 0 || df.length > Integer.MAX_VALUE) {
+            df.mapping = null;
+            return;
+        }
+        if (df.mapping == null || df.mapping.capacity() != df.length) {
+            df.mapping = df.channel.map(FileChannel.MapMode.READ_WRITE, 0, df.length);
+        }
+    }
+
+    /**
+     * Lit une page compressée : lit son emplacement en une seule lecture
+     * puis la décompresse dans le buffer. Une page allouée mais jamais écrite
+     * est lue comme une page de zéros.
+     * Un emplacement commence par la taille des données compressées
+     * (-1 si la page est stockée telle quelle, car incompressible).
+     * 
+     * @param df fichier de données compressé (obtenu par acquire())
+     * @param dst buffer à remplir entre sa position et sa limite (une page)
+     * @param pageIdx indice de la page dans le fichier
+     * @throws IOException en cas d'erreur de lecture ou si l'emplacement est corrompu
+     */
+    private void readCompressed(DataFile df, ByteBuffer dst, int pageIdx) throws IOException {
+        int pageSize = config.getPageSize();
+        long offset;
+        int capacity;
+        synchronized (df.pageMap) {
+            offset = df.pageMap.getOffset(pageIdx);
+            capacity = df.pageMap.getCapacity(pageIdx);
+        }
+        if (offset < 0) {
+            dst.put(new byte[pageSize]);
+            return;
+        }
+
+        byte[][] work = getCompressionBuffers(pageSize);
+        byte[] page = work[0];
+        byte[] slot = work[1];
+        // Le dernier emplacement du fichier peut être plus court que sa capacité
+        int length;
+        synchronized (this) {
+            length = (int) Math.min(capacity, df.length - offset);
+        }
+        readFully(df, ByteBuffer.wrap(slot, 0, length), offset);
+
+        int stored = ByteBuffer.wrap(slot).getInt(0);
+        if (stored < 0) {
+            dst.put(slot, 4, pageSize);
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            LZCodec.decompress(slot, 4, stored, page, 0, pageSize);
+        } catch (IllegalArgumentException e) {
+            throw new IOException(e.getMessage() + " : page " + pageIdx + " du fichier " + df.file.getName());
+        }
+        decompressNanos.add(System.nanoTime() - start);
+        dst.put(page, 0, pageSize);
+    }
+
+    /**
+     * Compresse une page et l'écrit dans son emplacement (réutilisé s'il est
+     * assez grand, sinon un nouvel emplacement est choisi par la table).
+     * 
+     * @param df fichier de données compressé (obtenu par acquire())
+     * @param src buffer à écrire entre sa position et sa limite (une page)
+     * @param pageIdx indice de la page dans le fichier
+     * @throws IOException en cas d'erreur d'écriture
+     */
+    private void writeCompressed(DataFile df, ByteBuffer src, int pageIdx) throws IOException {
+        int pageSize = config.getPageSize();
+        byte[][] work = getCompressionBuffers(pageSize);
+        byte[] page = work[0];
+        byte[] slot = work[1];
+        src.get(page, 0, pageSize);
+
+        long start = System.nanoTime();
+        int stored = LZCodec.compress(page, 0, pageSize, slot, 4);
+        compressNanos.add(System.nanoTime() - start);
+
+        if (stored >= pageSize) {
+            // Incompressible : stockée telle quelle
+            System.arraycopy(page, 0, slot, 4, pageSize);
+            stored = -1;
+        }
+        int size = 4 + ((stored < 0) ? pageSize : stored);
+        ByteBuffer.wrap(slot).putInt(0, stored);
+
+        long offset = df.pageMap.place(pageIdx, size);
+        writeFully(df, ByteBuffer.wrap(slot, 0, size), offset);
+        synchronized (this) {
+            df.length = Math.max(df.length, offset + size);
+        }
+
+        uncompressedBytes.add(pageSize);
+        compressedBytes.add(size);
+    }
+
+    /**
+     * Retourne les buffers de travail du thread courant pour la compression
+     * (une page, un emplacement de taille maximale), agrandis si nécessaire.
+     */
+    private static byte[][] getCompressionBuffers(int pageSize) {
+        byte[][] work = compressionBuffers.get();
+        if (work[0].length < pageSize) {
+            work[0] = new byte[pageSize];
+            int slotSize = 4 + LZCodec.maxCompressedLength(pageSize);
+            work[1] = new byte[(slotSize + CompressedPageMap.GRANULE - 1) / CompressedPageMap.GRANULE * CompressedPageMap.GRANULE];
+        }
+        return work;
+    }
+
+    /**
+     * @return le nombre d'octets de pages écrites avant compression (mode dm_compression)
+     */
+    public long getUncompressedBytes() {
+        return uncompressedBytes.sum();
+    }
+
+    /**
+     * @return le nombre d'octets réellement écrits pour ces pages, en-têtes compris
+     */
+    public long getCompressedBytes() {
+        return compressedBytes.sum();
+    }
+
+    /**
+     * @return le taux de compression des pages écrites (octets stockés / octets de pages),
+     *         1.0 si aucune page compressée n'a été écrite
+     */
+    public double getCompressionRatio() {
+        long in = uncompressedBytes.sum();
+        return (in == 0) ? 1.0 : (double) compressedBytes.sum() / in;
+    }
+
+    /**
+     * @return le temps total passé à compresser des pages, en nanosecondes
+     */
+    public long getCompressNanos() {
+        return compressNanos.sum();
+    }
+
+    /**
+     * @return le temps total passé à décompresser des pages, en nanosecondes
+     */
+    public long getDecompressNanos() {
+        return decompressNanos.sum();
+    }
+
+    /**
+     * Lit une page à l'offset donné : copie mémoire depuis la projection
+     * si le fichier est projeté, lecture positionnelle sur le canal sinon.
+     * 
+     * @param df fichier de données (obtenu par acquire())
+     * @param dst buffer à remplir entre sa position et sa limite
+     * @param offset position de la page dans le fichier
+     * @throws IOException en cas d'erreur de lecture
+     */
+    private static void readPage(DataFile df, ByteBuffer dst, long offset) throws IOException {
+        MappedByteBuffer mapping = df.mapping;
+        if (mapping != null && offset + dst.remaining() <= mapping.capacity()) {
+            int len = dst.remaining();
+            dst.put(dst.position(), mapping, (int) offset, len);
+            dst.position(dst.position() + len);
+        } else {
+            readFully(df, dst, offset);
+        }
+    }
+
+    /**
+     * Écrit une page à l'offset donné : copie mémoire vers la projection
+     * si le fichier est projeté, écriture positionnelle sur le canal sinon.
+     * 
+     * @param df fichier de données (obtenu par acquire())
+     * @param src buffer à écrire entre sa position et sa limite
+     * @param offset position de la page dans le fichier
+     * @throws IOException en cas d'erreur d'écriture
+     */
+    private static void writePage(DataFile df, ByteBuffer src, long offset) throws IOException {
+        MappedByteBuffer mapping = df.mapping;
+        if (mapping != null && offset + src.remaining() <= mapping.capacity()) {
+            int len = src.remaining();
+            mapping.put((int) offset, src, src.position(), len);
+            src.position(src.position() + len);
+        } else {
+            writeFully(df, src, offset);
+        }
+    }
+
+    /**
+     * Retourne le buffer intermédiaire aligné du thread courant, vidé et
+     * limité à size octets. Il est agrandi si nécessaire.
+     * 
+     * @param size taille utile demandée en octets (multiple de blockSize)
+     * @param blockSize alignement demandé (puissance de 2)
+     * @return un buffer direct dont l'adresse est alignée sur blockSize
+     */
+    private static ByteBuffer getAlignedBuffer(int size, int blockSize) {
+        ByteBuffer buffer = alignedBuffer.get();
+        if (buffer == null || buffer.capacity() < size || buffer.alignmentOffset(0, blockSize) != 0) {
+            buffer = ByteBuffer.allocateDirect(size + blockSize - 1).alignedSlice(blockSize);
+            alignedBuffer.set(buffer);
+        }
+        buffer.clear().limit(size);
+        return buffer;
+    }
+
+    /**
+     * Indique si un buffer peut être utilisé tel quel pour une entrée/sortie directe :
+     * buffer direct, adresse et taille alignées sur la taille de bloc.
+     */
+    private static boolean isAligned(ByteBuffer buffer, int blockSize) {
+        return buffer.isDirect() && buffer.remaining() % blockSize == 0
+                && buffer.alignmentOffset(buffer.position(), blockSize) == 0;
+    }
+
+    /**
+     * Lit depuis le fichier à la position donnée jusqu'à remplir le buffer,
+     * sans modifier la position du canal. En mode DIRECT, un buffer non aligné
+     * est rempli en passant par le buffer intermédiaire aligné du thread.
+     * 
+     * @param df fichier de données (obtenu par acquire())
+     * @param dst buffer à remplir entre sa position et sa limite
+     * @param offset position de lecture dans le fichier
+     * @throws IOException si la fin du fichier est atteinte ou en cas d'erreur de lecture
+     */
+    private static void readFully(DataFile df, ByteBuffer dst, long offset) throws IOException {
+        if (df.direct && !isAligned(dst, df.blockSize)) {
+            ByteBuffer aligned = getAlignedBuffer(dst.remaining(), df.blockSize);
+            readFully(df, aligned, offset);
+            aligned.flip();
+            dst.put(aligned);
+            return;
+        }
+        while (dst.hasRemaining()) {
+            int n = df.channel.read(dst, offset);
+            if (n < 0) {
+                throw new EOFException("Fin du fichier " + df.file.getName() + " atteinte");
+            }
+            offset += n;
+        }
+    }
+
+    /**
+     * Écrit tout le contenu du buffer dans le fichier à la position donnée,
+     * sans modifier la position du canal. En mode DIRECT, un buffer non aligné
+     * est d'abord copié dans le buffer intermédiaire aligné du thread.
+     * 
+     * @param df fichier de données (obtenu par acquire())
+     * @param src buffer à écrire entre sa position et sa limite
+     * @param offset position d'écriture dans le fichier
+     * @throws IOException en cas d'erreur d'écriture
+     */
+    private static void writeFully(DataFile df, ByteBuffer src, long offset) throws IOException {
+        if (df.direct && !isAligned(src, df.blockSize)) {
+            ByteBuffer aligned = getAlignedBuffer(src.remaining(), df.blockSize);
+            aligned.put(src);
+            aligned.flip();
+            writeFully(df, aligned, offset);
+            return;
+        }
+        while (src.hasRemaining()) {
+            offset += df.channel.write(src, offset);
         }
-        
-        return f;
     }
 
     /**
      * Calcule l'offset (position en octets) d'une page dans son fichier.
-     * Vérifie que la page existe réellement dans le fichier.
+     * Vérifie que la page a réellement été allouée dans le fichier, à partir
+     * du nombre de pages allouées conservé en mémoire (les pages pré-étendues
+     * mais pas encore allouées sont considérées comme inexistantes).
      * 
      * @param pageId identifiant de la page
-     * @param f fichier contenant la page
+     * @param df fichier contenant la page
      * @return position en octets du début de la page dans le fichier
-     * @throws IOException si la page dépasse la taille actuelle du fichier
+     * @throws IOException si la page n'a pas été allouée dans ce fichier
      */
-    private long getOffset(PageId pageId, File f) throws IOException {
+    private long getOffset(PageId pageId, DataFile df) throws IOException {
         long offset = (long) pageId.getPageIdx() * config.getPageSize();
 
-        if (offset + config.getPageSize() > f.length()) {
+        if (pageId.getPageIdx() < 0 || pageId.getPageIdx() >= df.allocated) {
             throw new IOException("Page " + pageId.getPageIdx() + 
-                    " inexistante dans le fichier " + f.getName());
+                    " inexistante dans le fichier " + df.file.getName());
         }
         
         return offset;
     }
 
+    /**
+     * @param buff buffer d'une page
+     * @throws IOException si le buffer ne couvre pas exactement une page
+     */
+    private void checkPageSize(ByteBuffer buff) throws IOException {
+        if (buff.remaining() != config.getPageSize()) {
+            throw new IOException("Taille du buffer (" + buff.remaining() + ") différente de la taille d'une page (" + config.getPageSize() + ")");
+        }
+    }
+
+    /**
+     * Vérifie qu'une page existe avant d'ajouter son image au journal
+     * (la reprise réécrit, en étendant le fichier si besoin, toute page journalisée).
+     * 
+     * @param pageId identifiant de la page
+     * @throws IOException si la page n'a pas été allouée
+     */
+    private void checkAllocated(PageId pageId) throws IOException {
+        DataFile df = acquire(pageId.getFileIdx(), false);
+        try {
+            getOffset(pageId, df);
+        } finally {
+            release(df);
+        }
+    }
+
 }
@@ -2,6 +2,15 @@ package bdda;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
  * Classe de test complète pour DiskManager
@@ -31,6 +40,30 @@ public class DiskManagerTests {
             // 6. Test Init/Finish (persistance)
             testInitFinish();
             
+            // 7. Test mode MMAP (cohérence et comparaison des temps de lecture)
+            testModeMMAP();
+            
+            // 8. Test lecture/écriture groupées
+            testReadWritePages();
+            
+            // 9. Test entrées/sorties asynchrones
+            testAsync();
+            
+            // 10. Test mode DIRECT
+            testModeDirect();
+            
+            // 11. Test compression des pages
+            testCompression();
+            
+            // 12. Test répartition des fichiers sur plusieurs dossiers
+            testDataPaths();
+            
+            // 13. Test arrêt brutal avec des blocs pré-étendus
+            testArretBrutal();
+            
+            // 14. Test reprise d'un ancien fichier dm.save
+            testMigrationSave();
+            
             System.out.println("\nTOUS LES TESTS REUSSIS !");
             
         } catch (Exception e) {
@@ -63,8 +96,7 @@ public class DiskManagerTests {
     private static void testPageAllocation() throws IOException {
         System.out.println("\n2. Test allocation de pages...");
         
-        File configFile = new File("config/config.txt");
-        DBConfig config = DBConfig.LoadDBConfig(configFile);
+        DBConfig config = TestDossiers.configDossier("allocation");
         DiskManager dm = new DiskManager(config);
         
         // Allouer plusieurs pages
@@ -90,8 +122,7 @@ public class DiskManagerTests {
     private static void testWriteRead() throws IOException {
         System.out.println("\n3. Test écriture/lecture...");
         
-        File configFile = new File("config/config.txt");
-        DBConfig config = DBConfig.LoadDBConfig(configFile);
+        DBConfig config = TestDossiers.configDossier("ecriture");
         DiskManager dm = new DiskManager(config);
         
         PageId pageId = dm.allocPage();
@@ -128,8 +159,7 @@ public class DiskManagerTests {
     private static void testDeallocAndReuse() throws IOException {
         System.out.println("\n4. Test désallocation et réutilisation...");
         
-        File configFile = new File("config/config.txt");
-        DBConfig config = DBConfig.LoadDBConfig(configFile);
+        DBConfig config = TestDossiers.configDossier("reutilisation");
         DiskManager dm = new DiskManager(config);
         
         // Allouer une page
@@ -158,8 +188,7 @@ public class DiskManagerTests {
     private static void testErrorHandling() throws IOException {
         System.out.println("\n5. Test gestion d'erreurs...");
         
-        File configFile = new File("config/config.txt");
-        DBConfig config = DBConfig.LoadDBConfig(configFile);
+        DBConfig config = TestDossiers.configDossier("erreurs");
         DiskManager dm = new DiskManager(config);
         
         PageId validPage = dm.allocPage();
@@ -191,6 +220,20 @@ public class DiskManagerTests {
             }
         }
         
+        // Test double désallocation
+        PageId freedPage = dm.allocPage();
+        dm.DeallocPage(freedPage);
+        try {
+            dm.DeallocPage(freedPage);
+            throw new IOException("Erreur : Exception attendue pour double désallocation !");
+        } catch (IOException e) {
+            if (e.getMessage().contains("déjà désallouée")) {
+                System.out.println("   OK - Double désallocation refusée");
+            } else {
+                throw e;
+            }
+        }
+        
         System.out.println("   OK - Gestion d'erreurs correcte");
     }
     
@@ -200,8 +243,7 @@ public class DiskManagerTests {
     private static void testInitFinish() throws IOException {
         System.out.println("\n6. Test persistance Init/finish...");
         
-        File configFile = new File("config/config.txt");
-        DBConfig config = DBConfig.LoadDBConfig(configFile);
+        DBConfig config = TestDossiers.configDossier("persistance");
         
         // === PHASE 1 : Créer et sauvegarder des pages libres ===
         {
@@ -276,4 +318,467 @@ public class DiskManagerTests {
         
         System.out.println("   OK - Persistance Init/finish complètement fonctionnelle");
     }
+    
+    /**
+     * Test 7 : Mode MMAP
+     * Vérifie que les pages écrites en mode STANDARD sont relues en mode MMAP
+     * et inversement, puis compare le temps de lectures répétées dans les deux modes.
+     */
+    private static void testModeMMAP() throws IOException {
+        System.out.println("\n7. Test mode MMAP...");
+        
+        DBConfig configStd = TestDossiers.configDossier("mmap");
+        configStd.setIOMode(DiskIOMode.STANDARD);
+        DBConfig configMap = new DBConfig(configStd.getPath(), configStd.getPageSize(),
+                configStd.getMaxFileCount(), configStd.getBufferCount(), configStd.getBufferPolicy());
+        configMap.setIOMode(DiskIOMode.MMAP);
+        
+        DiskManager dmStd = new DiskManager(configStd);
+        PageId page1 = dmStd.allocPage();
+        PageId page2 = dmStd.allocPage();
+        
+        byte[] data = new byte[configStd.getPageSize()];
+        byte[] msg1 = "Ecrit en STANDARD".getBytes();
+        System.arraycopy(msg1, 0, data, 0, msg1.length);
+        dmStd.WritePage(page1, data);
+        dmStd.finish();
+        
+        // Lecture en MMAP de ce qui a été écrit en STANDARD, puis écriture en MMAP
+        DiskManager dmMap = new DiskManager(configMap);
+        byte[] read = new byte[configMap.getPageSize()];
+        dmMap.ReadPage(page1, read);
+        if (!new String(read, 0, msg1.length).equals("Ecrit en STANDARD")) {
+            throw new IOException("Erreur : page écrite en STANDARD mal relue en MMAP !");
+        }
+        
+        byte[] msg2 = "Ecrit en MMAP".getBytes();
+        data = new byte[configMap.getPageSize()];
+        System.arraycopy(msg2, 0, data, 0, msg2.length);
+        dmMap.WritePage(page2, data);
+        dmMap.finish();
+        System.out.println("   OK - Page écrite en STANDARD relue en MMAP");
+        
+        dmStd = new DiskManager(configStd);
+        dmStd.ReadPage(page2, read);
+        if (!new String(read, 0, msg2.length).equals("Ecrit en MMAP")) {
+            throw new IOException("Erreur : page écrite en MMAP mal relue en STANDARD !");
+        }
+        System.out.println("   OK - Page écrite en MMAP relue en STANDARD");
+        
+        // Comparaison des temps de lecture
+        dmMap = new DiskManager(configMap);
+        int nbLectures = 100000;
+        long debut = System.nanoTime();
+        for (int i = 0; i < nbLectures; i++) {
+            dmStd.ReadPage((i % 2 == 0) ? page1 : page2, read);
+        }
+        long tempsStd = System.nanoTime() - debut;
+        debut = System.nanoTime();
+        for (int i = 0; i < nbLectures; i++) {
+            dmMap.ReadPage((i % 2 == 0) ? page1 : page2, read);
+        }
+        long tempsMap = System.nanoTime() - debut;
+        dmStd.finish();
+        dmMap.finish();
+        
+        System.out.println("   OK - " + nbLectures + " lectures STANDARD : " + (tempsStd / 1000000) + " ms");
+        System.out.println("   OK - " + nbLectures + " lectures MMAP : " + (tempsMap / 1000000) + " ms");
+    }
+    
+    /**
+     * Test 8 : ReadPages / WritePages
+     * Écrit un lot de pages (dans le désordre, avec des pages contiguës)
+     * puis le relit, et vérifie le résultat page par page avec ReadPage.
+     */
+    private static void testReadWritePages() throws IOException {
+        System.out.println("\n8. Test lecture/écriture groupées...");
+        
+        DBConfig config = TestDossiers.configDossier("groupees");
+        DiskManager dm = new DiskManager(config);
+        
+        List<PageId> pages = new ArrayList<>();
+        List<byte[]> donnees = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            pages.add(dm.allocPage());
+        }
+        // Ordre volontairement mélangé
+        Collections.reverse(pages);
+        Collections.swap(pages, 1, 4);
+        for (int i = 0; i < pages.size(); i++) {
+            byte[] data = new byte[config.getPageSize()];
+            byte[] msg = ("LOT_" + pages.get(i).getPageIdx()).getBytes();
+            System.arraycopy(msg, 0, data, 0, msg.length);
+            donnees.add(data);
+        }
+        
+        dm.WritePages(pages, donnees);
+        System.out.println("   OK - " + pages.size() + " pages écrites avec WritePages");
+        
+        List<byte[]> lus = new ArrayList<>();
+        for (int i = 0; i < pages.size(); i++) {
+            lus.add(new byte[config.getPageSize()]);
+        }
+        dm.ReadPages(pages, lus);
+        
+        for (int i = 0; i < pages.size(); i++) {
+            byte[] unique = new byte[config.getPageSize()];
+            dm.ReadPage(pages.get(i), unique);
+            if (!Arrays.equals(donnees.get(i), lus.get(i)) || !Arrays.equals(donnees.get(i), unique)) {
+                throw new IOException("Erreur : contenu incorrect pour la page " + pages.get(i).getPageIdx());
+            }
+        }
+        System.out.println("   OK - Pages relues avec ReadPages identiques à ReadPage");
+        dm.finish();
+    }
+    
+    /**
+     * Test 9 : ReadPageAsync / WritePageAsync
+     * Lance plusieurs écritures en même temps, attend leur fin,
+     * puis relit les pages de la même façon et vérifie leur contenu.
+     */
+    private static void testAsync() throws IOException {
+        System.out.println("\n9. Test entrées/sorties asynchrones...");
+        
+        DBConfig config = TestDossiers.configDossier("async");
+        DiskManager dm = new DiskManager(config);
+        
+        int nbPages = 12;
+        PageId[] pages = new PageId[nbPages];
+        ByteBuffer[] ecrits = new ByteBuffer[nbPages];
+        CompletableFuture<?>[] futurs = new CompletableFuture<?>[nbPages];
+        for (int i = 0; i < nbPages; i++) {
+            pages[i] = dm.allocPage();
+            ecrits[i] = ByteBuffer.allocate(config.getPageSize());
+            ecrits[i].put(("ASYNC_" + i).getBytes()).clear();
+            futurs[i] = dm.WritePageAsync(pages[i], ecrits[i]);
+        }
+        CompletableFuture.allOf(futurs).join();
+        System.out.println("   OK - " + nbPages + " écritures asynchrones terminées");
+        
+        ByteBuffer[] lus = new ByteBuffer[nbPages];
+        for (int i = 0; i < nbPages; i++) {
+            lus[i] = ByteBuffer.allocate(config.getPageSize());
+            futurs[i] = dm.ReadPageAsync(pages[i], lus[i]);
+        }
+        CompletableFuture.allOf(futurs).join();
+        
+        for (int i = 0; i < nbPages; i++) {
+            if (!lus[i].equals(ecrits[i])) {
+                throw new IOException("Erreur : contenu incorrect pour la page asynchrone " + i);
+            }
+        }
+        System.out.println("   OK - Pages relues de façon asynchrone identiques");
+        
+        // Une erreur d'entrée/sortie est transmise par le futur
+        try {
+            dm.ReadPageAsync(new PageId(0, 999), ByteBuffer.allocate(config.getPageSize())).join();
+            throw new IOException("Erreur : Exception attendue pour page inexistante !");
+        } catch (CompletionException e) {
+            if (!(e.getCause() instanceof IOException)) {
+                throw e;
+            }
+            System.out.println("   OK - Erreur transmise par le futur : " + e.getCause().getMessage());
+        }
+        dm.finish();
+    }
+    
+    /**
+     * Test 10 : Mode DIRECT
+     * Avec la configuration du fichier (pages trop petites pour O_DIRECT),
+     * le DiskManager doit se replier sur les entrées/sorties standard.
+     * Avec des pages de 4096 octets dans un sous-dossier, les lectures et
+     * écritures (simples et groupées) passent par O_DIRECT si le système
+     * de fichiers l'accepte.
+     */
+    private static void testModeDirect() throws IOException {
+        System.out.println("\n10. Test mode DIRECT...");
+        
+        DBConfig config = TestDossiers.configDossier("direct");
+        config.setIOMode(DiskIOMode.DIRECT);
+        verifierEcritureLecture(config);
+        System.out.println("   OK - Pages de " + config.getPageSize() + " octets : repli sur les entrées/sorties standard");
+        
+        File dossier = TestDossiers.dossierVide("direct4k");
+        DBConfig config4k = new DBConfig(dossier.getPath() + File.separator, 4096,
+                config.getMaxFileCount(), config.getBufferCount(), config.getBufferPolicy());
+        config4k.setIOMode(DiskIOMode.DIRECT);
+        config4k.setExtentPages(4);
+        verifierEcritureLecture(config4k);
+        System.out.println("   OK - Pages de 4096 octets en mode DIRECT");
+    }
+    
+    /**
+     * Test 11 : Compression des pages (dm_compression)
+     * Écrit des pages de tuples complétés par des espaces, réécrit une page
+     * avec des données incompressibles (changement d'emplacement), puis
+     * relit tout après réouverture. Une page allouée jamais écrite est lue à zéro.
+     */
+    private static void testCompression() throws IOException {
+        System.out.println("\n11. Test compression des pages...");
+        
+        DBConfig config = TestDossiers.configBase();
+        File dossier = TestDossiers.dossierVide("compressed");
+        DBConfig configZ = new DBConfig(dossier.getPath() + File.separator, 4096,
+                config.getMaxFileCount(), config.getBufferCount(), config.getBufferPolicy());
+        configZ.setCompression(true);
+        configZ.setExtentPages(4);
+        
+        DiskManager dm = new DiskManager(configZ);
+        List<PageId> pages = new ArrayList<>();
+        List<byte[]> donnees = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            PageId pageId = dm.allocPage();
+            byte[] data = new byte[configZ.getPageSize()];
+            Arrays.fill(data, (byte) ' ');
+            for (int t = 0; t * 64 < data.length; t++) {
+                byte[] tuple = ("tuple " + i + "-" + t + " Dupont Jean").getBytes();
+                System.arraycopy(tuple, 0, data, t * 64, tuple.length);
+            }
+            pages.add(pageId);
+            donnees.add(data);
+        }
+        dm.WritePages(pages, donnees);
+        
+        byte[] aleatoire = new byte[configZ.getPageSize()];
+        new Random(42).nextBytes(aleatoire);
+        dm.WritePage(pages.get(3), aleatoire);
+        donnees.set(3, aleatoire);
+        PageId vide = dm.allocPage();
+        double ratio = dm.getCompressionRatio();
+        long compressNanos = dm.getCompressNanos();
+        dm.finish();
+        
+        dm = new DiskManager(configZ);
+        for (int i = 0; i < pages.size(); i++) {
+            byte[] lu = new byte[configZ.getPageSize()];
+            dm.ReadPage(pages.get(i), lu);
+            if (!Arrays.equals(donnees.get(i), lu)) {
+                throw new IOException("Erreur : contenu incorrect pour la page compressée " + pages.get(i));
+            }
+        }
+        byte[] lu = new byte[configZ.getPageSize()];
+        dm.ReadPage(vide, lu);
+        if (!Arrays.equals(new byte[configZ.getPageSize()], lu)) {
+            throw new IOException("Erreur : une page jamais écrite doit être lue à zéro");
+        }
+        long decompressNanos = dm.getDecompressNanos();
+        
+        // Arrêt brutal : une page allouée avant l'arrêt n'est pas rendue une seconde fois
+        PageId avantArret = dm.allocPage();
+        dm = new DiskManager(configZ);
+        PageId apresArret = dm.allocPage();
+        if (apresArret.equals(avantArret)) {
+            throw new IOException("Erreur : page compressée allouée avant l'arrêt rendue une seconde fois");
+        }
+        dm.finish();
+        
+        System.out.println("   OK - " + pages.size() + " pages relues après réouverture, page jamais écrite lue à zéro");
+        System.out.println("   OK - Page allouée avant un arrêt brutal non rendue une seconde fois : " + apresArret);
+        System.out.printf("   OK - Taux de compression : %.3f (compression %d µs, décompression %d µs)%n",
+                ratio, compressNanos / 1000, decompressNanos / 1000);
+    }
+    
+    /**
+     * Test 12 : Répartition des fichiers de données sur plusieurs dossiers (dm_datapaths)
+     * Les fichiers doivent alterner entre les dossiers, et les écritures
+     * asynchrones groupées réparties par dossier doivent toutes aboutir.
+     */
+    private static void testDataPaths() throws IOException {
+        System.out.println("\n12. Test répartition sur plusieurs dossiers...");
+        
+        DBConfig base = TestDossiers.configBase();
+        File[] dossiers = { TestDossiers.dossierVide("disk0"), TestDossiers.dossierVide("disk1") };
+        DBConfig config = new DBConfig(base.getPath(), base.getPageSize(),
+                base.getMaxFileCount(), base.getBufferCount(), base.getBufferPolicy());
+        config.setDataPaths(Arrays.asList(dossiers[0].getPath() + File.separator, dossiers[1].getPath() + File.separator));
+        config.setMaxFileSize(4L * config.getPageSize());
+        
+        DiskManager dm = new DiskManager(config);
+        List<PageId> pages = new ArrayList<>();
+        List<byte[]> donnees = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            PageId pageId = dm.allocPage();
+            byte[] data = new byte[config.getPageSize()];
+            byte[] msg = ("Disque " + pageId).getBytes();
+            System.arraycopy(msg, 0, data, 0, msg.length);
+            pages.add(pageId);
+            donnees.add(data);
+        }
+        dm.WritePagesAsync(pages, donnees).join();
+        
+        for (int f = 0; f < 3; f++) {
+            if (!new File(dossiers[f % 2], "Data" + f + ".bin").exists()) {
+                throw new IOException("Erreur : Data" + f + ".bin absent de " + dossiers[f % 2]);
+            }
+        }
+        
+        List<CompletableFuture<Void>> lectures = new ArrayList<>();
+        List<ByteBuffer> lus = new ArrayList<>();
+        for (PageId pageId : pages) {
+            ByteBuffer buff = ByteBuffer.allocate(config.getPageSize());
+            lus.add(buff);
+            lectures.add(dm.ReadPageAsync(pageId, buff));
+        }
+        CompletableFuture.allOf(lectures.toArray(new CompletableFuture<?>[0])).join();
+        dm.finish();
+        
+        for (int i = 0; i < pages.size(); i++) {
+            if (!Arrays.equals(donnees.get(i), lus.get(i).array())) {
+                throw new IOException("Erreur : contenu incorrect pour la page " + pages.get(i));
+            }
+        }
+        System.out.println("   OK - 3 fichiers répartis à tour de rôle sur 2 dossiers");
+        System.out.println("   OK - " + pages.size() + " pages écrites et relues en parallèle par dossier");
+    }
+    
+    /**
+     * Test 13 : Arrêt brutal (sans finish()) avec des fichiers pré-étendus
+     * Au redémarrage, une page allouée mais jamais écrite n'est pas rendue une
+     * seconde fois, et la fin pré-étendue jamais allouée n'est pas comptée :
+     * les allocations reprennent après la dernière page allouée.
+     */
+    private static void testArretBrutal() throws IOException {
+        System.out.println("\n13. Test arrêt brutal avec blocs pré-étendus...");
+        
+        DBConfig config = TestDossiers.configDossier("crash");
+        File dossier = new File(config.getPath());
+        config.setExtentPages(8);
+        byte[] data = new byte[config.getPageSize()];
+        Arrays.fill(data, (byte) 7);
+        
+        // Une page écrite, une page allouée mais jamais écrite, puis arrêt brutal
+        DiskManager dm = new DiskManager(config);
+        PageId ecrite = dm.allocPage();
+        dm.WritePage(ecrite, data);
+        dm.allocPage();
+        
+        dm = new DiskManager(config);
+        PageId suivante = dm.allocPage();
+        if (suivante.getFileIdx() != ecrite.getFileIdx() || suivante.getPageIdx() != ecrite.getPageIdx() + 1) {
+            throw new IOException("Erreur : fin pré-étendue comptée comme allouée, page allouée " + suivante);
+        }
+        byte[] lu = new byte[config.getPageSize()];
+        dm.ReadPage(ecrite, lu);
+        if (!Arrays.equals(data, lu)) {
+            throw new IOException("Erreur : page écrite avant l'arrêt perdue");
+        }
+        System.out.println("   OK - Allocations reprises après la dernière page écrite : " + suivante);
+        
+        // Le nombre enregistré par une synchronisation fait foi, même pour une page jamais écrite
+        PageId synchronisee = dm.allocPage();
+        dm.syncFiles();
+        dm = new DiskManager(config);
+        suivante = dm.allocPage();
+        if (suivante.getPageIdx() != synchronisee.getPageIdx() + 1) {
+            throw new IOException("Erreur : page allouée avant la synchronisation rendue une seconde fois, page allouée " + suivante);
+        }
+        System.out.println("   OK - Nombre de pages allouées conservé par la synchronisation");
+        
+        // Le nombre enregistré par finish() fait foi au démarrage suivant
+        dm.WritePage(suivante, data);
+        dm.finish();
+        long longueur = new File(dossier, "Data0.bin").length();
+        dm = new DiskManager(config);
+        PageId apres = dm.allocPage();
+        if (apres.getPageIdx() != suivante.getPageIdx() + 1
+                || longueur != (long) apres.getPageIdx() * config.getPageSize()) {
+            throw new IOException("Erreur : nombre de pages allouées incorrect après finish(), page allouée " + apres);
+        }
+        dm.finish();
+        System.out.println("   OK - Nombre de pages allouées conservé par finish()");
+        
+        // Fichier de l'ancien format (sans carte) : toutes ses pages sont allouées
+        new File(dossier, "Data0.fsm").delete();
+        longueur = new File(dossier, "Data0.bin").length();
+        dm = new DiskManager(config);
+        PageId migree = dm.allocPage();
+        if ((long) migree.getPageIdx() * config.getPageSize() != longueur) {
+            throw new IOException("Erreur : fichier sans carte mal repris, page allouée " + migree);
+        }
+        dm.finish();
+        System.out.println("   OK - Fichier sans carte repris avec toutes ses pages allouées");
+    }
+    
+    /**
+     * Test 14 : Reprise d'un ancien fichier dm.save
+     * Les pages libres de dm.save sont reportées dans les cartes dès le
+     * démarrage, et dm.save est supprimé : après un point de reprise puis un
+     * arrêt brutal, une page libre réallouée entre-temps n'est pas de nouveau
+     * marquée libre.
+     */
+    private static void testMigrationSave() throws IOException {
+        System.out.println("\n14. Test reprise d'un ancien dm.save...");
+        
+        DBConfig config = TestDossiers.configDossier("save");
+        File dossier = new File(config.getPath());
+        
+        DiskManager dm = new DiskManager(config);
+        for (int i = 0; i < 4; i++) {
+            dm.allocPage();
+        }
+        dm.finish();
+        File saveFile = new File(dossier, "dm.save");
+        Files.write(saveFile.toPath(), "0,1\n0,2\n".getBytes());
+        
+        // Une page libre réallouée, un point de reprise (cartes écrites), puis arrêt brutal
+        dm = new DiskManager(config);
+        if (saveFile.exists()) {
+            throw new IOException("Erreur : dm.save conservé après sa reprise");
+        }
+        PageId reprise = dm.allocPage();
+        if (reprise.getPageIdx() != 1) {
+            throw new IOException("Erreur : page libre de dm.save non réutilisée, page allouée " + reprise);
+        }
+        dm.WritePage(reprise, new byte[config.getPageSize()]);
+        dm.syncFiles();
+        
+        dm = new DiskManager(config);
+        PageId libre = dm.allocPage();
+        PageId nouvelle = dm.allocPage();
+        if (libre.getPageIdx() != 2 || nouvelle.getPageIdx() != 4) {
+            throw new IOException("Erreur : page réallouée de nouveau libre, pages allouées " + libre + " " + nouvelle);
+        }
+        dm.finish();
+        System.out.println("   OK - dm.save repris au démarrage puis supprimé");
+    }
+    
+    /**
+     * Écrit puis relit quelques pages (une par une puis en lot) avec la configuration donnée.
+     */
+    private static void verifierEcritureLecture(DBConfig config) throws IOException {
+        DiskManager dm = new DiskManager(config);
+        List<PageId> pages = new ArrayList<>();
+        List<byte[]> donnees = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            PageId pageId = dm.allocPage();
+            byte[] data = new byte[config.getPageSize()];
+            byte[] msg = ("DIRECT_" + pageId.getPageIdx()).getBytes();
+            System.arraycopy(msg, 0, data, 0, msg.length);
+            pages.add(pageId);
+            donnees.add(data);
+        }
+        
+        dm.WritePage(pages.get(0), donnees.get(0));
+        dm.WritePages(pages.subList(1, pages.size()), donnees.subList(1, donnees.size()));
+        dm.finish();
+        
+        dm = new DiskManager(config);
+        List<byte[]> lus = new ArrayList<>();
+        for (int i = 0; i < pages.size(); i++) {
+            lus.add(new byte[config.getPageSize()]);
+        }
+        dm.ReadPages(pages, lus);
+        byte[] unique = new byte[config.getPageSize()];
+        dm.ReadPage(pages.get(0), unique);
+        dm.finish();
+        
+        for (int i = 0; i < pages.size(); i++) {
+            if (!Arrays.equals(donnees.get(i), lus.get(i))) {
+                throw new IOException("Erreur : contenu incorrect pour la page " + pages.get(i).getPageIdx());
+            }
+        }
+        if (!Arrays.equals(donnees.get(0), unique)) {
+            throw new IOException("Erreur : contenu incorrect pour la page " + pages.get(0).getPageIdx());
+        }
+    }
 }
\ No newline at end of file
@@ -1,18 +1,52 @@
 package bdda;
 
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
 public class Frame {
 
-    PageId pageId;
+    volatile PageId pageId;
+    // Contenu de la page dans le tas Java (null avec bm_offheap)
     byte[] buffer;
-    boolean dirty;
-    int pinCount;
+    // Vue sur le contenu de la page : buffer, ou tranche de la zone hors du tas
+    final ByteBuffer data;
+    volatile boolean dirty;
+    // Nombre d'épinglages en cours, modifié sans verrou par GetPage/FreePage
+    final AtomicInteger pinCount;
+    // Verrou du contenu de la page (LatchPage/UnlatchPage)
+    final ReentrantReadWriteLock latch;
+    // Date de dernière utilisation (compteur logique des politiques LRU/MRU)
     long lastAccess;
+    // LSN de la dernière image de la page dans le journal (wal_enabled)
+    volatile long pageLSN;
+    // Lecture anticipée en cours (ou échouée) de la page, null sinon
+    volatile CompletableFuture<Void> pendingLoad;
+    // Page lue par anticipation et pas encore demandée
+    volatile boolean prefetched;
 
     Frame(int pageSize) {
+        this(new byte[pageSize], null);
+    }
+
+    /**
+     * @param data tranche de la zone hors du tas réservée à la frame (une page)
+     */
+    Frame(ByteBuffer data) {
+        this(null, data);
+    }
+
+    private Frame(byte[] buffer, ByteBuffer data) {
         this.pageId = null;
-        this.buffer = new byte[pageSize];
+        this.buffer = buffer;
+        this.data = (buffer != null) ? ByteBuffer.wrap(buffer) : data;
         this.dirty = false;
-        this.pinCount = 0;
-        this.lastAccess = System.currentTimeMillis();
+        this.pinCount = new AtomicInteger();
+        this.latch = new ReentrantReadWriteLock();
+        this.lastAccess = 0;
+        this.pageLSN = 0;
+        this.pendingLoad = null;
+        this.prefetched = false;
     }
 }
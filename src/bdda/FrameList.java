@@ -0,0 +1,129 @@
+package bdda;
+
+import java.util.Arrays;
+
+/**
+ * Liste doublement chaînée d'indices de frames, de la plus récente (tête)
+ * à la plus ancienne (queue), utilisée par les politiques de remplacement.
+ * Les chaînages sont stockés dans des tableaux : ajout, retrait et
+ * déplacement en tête se font en temps constant, sans allocation.
+ * Une frame appartient au plus une fois à la liste.
+ */
+class FrameList {
+
+    private static final int NONE = -1;
+
+    private final int[] prev;
+    private final int[] next;
+    private final boolean[] member;
+    private int head;
+    private int tail;
+    private int size;
+
+    /**
+     * @param frameCount nombre de frames du buffer pool
+     */
+    FrameList(int frameCount) {
+        this.prev = new int[frameCount];
+        this.next = new int[frameCount];
+        this.member = new boolean[frameCount];
+        this.head = NONE;
+        this.tail = NONE;
+        this.size = 0;
+        Arrays.fill(prev, NONE);
+        Arrays.fill(next, NONE);
+    }
+
+    boolean contains(int frameIdx) {
+        return member[frameIdx];
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Ajoute une frame en tête (ou l'y déplace si elle est déjà dans la liste).
+     */
+    void addFirst(int frameIdx) {
+        if (member[frameIdx]) {
+            remove(frameIdx);
+        }
+        prev[frameIdx] = NONE;
+        next[frameIdx] = head;
+        if (head != NONE) {
+            prev[head] = frameIdx;
+        }
+        head = frameIdx;
+        if (tail == NONE) {
+            tail = frameIdx;
+        }
+        member[frameIdx] = true;
+        size++;
+    }
+
+    /**
+     * Retire une frame de la liste (sans effet si elle n'y est pas).
+     */
+    void remove(int frameIdx) {
+        if (!member[frameIdx]) {
+            return;
+        }
+        int p = prev[frameIdx];
+        int n = next[frameIdx];
+        if (p != NONE) {
+            next[p] = n;
+        } else {
+            head = n;
+        }
+        if (n != NONE) {
+            prev[n] = p;
+        } else {
+            tail = p;
+        }
+        prev[frameIdx] = NONE;
+        next[frameIdx] = NONE;
+        member[frameIdx] = false;
+        size--;
+    }
+
+    /**
+     * @return la frame la plus ancienne, ou -1 si la liste est vide
+     */
+    int last() {
+        return tail;
+    }
+
+    /**
+     * @return la frame suivante en allant vers la tête, ou -1 après la tête
+     */
+    int newer(int frameIdx) {
+        return prev[frameIdx];
+    }
+
+    /**
+     * Cherche, en partant de la queue, la plus ancienne frame occupée et non épinglée.
+     *
+     * @param frames frames du buffer pool
+     * @return l'indice de la frame, ou -1 si toutes les frames de la liste sont épinglées
+     */
+    int lastUnpinned(Frame[] frames) {
+        return nextUnpinned(frames, tail);
+    }
+
+    /**
+     * Cherche, en partant d'une frame de la liste vers la tête, la prochaine
+     * frame occupée et non épinglée.
+     *
+     * @param from frame de départ (incluse), ou -1
+     * @return l'indice de la frame, ou -1 s'il n'y en a plus
+     */
+    int nextUnpinned(Frame[] frames, int from) {
+        for (int f = from; f != NONE; f = prev[f]) {
+            if (frames[f].pageId != null && frames[f].pinCount.get() == 0) {
+                return f;
+            }
+        }
+        return NONE;
+    }
+}
@@ -0,0 +1,197 @@
+package bdda;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+
+/**
+ * Carte des pages libres d'un fichier de données DataN.bin.
+ * Le bit i vaut 1 si la page i a été désallouée et peut être réutilisée.
+ * La carte est stockée dans le fichier DataN.fsm : un en-tête (magic et
+ * nombre de pages allouées du fichier de données, -1 s'il n'est pas connu)
+ * suivi des bits, découpés en pages de config.getPageSize() octets (le bit i
+ * est dans l'octet i/8, bit i%8). Seules les pages de la carte modifiées
+ * depuis la dernière sauvegarde sont réécrites par flush().
+ */
+class FreeSpaceMap {
+
+    private static final int MAGIC = 0x46534D31;
+    private static final int HEADER_SIZE = 8;
+
+    private final File file;
+    private final int pageSize;
+    // Bits des pages libres : le mot w couvre les pages [64w, 64w + 63]
+    private long[] words;
+    private int freeCount;
+    // Premier mot pouvant contenir une page libre
+    private int hint;
+    // Nombre de pages allouées du fichier de données (-1 : inconnu)
+    private int allocated;
+    // Pages de DataN.fsm à réécrire, et en-tête à réécrire
+    private final BitSet dirtyPages;
+    private boolean dirtyHeader;
+
+    private FreeSpaceMap(File file, int pageSize, long[] words, int allocated) {
+        this.file = file;
+        this.pageSize = pageSize;
+        this.words = words;
+        this.allocated = allocated;
+        this.dirtyPages = new BitSet();
+        this.dirtyHeader = false;
+        this.hint = 0;
+        this.freeCount = 0;
+        for (long w : words) {
+            freeCount += Long.bitCount(w);
+        }
+    }
+
+    /**
+     * Charge la carte des pages libres depuis son fichier.
+     * Si le fichier n'existe pas, la carte est vide (aucune page libre).
+     *
+     * @param file fichier DataN.fsm
+     * @param pageSize taille d'une page en octets
+     * @return la carte chargée
+     * @throws IOException si erreur lors de la lecture du fichier ou s'il
+     *                     ne commence pas par l'en-tête d'une carte
+     */
+    static FreeSpaceMap load(File file, int pageSize) throws IOException {
+        if (!file.exists()) {
+            return new FreeSpaceMap(file, pageSize, new long[0], -1);
+        }
+
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        ByteBuffer header = ByteBuffer.wrap(bytes);
+        if (bytes.length < HEADER_SIZE || header.getInt(0) != MAGIC) {
+            throw new IOException("Carte des pages libres invalide : " + file.getName());
+        }
+        long[] words = new long[(bytes.length - HEADER_SIZE + 7) / 8];
+        for (int i = HEADER_SIZE; i < bytes.length; i++) {
+            words[(i - HEADER_SIZE) / 8] |= (bytes[i] & 0xFFL) << (((i - HEADER_SIZE) % 8) * 8);
+        }
+        return new FreeSpaceMap(file, pageSize, words, header.getInt(4));
+    }
+
+    /**
+     * @return le nombre de pages allouées du fichier de données enregistré
+     *         dans la carte, ou -1 s'il n'est pas connu
+     */
+    int getAllocated() {
+        return allocated;
+    }
+
+    /**
+     * Enregistre le nombre de pages allouées du fichier de données
+     * (écrit dans DataN.fsm par le prochain flush()).
+     *
+     * @param allocated nombre de pages allouées
+     */
+    void setAllocated(int allocated) {
+        if (this.allocated != allocated) {
+            this.allocated = allocated;
+            dirtyHeader = true;
+        }
+    }
+
+    /**
+     * @return le nombre de pages libres dans le fichier
+     */
+    int getFreeCount() {
+        return freeCount;
+    }
+
+    /**
+     * @param pageIdx indice de la page dans le fichier
+     * @return true si la page est marquée libre
+     */
+    boolean isFree(int pageIdx) {
+        int w = pageIdx >>> 6;
+        return w < words.length && (words[w] & (1L << pageIdx)) != 0;
+    }
+
+    /**
+     * Marque une page comme libre.
+     *
+     * @param pageIdx indice de la page dans le fichier (ne doit pas déjà être libre)
+     */
+    void markFree(int pageIdx) {
+        int w = pageIdx >>> 6;
+        if (w >= words.length) {
+            long[] grown = new long[Math.max(w + 1, words.length * 2)];
+            System.arraycopy(words, 0, grown, 0, words.length);
+            words = grown;
+        }
+        words[w] |= 1L << pageIdx;
+        freeCount++;
+        hint = Math.min(hint, w);
+        dirtyPages.set(pageIdx / 8 / pageSize);
+    }
+
+    /**
+     * Retire de la carte la page libre de plus petit indice.
+     * Le parcours reprend au premier mot non vide connu : le coût est
+     * constant en moyenne sur une suite d'allocations.
+     *
+     * @return l'indice de la page retirée, ou -1 s'il n'y a aucune page libre
+     */
+    int takeFree() {
+        if (freeCount == 0) {
+            return -1;
+        }
+        while (words[hint] == 0) {
+            hint++;
+        }
+        int pageIdx = (hint << 6) + Long.numberOfTrailingZeros(words[hint]);
+        words[hint] &= words[hint] - 1;
+        freeCount--;
+        dirtyPages.set(pageIdx / 8 / pageSize);
+        return pageIdx;
+    }
+
+    /**
+     * Écrit dans DataN.fsm l'en-tête et les pages de la carte modifiés depuis
+     * la dernière sauvegarde, puis force l'écriture sur le disque : le nombre
+     * de pages allouées enregistré survit à un arrêt brutal.
+     *
+     * @throws IOException si erreur lors de l'écriture du fichier
+     */
+    void flush() throws IOException {
+        if (dirtyPages.isEmpty() && !dirtyHeader) {
+            return;
+        }
+
+        // Un nouveau fichier commence par son en-tête
+        boolean writeHeader = dirtyHeader || !file.exists();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            if (writeHeader) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(allocated);
+                header.flip();
+                long offset = 0;
+                while (header.hasRemaining()) {
+                    offset += channel.write(header, offset);
+                }
+            }
+            byte[] page = new byte[pageSize];
+            for (int p = dirtyPages.nextSetBit(0); p >= 0; p = dirtyPages.nextSetBit(p + 1)) {
+                for (int i = 0; i < pageSize; i++) {
+                    long byteIdx = (long) p * pageSize + i;
+                    int w = (int) (byteIdx / 8);
+                    page[i] = (w < words.length) ? (byte) (words[w] >>> ((byteIdx % 8) * 8)) : 0;
+                }
+
+                ByteBuffer src = ByteBuffer.wrap(page);
+                long offset = HEADER_SIZE + (long) p * pageSize;
+                while (src.hasRemaining()) {
+                    offset += channel.write(src, offset);
+                }
+            }
+            channel.force(false);
+        }
+        dirtyPages.clear();
+        dirtyHeader = false;
+    }
+}
@@ -0,0 +1,133 @@
+package bdda;
+
+import java.util.Arrays;
+
+/**
+ * Historique borné de pages sorties du buffer pool (liste « fantôme »),
+ * de la plus récente à la plus ancienne. Chaque page y est identifiée par
+ * sa clé PageTable et peut porter une valeur (par exemple la date de son
+ * dernier accès). Recherche, ajout et retrait se font en temps constant,
+ * sans allocation ; quand l'historique est plein, la page la plus ancienne
+ * en sort pour laisser la place.
+ */
+class GhostList {
+
+    private static final int NONE = -1;
+
+    private final long[] keys;
+    private final long[] values;
+    private final int[] prev;
+    private final int[] next;
+    private final PageTable index;
+    // Pile des emplacements libres
+    private final int[] freeSlots;
+    private int freeCount;
+    private int head;
+    private int tail;
+
+    /**
+     * @param capacity nombre maximal de pages gardées
+     */
+    GhostList(int capacity) {
+        int cap = Math.max(1, capacity);
+        this.keys = new long[cap];
+        this.values = new long[cap];
+        this.prev = new int[cap];
+        this.next = new int[cap];
+        this.index = new PageTable(cap);
+        this.freeSlots = new int[cap];
+        for (int i = 0; i < cap; i++) {
+            freeSlots[i] = cap - 1 - i;
+        }
+        this.freeCount = cap;
+        this.head = NONE;
+        this.tail = NONE;
+        Arrays.fill(prev, NONE);
+        Arrays.fill(next, NONE);
+    }
+
+    int size() {
+        return keys.length - freeCount;
+    }
+
+    int capacity() {
+        return keys.length;
+    }
+
+    boolean contains(long key) {
+        return index.get(key) >= 0;
+    }
+
+    /**
+     * Ajoute une page en tête ; la plus ancienne sort si l'historique est plein.
+     *
+     * @param key clé de la page (absente de l'historique)
+     * @param value valeur associée
+     */
+    void addFirst(long key, long value) {
+        if (freeCount == 0) {
+            removeLast();
+        }
+        int slot = freeSlots[--freeCount];
+        keys[slot] = key;
+        values[slot] = value;
+        prev[slot] = NONE;
+        next[slot] = head;
+        if (head != NONE) {
+            prev[head] = slot;
+        }
+        head = slot;
+        if (tail == NONE) {
+            tail = slot;
+        }
+        index.put(key, slot);
+    }
+
+    /**
+     * Retire une page de l'historique.
+     *
+     * @param key clé de la page
+     * @return la valeur associée, ou -1 si la page n'était pas dans l'historique
+     */
+    long remove(long key) {
+        int slot = index.remove(key);
+        if (slot < 0) {
+            return -1;
+        }
+        unlink(slot);
+        return values[slot];
+    }
+
+    /**
+     * Retire la page la plus ancienne.
+     *
+     * @return sa clé, ou -1 si l'historique est vide
+     */
+    long removeLast() {
+        if (tail == NONE) {
+            return -1;
+        }
+        int slot = tail;
+        index.remove(keys[slot]);
+        unlink(slot);
+        return keys[slot];
+    }
+
+    private void unlink(int slot) {
+        int p = prev[slot];
+        int n = next[slot];
+        if (p != NONE) {
+            next[p] = n;
+        } else {
+            head = n;
+        }
+        if (n != NONE) {
+            prev[n] = p;
+        } else {
+            tail = p;
+        }
+        prev[slot] = NONE;
+        next[slot] = NONE;
+        freeSlots[freeCount++] = slot;
+    }
+}
@@ -0,0 +1,222 @@
+package bdda;
+
+import java.util.Arrays;
+
+/**
+ * Politique LRU-2 (LRU-K avec K = 2) : la frame choisie est celle dont
+ * l'avant-dernier accès est le plus ancien. Une page accédée une seule fois
+ * passe avant toutes les autres (par date de dernier accès) : une page lue
+ * une fois par un parcours séquentiel ne chasse pas les pages réutilisées.
+ *
+ * La date du dernier accès d'une page remplacée est gardée dans un
+ * historique (au plus une page par frame) : rechargée ensuite, la page
+ * retrouve son avant-dernier accès au lieu de repartir comme une page neuve.
+ *
+ * Les frames occupées sont rangées dans un tas ordonné par (avant-dernier
+ * accès, dernier accès) : le choix coûte O(log n), plus O(log n) par frame
+ * épinglée écartée.
+ */
+class LRU2Replacer implements Replacer {
+
+    private static final int NONE = -1;
+
+    private final Frame[] frames;
+    private long clock;
+    // Dates du dernier et de l'avant-dernier accès de chaque frame (0 = aucun)
+    private final long[] last;
+    private final long[] previous;
+    // Clé de la page chargée dans chaque frame d'après les appels reçus, -1 si aucune
+    private final long[] residentKey;
+    // Tas des frames occupées et position de chaque frame dans le tas
+    private final int[] heap;
+    private final int[] position;
+    private int heapSize;
+    // Frames épinglées écartées pendant un choix de victime
+    private final int[] skipped;
+    // Pages remplacées -> date de leur dernier accès
+    private final GhostList history;
+
+    /**
+     * @param frames frames du buffer pool
+     * @param seedPresent true pour reprendre les pages déjà présentes,
+     *        false si l'appelant les signale ensuite par recordLoad
+     */
+    LRU2Replacer(Frame[] frames, boolean seedPresent) {
+        int n = frames.length;
+        this.frames = frames;
+        this.clock = 0;
+        this.last = new long[n];
+        this.previous = new long[n];
+        this.residentKey = new long[n];
+        this.heap = new int[n];
+        this.position = new int[n];
+        this.heapSize = 0;
+        this.skipped = new int[n];
+        this.history = new GhostList(n);
+        Arrays.fill(residentKey, NONE);
+        Arrays.fill(position, NONE);
+
+        // Pages déjà présentes (changement de politique) : un seul accès connu
+        for (int i = 0; i < n && seedPresent; i++) {
+            if (frames[i].pageId != null) {
+                residentKey[i] = PageTable.key(frames[i].pageId);
+                last[i] = ++clock;
+                push(i);
+            }
+        }
+    }
+
+    @Override
+    public void recordLoad(int frameIdx) {
+        if (residentKey[frameIdx] != NONE) {
+            // La page précédente de la frame a été remplacée
+            removeFromHeap(frameIdx);
+            history.addFirst(residentKey[frameIdx], last[frameIdx]);
+        }
+        long key = PageTable.key(frames[frameIdx].pageId);
+        residentKey[frameIdx] = key;
+        long retained = history.remove(key);
+        previous[frameIdx] = (retained > 0) ? retained : 0;
+        last[frameIdx] = ++clock;
+        push(frameIdx);
+    }
+
+    @Override
+    public void recordAccess(int frameIdx) {
+        previous[frameIdx] = last[frameIdx];
+        last[frameIdx] = ++clock;
+        if (position[frameIdx] != NONE) {
+            // Les deux dates ont augmenté : la frame descend dans le tas
+            siftDown(position[frameIdx]);
+        }
+    }
+
+    @Override
+    public void recordRelease(int frameIdx) {
+    }
+
+    @Override
+    public boolean isFrequent(int frameIdx) {
+        return previous[frameIdx] != 0;
+    }
+
+    @Override
+    public int selectVictim(long incomingKey) {
+        int skippedCount = 0;
+        int victim = NONE;
+        while (heapSize > 0) {
+            int f = heap[0];
+            Frame frame = frames[f];
+            removeFromHeap(f);
+            if (frame.pageId == null) {
+                // Frame vidée (lecture échouée) : elle reviendra avec recordLoad
+                continue;
+            }
+            skipped[skippedCount++] = f;
+            if (frame.pinCount.get() == 0) {
+                victim = f;
+                break;
+            }
+        }
+        // Le choix ne modifie pas le tas : la victime n'en sort qu'au rechargement de sa frame
+        for (int i = 0; i < skippedCount; i++) {
+            push(skipped[i]);
+        }
+        return victim;
+    }
+
+    private boolean before(int a, int b) {
+        if (previous[a] != previous[b]) {
+            return previous[a] < previous[b];
+        }
+        return last[a] < last[b];
+    }
+
+    private void push(int frameIdx) {
+        heap[heapSize] = frameIdx;
+        position[frameIdx] = heapSize;
+        heapSize++;
+        siftUp(heapSize - 1);
+    }
+
+    private void removeFromHeap(int frameIdx) {
+        int pos = position[frameIdx];
+        if (pos == NONE) {
+            return;
+        }
+        position[frameIdx] = NONE;
+        heapSize--;
+        if (pos == heapSize) {
+            return;
+        }
+        int moved = heap[heapSize];
+        heap[pos] = moved;
+        position[moved] = pos;
+        siftUp(pos);
+        siftDown(position[moved]);
+    }
+
+    private void siftUp(int pos) {
+        int f = heap[pos];
+        while (pos > 0) {
+            int parent = (pos - 1) / 2;
+            if (!before(f, heap[parent])) {
+                break;
+            }
+            heap[pos] = heap[parent];
+            position[heap[pos]] = pos;
+            pos = parent;
+        }
+        heap[pos] = f;
+        position[f] = pos;
+    }
+
+    private void siftDown(int pos) {
+        int f = heap[pos];
+        while (true) {
+            int child = 2 * pos + 1;
+            if (child >= heapSize) {
+                break;
+            }
+            if (child + 1 < heapSize && before(heap[child + 1], heap[child])) {
+                child++;
+            }
+            if (!before(heap[child], f)) {
+                break;
+            }
+            heap[pos] = heap[child];
+            position[heap[pos]] = pos;
+            pos = child;
+        }
+        heap[pos] = f;
+        position[f] = pos;
+    }
+
+    @Override
+    public int peekVictims(int[] candidates, int max) {
+        // Sélection successive dans le tas, sans le modifier
+        int count = 0;
+        int previousChoice = NONE;
+        while (count < max) {
+            int best = NONE;
+            for (int i = 0; i < heapSize; i++) {
+                int f = heap[i];
+                if (frames[f].pageId == null || frames[f].pinCount.get() > 0) {
+                    continue;
+                }
+                if (previousChoice != NONE && !before(previousChoice, f)) {
+                    continue;
+                }
+                if (best == NONE || before(f, best)) {
+                    best = f;
+                }
+            }
+            if (best == NONE) {
+                break;
+            }
+            candidates[count++] = best;
+            previousChoice = best;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,86 @@
+package bdda;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Politiques LRU et MRU : la frame choisie est celle dont la page a été
+ * utilisée (chargée, demandée ou libérée) le moins, ou le plus, récemment.
+ * Les dates d'utilisation (Frame.lastAccess) sont les valeurs d'un compteur
+ * incrémenté à chaque utilisation ; des frames chargées sous une autre
+ * politique peuvent toutes avoir la date 0. Le choix parcourt toutes les frames.
+ */
+class LRUReplacer implements Replacer {
+
+    private final Frame[] frames;
+    private final boolean mostRecent;
+    private long clock;
+
+    /**
+     * @param frames frames du buffer pool
+     * @param mostRecent true pour MRU, false pour LRU
+     */
+    LRUReplacer(Frame[] frames, boolean mostRecent) {
+        this.frames = frames;
+        this.mostRecent = mostRecent;
+        this.clock = 0;
+        for (Frame f : frames) {
+            clock = Math.max(clock, f.lastAccess);
+        }
+    }
+
+    @Override
+    public void recordLoad(int frameIdx) {
+        frames[frameIdx].lastAccess = ++clock;
+    }
+
+    @Override
+    public void recordAccess(int frameIdx) {
+        frames[frameIdx].lastAccess = ++clock;
+    }
+
+    @Override
+    public void recordRelease(int frameIdx) {
+        frames[frameIdx].lastAccess = ++clock;
+    }
+
+    @Override
+    public int selectVictim(long incomingKey) {
+        int victim = -1;
+        for (int i = 0; i < frames.length; i++) {
+            Frame f = frames[i];
+            if (f.pageId == null || f.pinCount.get() > 0) {
+                continue;
+            }
+            if (victim < 0 || (mostRecent ? f.lastAccess > frames[victim].lastAccess
+                                          : f.lastAccess < frames[victim].lastAccess)) {
+                victim = i;
+            }
+        }
+        return victim;
+    }
+
+    @Override
+    public int peekVictims(int[] candidates, int max) {
+        // Un seul parcours des frames, puis un tri par date d'utilisation
+        // (tri stable : les frames à égalité restent dans l'ordre des indices)
+        Integer[] order = new Integer[frames.length];
+        long[] dates = new long[frames.length];
+        int count = 0;
+        for (int i = 0; i < frames.length; i++) {
+            Frame f = frames[i];
+            if (f.pageId == null || f.pinCount.get() > 0) {
+                continue;
+            }
+            dates[i] = f.lastAccess;
+            order[count++] = i;
+        }
+        Comparator<Integer> byDate = Comparator.comparingLong(i -> dates[i]);
+        Arrays.sort(order, 0, count, mostRecent ? byDate.reversed() : byDate);
+        int n = Math.min(count, max);
+        for (int k = 0; k < n; k++) {
+            candidates[k] = order[k];
+        }
+        return n;
+    }
+}
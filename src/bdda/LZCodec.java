@@ -0,0 +1,194 @@
+package bdda;
+
+import java.util.Arrays;
+
+/**
+ * Compresseur LZ77 simple et rapide (format proche de LZ4), utilisé pour
+ * compresser les pages en mode dm_compression.
+ * Les données sont une suite de séquences : un octet de contrôle
+ * (4 bits de longueur de littéraux, 4 bits de longueur de correspondance - 4),
+ * les octets supplémentaires de longueur (255 par octet), les littéraux,
+ * puis la distance de la correspondance sur 2 octets et ses octets
+ * supplémentaires de longueur. La dernière séquence ne contient que des littéraux.
+ * Les longues suites d'espaces (colonnes CHAR/VARCHAR complétées) deviennent
+ * quelques octets.
+ */
+final class LZCodec {
+
+    private static final int MIN_MATCH = 4;
+    private static final int HASH_BITS = 12;
+    private static final int MAX_DISTANCE = 0xFFFF;
+
+    // Table de hachage réutilisée par thread (positions + 1, 0 = vide)
+    private static final ThreadLocal<int[]> hashTable = ThreadLocal.withInitial(() -> new int[1 << HASH_BITS]);
+
+    private LZCodec() {
+    }
+
+    /**
+     * Taille maximale des données compressées pour une entrée de len octets.
+     *
+     * @param len taille des données à compresser
+     * @return taille à prévoir pour le buffer de destination
+     */
+    static int maxCompressedLength(int len) {
+        return len + len / 255 + 16;
+    }
+
+    /**
+     * Compresse src[srcOff, srcOff + len) dans dst à partir de l'indice dstOff.
+     *
+     * @param src données à compresser
+     * @param srcOff début des données
+     * @param len nombre d'octets à compresser
+     * @param dst buffer de destination (au moins maxCompressedLength(len) octets après dstOff)
+     * @param dstOff début de la zone de destination
+     * @return nombre d'octets écrits dans dst
+     */
+    static int compress(byte[] src, int srcOff, int len, byte[] dst, int dstOff) {
+        // Table plus petite pour les petites pages : moins d'octets à remettre à zéro
+        int hashBits = Math.max(8, Math.min(HASH_BITS, 32 - Integer.numberOfLeadingZeros(len)));
+        int[] table = hashTable.get();
+        Arrays.fill(table, 0, 1 << hashBits, 0);
+
+        int end = srcOff + len;
+        int matchLimit = end - MIN_MATCH;
+        int anchor = srcOff;
+        int ip = srcOff;
+        int op = dstOff;
+
+        while (ip <= matchLimit) {
+            int h = hash(src, ip, hashBits);
+            int ref = table[h] - 1;
+            table[h] = ip + 1;
+
+            if (ref < srcOff || ip - ref > MAX_DISTANCE || !same4(src, ref, ip)) {
+                ip++;
+                continue;
+            }
+
+            int matchLen = MIN_MATCH;
+            while (ip + matchLen < end && src[ref + matchLen] == src[ip + matchLen]) {
+                matchLen++;
+            }
+
+            op = writeSequence(src, anchor, ip - anchor, dst, op, ip - ref, matchLen);
+            ip += matchLen;
+            anchor = ip;
+        }
+
+        // Dernière séquence : littéraux restants, sans correspondance
+        int litLen = end - anchor;
+        int token = Math.min(litLen, 15) << 4;
+        dst[op++] = (byte) token;
+        op = writeLength(litLen, dst, op);
+        System.arraycopy(src, anchor, dst, op, litLen);
+        return op + litLen - dstOff;
+    }
+
+    /**
+     * Décompresse src[srcOff, srcOff + len) dans dst[dstOff, dstOff + dstLen).
+     *
+     * @param src données compressées
+     * @param srcOff début des données compressées
+     * @param len nombre d'octets compressés
+     * @param dst buffer de destination
+     * @param dstOff début de la zone de destination
+     * @param dstLen taille attendue des données décompressées
+     * @throws IllegalArgumentException si les données compressées sont corrompues
+     */
+    static void decompress(byte[] src, int srcOff, int len, byte[] dst, int dstOff, int dstLen) {
+        int ip = srcOff;
+        int end = srcOff + len;
+        int op = dstOff;
+        int dstEnd = dstOff + dstLen;
+
+        try {
+            while (ip < end) {
+                int token = src[ip++] & 0xFF;
+
+                int litLen = token >>> 4;
+                if (litLen == 15) {
+                    int b;
+                    do {
+                        b = src[ip++] & 0xFF;
+                        litLen += b;
+                    } while (b == 255);
+                }
+                if (op + litLen > dstEnd || ip + litLen > end) {
+                    throw new IllegalArgumentException("Page compressée corrompue (littéraux hors limites)");
+                }
+                System.arraycopy(src, ip, dst, op, litLen);
+                ip += litLen;
+                op += litLen;
+
+                if (ip >= end) {
+                    break;
+                }
+
+                int distance = (src[ip] & 0xFF) | ((src[ip + 1] & 0xFF) << 8);
+                ip += 2;
+                int matchLen = (token & 0x0F);
+                if (matchLen == 15) {
+                    int b;
+                    do {
+                        b = src[ip++] & 0xFF;
+                        matchLen += b;
+                    } while (b == 255);
+                }
+                matchLen += MIN_MATCH;
+
+                int ref = op - distance;
+                if (distance == 0 || ref < dstOff || op + matchLen > dstEnd) {
+                    throw new IllegalArgumentException("Page compressée corrompue (correspondance hors limites)");
+                }
+                // Copie octet par octet : la correspondance peut chevaucher la zone écrite
+                for (int i = 0; i < matchLen; i++) {
+                    dst[op++] = dst[ref++];
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Page compressée corrompue (données tronquées)");
+        }
+
+        if (op != dstEnd) {
+            throw new IllegalArgumentException("Page compressée corrompue (" + (op - dstOff) + " octets au lieu de " + dstLen + ")");
+        }
+    }
+
+    private static int writeSequence(byte[] src, int litStart, int litLen, byte[] dst, int op, int distance, int matchLen) {
+        int ml = matchLen - MIN_MATCH;
+        dst[op++] = (byte) ((Math.min(litLen, 15) << 4) | Math.min(ml, 15));
+        op = writeLength(litLen, dst, op);
+        System.arraycopy(src, litStart, dst, op, litLen);
+        op += litLen;
+        dst[op++] = (byte) distance;
+        dst[op++] = (byte) (distance >>> 8);
+        return writeLength(ml, dst, op);
+    }
+
+    /**
+     * Écrit les octets supplémentaires d'une longueur codée sur 4 bits (si elle vaut 15 ou plus).
+     */
+    private static int writeLength(int len, byte[] dst, int op) {
+        if (len < 15) {
+            return op;
+        }
+        len -= 15;
+        while (len >= 255) {
+            dst[op++] = (byte) 255;
+            len -= 255;
+        }
+        dst[op++] = (byte) len;
+        return op;
+    }
+
+    private static int hash(byte[] b, int i, int hashBits) {
+        int v = (b[i] & 0xFF) | ((b[i + 1] & 0xFF) << 8) | ((b[i + 2] & 0xFF) << 16) | ((b[i + 3] & 0xFF) << 24);
+        return (v * -1640531535) >>> (32 - hashBits);
+    }
+
+    private static boolean same4(byte[] b, int i, int j) {
+        return b[i] == b[j] && b[i + 1] == b[j + 1] && b[i + 2] == b[j + 2] && b[i + 3] == b[j + 3];
+    }
+}
@@ -0,0 +1,582 @@
+package bdda;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+/**
+ * Journal des écritures (write-ahead log) du SGBD, activé par wal_enabled.
+ *
+ * Le BufferManager y ajoute l'image complète d'une page à chaque FreePage(dirty)
+ * et n'écrit une page modifiée dans son fichier de données qu'après avoir forcé
+ * le journal jusqu'à cette image : une modification est durable dès que
+ * commit() a forcé le journal, sans écrire la page elle-même (no-force).
+ * Le DiskManager y ajoute de même, et force, l'image de chaque page écrite
+ * directement par WritePage ou WritePages, hors du buffer pool.
+ *
+ * Le journal est une suite de segments LogN.wal, remplis l'un après l'autre
+ * jusqu'à wal_segmentsize octets. Chaque enregistrement a un numéro (LSN) :
+ * la position de sa fin dans le journal, segments mis bout à bout.
+ * Les enregistrements ajoutés s'accumulent en mémoire ; le premier thread qui
+ * demande à forcer le journal écrit et force tout ce qui s'est accumulé,
+ * les autres attendent : une seule synchronisation (fsync) sert tous les
+ * threads qui ont demandé à forcer pendant la précédente (group commit).
+ *
+ * Un point de reprise (checkpoint), enregistré dans wal.ctl, indique que toutes
+ * les pages journalisées avant lui sont sur le disque ; les segments antérieurs
+ * sont alors supprimés. Au démarrage, recover() réapplique les images de pages
+ * journalisées après le dernier point de reprise (redo).
+ */
+public class LogManager {
+
+    /** Image complète d'une page. */
+    private static final byte PAGE_IMAGE = 1;
+
+    private static final int SEGMENT_MAGIC = 0x57414C31;
+    // magic, taille des pages, LSN du début du segment
+    private static final int SEGMENT_HEADER_SIZE = 16;
+    // longueur des données, CRC, type, fileIdx, pageIdx
+    private static final int RECORD_HEADER_SIZE = 17;
+    private static final int CONTROL_MAGIC = 0x57414C43;
+
+    private final DiskManager diskManager;
+    private final File dir;
+    private final int pageSize;
+    private final long segmentSize;
+    private final CRC32 crc;
+
+    // Segment en cours d'écriture (utilisé seulement par le thread qui force le journal)
+    private FileChannel segment;
+    private int segmentNo;
+    private long segmentStartLsn;
+    private long segmentUsed;
+    // Numéro de chaque segment existant -> LSN de son début
+    private final TreeMap<Integer, Long> segments;
+
+    // Enregistrements ajoutés mais pas encore écrits, et buffer de rechange
+    private ByteBuffer pending;
+    private ByteBuffer spare;
+    private long endLsn;
+    private long flushedLsn;
+    private long checkpointLsn;
+    private boolean flushing;
+    private IOException failure;
+    private long syncCount;
+
+    private LogManager(DiskManager diskManager) {
+        DBConfig config = diskManager.getConfig();
+        this.diskManager = diskManager;
+        this.dir = new File(config.getPath());
+        this.pageSize = config.getPageSize();
+        this.segmentSize = config.getWalSegmentSize();
+        this.crc = new CRC32();
+        this.segments = new TreeMap<>();
+        this.pending = ByteBuffer.allocate(Math.max(4096, 4 * (RECORD_HEADER_SIZE + pageSize)));
+        this.spare = ByteBuffer.allocate(pending.capacity());
+        this.flushing = false;
+        this.failure = null;
+        this.syncCount = 0;
+    }
+
+    /**
+     * Ouvre le journal de la base et réapplique les pages journalisées
+     * depuis le dernier point de reprise (voir recover()).
+     *
+     * @param diskManager gestionnaire des fichiers de données
+     * @return le journal, prêt à recevoir de nouveaux enregistrements
+     * @throws IOException si le journal ne peut pas être lu ou s'il a été
+     *                     écrit avec une autre taille de page
+     */
+    static LogManager open(DiskManager diskManager) throws IOException {
+        LogManager log = new LogManager(diskManager);
+        log.recover();
+        return log;
+    }
+
+    /**
+     * Ajoute au journal l'image complète d'une page modifiée. L'enregistrement
+     * n'est durable qu'après flush() (ou commit()) jusqu'au LSN retourné.
+     *
+     * @param pageId identifiant de la page
+     * @param page contenu de la page (config.getPageSize() octets)
+     * @return le LSN de l'enregistrement
+     */
+    public synchronized long appendPage(PageId pageId, byte[] page) {
+        return append(PAGE_IMAGE, pageId, ByteBuffer.wrap(page));
+    }
+
+    /**
+     * Ajoute au journal l'image complète d'une page modifiée, lue entre la
+     * position et la limite du buffer (qui ne sont pas modifiées).
+     *
+     * @param pageId identifiant de la page
+     * @param page contenu de la page (config.getPageSize() octets restants)
+     * @return le LSN de l'enregistrement
+     */
+    public synchronized long appendPage(PageId pageId, ByteBuffer page) {
+        return append(PAGE_IMAGE, pageId, page);
+    }
+
+    private long append(byte type, PageId pageId, ByteBuffer page) {
+        int len = page.remaining();
+        int size = RECORD_HEADER_SIZE + len;
+        if (pending.remaining() < size) {
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position() + size));
+            pending.flip();
+            grown.put(pending);
+            pending = grown;
+        }
+
+        crc.reset();
+        crc.update(type);
+        crc.update(pageId.getFileIdx() >>> 24);
+        crc.update(pageId.getFileIdx() >>> 16);
+        crc.update(pageId.getFileIdx() >>> 8);
+        crc.update(pageId.getFileIdx());
+        crc.update(pageId.getPageIdx() >>> 24);
+        crc.update(pageId.getPageIdx() >>> 16);
+        crc.update(pageId.getPageIdx() >>> 8);
+        crc.update(pageId.getPageIdx());
+        crc.update(page.duplicate());
+
+        pending.putInt(len).putInt((int) crc.getValue()).put(type)
+                .putInt(pageId.getFileIdx()).putInt(pageId.getPageIdx());
+        pending.put(page.duplicate());
+        endLsn += size;
+        return endLsn;
+    }
+
+    /**
+     * Force le journal sur le disque au moins jusqu'au LSN donné.
+     * Si un autre thread est déjà en train de forcer le journal, attend
+     * la fin de sa synchronisation puis, si nécessaire, force à son tour
+     * tout ce qui a été ajouté entre-temps (group commit).
+     *
+     * @param lsn LSN jusqu'auquel le journal doit être durable
+     * @throws IOException si l'écriture du journal échoue (le journal devient
+     *                     alors inutilisable jusqu'au redémarrage)
+     */
+    public void flush(long lsn) throws IOException {
+        ByteBuffer batch;
+        long batchEnd;
+        synchronized (this) {
+            while (true) {
+                if (failure != null) {
+                    throw new IOException("Journal inutilisable après une erreur d'écriture", failure);
+                }
+                if (flushedLsn >= Math.min(lsn, endLsn)) {
+                    return;
+                }
+                if (!flushing) {
+                    break;
+                }
+                waitFlush();
+            }
+            flushing = true;
+            batch = pending;
+            batch.flip();
+            pending = spare;
+            batchEnd = endLsn;
+        }
+
+        IOException error = null;
+        try {
+            writeBatch(batch);
+        } catch (IOException e) {
+            error = e;
+        }
+
+        synchronized (this) {
+            flushing = false;
+            batch.clear();
+            spare = batch;
+            if (error != null) {
+                failure = error;
+            } else {
+                flushedLsn = batchEnd;
+            }
+            notifyAll();
+        }
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    /**
+     * Rend durables tous les enregistrements ajoutés jusqu'ici.
+     *
+     * @return le LSN jusqu'auquel le journal est durable
+     * @throws IOException si l'écriture du journal échoue
+     */
+    public long commit() throws IOException {
+        long lsn;
+        synchronized (this) {
+            lsn = endLsn;
+        }
+        flush(lsn);
+        return lsn;
+    }
+
+    /**
+     * Établit un point de reprise : force le journal, puis les fichiers de données,
+     * et enregistre dans wal.ctl que tout ce qui précède est sur le disque.
+     * Les segments devenus inutiles sont supprimés. À n'appeler qu'une fois les
+     * pages modifiées écrites dans les fichiers de données (BufferManager.FlushBuffers(),
+     * ou BufferManager.Checkpoint qui appelle checkpoint(long)).
+     *
+     * @return le LSN du point de reprise
+     * @throws IOException si une écriture ou une synchronisation échoue
+     */
+    public long checkpoint() throws IOException {
+        return checkpoint(commit());
+    }
+
+    /**
+     * Établit un point de reprise à un LSN déjà passé (point de reprise
+     * progressif, BufferManager.Checkpoint) : les pages journalisées jusqu'à
+     * lsn doivent être écrites dans les fichiers de données, celles qui l'ont
+     * été après seront réappliquées au prochain démarrage.
+     *
+     * @param lsn LSN du point de reprise (au plus le LSN du dernier enregistrement)
+     * @return lsn
+     * @throws IOException si une écriture ou une synchronisation échoue
+     */
+    public long checkpoint(long lsn) throws IOException {
+        flush(lsn);
+        diskManager.syncFiles();
+        writeControl(lsn);
+
+        List<Integer> obsolete = new ArrayList<>();
+        synchronized (this) {
+            checkpointLsn = Math.max(checkpointLsn, lsn);
+            // Un segment est inutile si le suivant commence avant le point de reprise
+            for (Map.Entry<Integer, Long> e : segments.entrySet()) {
+                Map.Entry<Integer, Long> next = segments.higherEntry(e.getKey());
+                if (next != null && next.getValue() <= checkpointLsn) {
+                    obsolete.add(e.getKey());
+                }
+            }
+            for (Integer no : obsolete) {
+                segments.remove(no);
+            }
+        }
+        for (Integer no : obsolete) {
+            segmentFile(no).delete();
+        }
+        return lsn;
+    }
+
+    /**
+     * Force les enregistrements en attente et ferme le segment courant.
+     * Les pages journalisées depuis le dernier point de reprise seront
+     * réappliquées au prochain démarrage si elles n'ont pas été écrites.
+     *
+     * @throws IOException si l'écriture du journal échoue
+     */
+    public void close() throws IOException {
+        commit();
+        synchronized (this) {
+            if (segment != null) {
+                segment.close();
+                segment = null;
+            }
+        }
+    }
+
+    /**
+     * @return le LSN du dernier enregistrement ajouté
+     */
+    public synchronized long getEndLsn() {
+        return endLsn;
+    }
+
+    /**
+     * @return le LSN jusqu'auquel le journal est durable
+     */
+    public synchronized long getFlushedLsn() {
+        return flushedLsn;
+    }
+
+    /**
+     * @return le LSN du dernier point de reprise
+     */
+    public synchronized long getCheckpointLsn() {
+        return checkpointLsn;
+    }
+
+    /**
+     * @return le nombre de synchronisations (fsync) du journal depuis l'ouverture
+     */
+    public synchronized long getSyncCount() {
+        return syncCount;
+    }
+
+    private void waitFlush() {
+        try {
+            wait();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Écrit un lot d'enregistrements dans le segment courant, en passant au
+     * segment suivant quand il est plein, puis force le segment sur le disque.
+     * Un enregistrement n'est jamais coupé entre deux segments.
+     */
+    private void writeBatch(ByteBuffer batch) throws IOException {
+        int start = batch.position();
+        int pos = start;
+        while (pos < batch.limit()) {
+            int size = RECORD_HEADER_SIZE + batch.getInt(pos);
+            if (segmentUsed + (pos - start) > 0
+                    && SEGMENT_HEADER_SIZE + segmentUsed + (pos - start) + size > segmentSize) {
+                writeChunk(batch, start, pos);
+                start = pos;
+                rollSegment();
+            }
+            pos += size;
+        }
+        writeChunk(batch, start, pos);
+        segment.force(false);
+        synchronized (this) {
+            syncCount++;
+        }
+    }
+
+    private void writeChunk(ByteBuffer batch, int start, int end) throws IOException {
+        if (end == start) {
+            return;
+        }
+        ByteBuffer chunk = batch.duplicate();
+        chunk.limit(end).position(start);
+        writeFully(segment, chunk, SEGMENT_HEADER_SIZE + segmentUsed);
+        segmentUsed += end - start;
+    }
+
+    /**
+     * Ferme le segment courant (après l'avoir forcé) et crée le suivant.
+     */
+    private void rollSegment() throws IOException {
+        segment.force(false);
+        segment.close();
+        createSegment(segmentNo + 1, segmentStartLsn + segmentUsed);
+    }
+
+    private void createSegment(int no, long startLsn) throws IOException {
+        FileChannel channel = FileChannel.open(segmentFile(no).toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        ByteBuffer header = ByteBuffer.allocate(SEGMENT_HEADER_SIZE);
+        header.putInt(SEGMENT_MAGIC).putInt(pageSize).putLong(startLsn).flip();
+        writeFully(channel, header, 0);
+
+        segment = channel;
+        segmentNo = no;
+        segmentStartLsn = startLsn;
+        segmentUsed = 0;
+        synchronized (this) {
+            segments.put(no, startLsn);
+        }
+    }
+
+    private File segmentFile(int no) {
+        return new File(dir, "Log" + no + ".wal");
+    }
+
+    /**
+     * Reprise au démarrage : lit les segments à partir du dernier point de
+     * reprise et réécrit dans les fichiers de données la dernière image de
+     * chaque page : rien ne garantit qu'une écriture faite après l'image a
+     * atteint le disque avant l'arrêt (les images sont complètes, les
+     * réappliquer est sans risque ; toute écriture d'une page, par le buffer
+     * pool ou directe, suit une image de son contenu). Le journal s'arrête au premier
+     * enregistrement incomplet ou corrompu (écriture interrompue), qui est
+     * effacé avec les segments suivants. Si des pages ont été réécrites,
+     * un point de reprise est établi.
+     */
+    private void recover() throws IOException {
+        checkpointLsn = readControl();
+
+        TreeMap<Integer, File> files = new TreeMap<>();
+        File[] list = dir.listFiles();
+        if (list != null) {
+            for (File f : list) {
+                String name = f.getName();
+                if (name.startsWith("Log") && name.endsWith(".wal")) {
+                    try {
+                        files.put(Integer.parseInt(name.substring(3, name.length() - 4)), f);
+                    } catch (NumberFormatException e) {
+                        // Fichier étranger au journal : ignoré
+                    }
+                }
+            }
+        }
+
+        // Dernière image de chaque page depuis le point de reprise
+        Map<PageId, byte[]> redo = new LinkedHashMap<>();
+        long lsn = checkpointLsn;
+        int lastNo = -1;
+        long lastStart = 0;
+        long lastUsed = 0;
+        boolean torn = false;
+
+        for (Map.Entry<Integer, File> e : files.entrySet()) {
+            if (torn) {
+                e.getValue().delete();
+                continue;
+            }
+            try (FileChannel channel = FileChannel.open(e.getValue().toPath(), StandardOpenOption.READ)) {
+                ByteBuffer header = ByteBuffer.allocate(SEGMENT_HEADER_SIZE);
+                if (!readFully(channel, header, 0) || header.getInt(0) != SEGMENT_MAGIC) {
+                    torn = true;
+                    e.getValue().delete();
+                    continue;
+                }
+                if (header.getInt(4) != pageSize) {
+                    throw new IOException("Journal " + e.getValue().getName() + " écrit avec des pages de "
+                            + header.getInt(4) + " octets (pagesize = " + pageSize + ")");
+                }
+                long startLsn = header.getLong(8);
+                if (lastNo >= 0 && startLsn != lastStart + lastUsed) {
+                    // Segment qui ne fait pas suite au précédent : fin du journal
+                    torn = true;
+                    e.getValue().delete();
+                    continue;
+                }
+
+                long used = 0;
+                ByteBuffer recordHeader = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+                byte[] page = new byte[pageSize];
+                while (true) {
+                    recordHeader.clear();
+                    long pos = SEGMENT_HEADER_SIZE + used;
+                    if (!readFully(channel, recordHeader, pos)) {
+                        break;
+                    }
+                    int len = recordHeader.getInt(0);
+                    byte type = recordHeader.get(8);
+                    if (type != PAGE_IMAGE || len != pageSize) {
+                        torn = true;
+                        break;
+                    }
+                    ByteBuffer data = ByteBuffer.wrap(page, 0, len);
+                    if (!readFully(channel, data, pos + RECORD_HEADER_SIZE)) {
+                        torn = true;
+                        break;
+                    }
+                    crc.reset();
+                    crc.update(recordHeader.array(), 8, RECORD_HEADER_SIZE - 8);
+                    crc.update(page, 0, len);
+                    if ((int) crc.getValue() != recordHeader.getInt(4)) {
+                        torn = true;
+                        break;
+                    }
+
+                    used += RECORD_HEADER_SIZE + len;
+                    if (startLsn + used <= checkpointLsn) {
+                        continue;
+                    }
+                    PageId pageId = new PageId(recordHeader.getInt(9), recordHeader.getInt(13));
+                    redo.remove(pageId);
+                    redo.put(pageId, page.clone());
+                }
+                if (channel.size() > SEGMENT_HEADER_SIZE + used) {
+                    // Fin incomplète : une écriture a été interrompue
+                    torn = true;
+                }
+                segments.put(e.getKey(), startLsn);
+                lastNo = e.getKey();
+                lastStart = startLsn;
+                lastUsed = used;
+                lsn = Math.max(lsn, startLsn + used);
+            }
+        }
+
+        int redone = 0;
+        for (Map.Entry<PageId, byte[]> e : redo.entrySet()) {
+            diskManager.redoPage(e.getKey(), e.getValue());
+            redone++;
+        }
+
+        endLsn = lsn;
+        flushedLsn = lsn;
+        if (lastNo >= 0) {
+            segment = FileChannel.open(segmentFile(lastNo).toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+            // Efface la fin incomplète éventuelle
+            segment.truncate(SEGMENT_HEADER_SIZE + lastUsed);
+            segmentNo = lastNo;
+            segmentStartLsn = lastStart;
+            segmentUsed = lastUsed;
+        } else {
+            createSegment(0, lsn);
+        }
+
+        if (redone > 0 || torn) {
+            checkpoint();
+        }
+    }
+
+    /**
+     * @return le LSN du dernier point de reprise enregistré dans wal.ctl (0 s'il n'existe pas)
+     */
+    private long readControl() throws IOException {
+        File control = new File(dir, "wal.ctl");
+        if (!control.exists()) {
+            return 0;
+        }
+        ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(control.toPath()));
+        if (bytes.remaining() < 12 || bytes.getInt(0) != CONTROL_MAGIC) {
+            throw new IOException("Fichier de contrôle du journal invalide : " + control.getAbsolutePath());
+        }
+        return bytes.getLong(4);
+    }
+
+    /**
+     * Enregistre le LSN du point de reprise dans wal.ctl (écrit à côté puis renommé :
+     * un arrêt brutal laisse l'ancien ou le nouveau fichier, jamais un mélange).
+     */
+    private void writeControl(long lsn) throws IOException {
+        File control = new File(dir, "wal.ctl");
+        File tmp = new File(dir, "wal.ctl.tmp");
+        try (FileChannel channel = FileChannel.open(tmp.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer bytes = ByteBuffer.allocate(12);
+            bytes.putInt(CONTROL_MAGIC).putLong(lsn).flip();
+            writeFully(channel, bytes, 0);
+            channel.force(false);
+        }
+        Files.move(tmp.toPath(), control.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer src, long offset) throws IOException {
+        while (src.hasRemaining()) {
+            offset += channel.write(src, offset);
+        }
+    }
+
+    /**
+     * Lit exactement dst.remaining() octets à partir de offset.
+     *
+     * @return false si la fin du fichier est atteinte avant
+     */
+    private static boolean readFully(FileChannel channel, ByteBuffer dst, long offset) throws IOException {
+        while (dst.hasRemaining()) {
+            int n = channel.read(dst, offset);
+            if (n < 0) {
+                return false;
+            }
+            offset += n;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,89 @@
+package bdda;
+
+import java.io.IOException;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Nettoyeur de pages : thread de fond qui écrit à l'avance les pages
+ * modifiées des prochaines victimes du buffer pool (bm_cleanpercent), pour
+ * qu'un GetPage qui doit remplacer une page n'ait plus qu'une lecture à faire.
+ *
+ * Le débit d'écriture est limité à bm_cleanrate pages par seconde (seau à
+ * jetons, rechargé à chaque réveil, au plus 100 ms d'écritures d'avance).
+ * Le thread se réveille toutes les 10 ms, ou plus tôt quand un GetPage a dû
+ * écrire lui-même une victime modifiée.
+ */
+class PageCleaner implements Runnable {
+
+    private static final long INTERVAL_NANOS = 10_000_000L;
+
+    private final BufferManager bufferManager;
+    private final int rate;
+    private final Thread thread;
+    private volatile boolean stopped;
+
+    /**
+     * @param bufferManager buffer pool à nettoyer
+     * @param rate nombre maximal de pages écrites par seconde
+     */
+    PageCleaner(BufferManager bufferManager, int rate) {
+        this.bufferManager = bufferManager;
+        this.rate = rate;
+        this.thread = new Thread(this, "bm-cleaner");
+        this.thread.setDaemon(true);
+        this.stopped = false;
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    /**
+     * Réveille le thread avant la fin de son intervalle.
+     */
+    void wakeUp() {
+        LockSupport.unpark(thread);
+    }
+
+    /**
+     * Arrête le thread et attend sa fin.
+     */
+    void stop() {
+        stopped = true;
+        LockSupport.unpark(thread);
+        boolean interrupted = false;
+        while (thread.isAlive()) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void run() {
+        double maxTokens = Math.max(1.0, rate / 10.0);
+        double tokens = 0;
+        long last = System.nanoTime();
+        while (!stopped) {
+            long now = System.nanoTime();
+            tokens = Math.min(maxTokens, tokens + rate * (now - last) / 1e9);
+            last = now;
+
+            int budget = (int) tokens;
+            if (budget > 0) {
+                try {
+                    tokens -= bufferManager.cleanPages(budget);
+                } catch (IOException e) {
+                    // La page reste modifiée : elle sera écrite au remplacement,
+                    // et l'erreur signalée au GetPage concerné
+                }
+            }
+            LockSupport.parkNanos(this, INTERVAL_NANOS);
+        }
+    }
+}
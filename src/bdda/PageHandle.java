@@ -0,0 +1,184 @@
+package bdda;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Page épinglée par BufferManager.PinPage. Le handle garde la frame de la
+ * page : close la libère directement, sans nouvelle recherche dans la table
+ * des pages, et une seule fois. Les écritures faites par le handle marquent
+ * la page modifiée ; un verrou pris par latch est relâché par close.
+ *
+ * À utiliser dans un try-with-resources :
+ * <pre>
+ * try (PageHandle page = bm.PinPage(pageId)) {
+ *     int n = page.getInt(0);
+ *     page.putInt(0, n + 1);
+ * }
+ * </pre>
+ */
+public final class PageHandle implements AutoCloseable {
+
+    private final BufferManager owner;
+    private final PageId pageId;
+    private final Frame frame;
+    private final int frameIdx;
+    // Vue propre au handle : les positions ne sont pas partagées avec les autres threads
+    private final ByteBuffer data;
+    private boolean dirty;
+    private boolean closed;
+    // 0 : pas de verrou, 1 : partagé, 2 : exclusif
+    private int latchMode;
+    // false si la page a été épinglée avec un anneau (BufferRing)
+    private final boolean track;
+
+    PageHandle(BufferManager owner, PageId pageId, Frame frame, int frameIdx, boolean track) {
+        this.owner = owner;
+        this.pageId = pageId;
+        this.frame = frame;
+        this.frameIdx = frameIdx;
+        this.track = track;
+        this.data = frame.data.duplicate();
+        this.dirty = false;
+        this.closed = false;
+        this.latchMode = 0;
+    }
+
+    public PageId getPageId() {
+        return pageId;
+    }
+
+    /**
+     * @return true si la page a été modifiée par ce handle
+     */
+    public boolean isDirty() {
+        return dirty;
+    }
+
+    /**
+     * Marque la page modifiée (écritures faites hors du handle, par exemple
+     * dans le tableau de GetPage).
+     */
+    public void markDirty() {
+        checkOpen();
+        dirty = true;
+    }
+
+    /**
+     * @return une vue en lecture seule du contenu de la page
+     */
+    public ByteBuffer readBuffer() {
+        checkOpen();
+        return data.asReadOnlyBuffer();
+    }
+
+    /**
+     * @return une vue modifiable du contenu de la page (la page est marquée modifiée)
+     */
+    public ByteBuffer writeBuffer() {
+        checkOpen();
+        dirty = true;
+        return data.duplicate();
+    }
+
+    public byte get(int offset) {
+        checkOpen();
+        return data.get(offset);
+    }
+
+    public void put(int offset, byte value) {
+        checkOpen();
+        data.put(offset, value);
+        dirty = true;
+    }
+
+    public int getInt(int offset) {
+        checkOpen();
+        return data.getInt(offset);
+    }
+
+    public void putInt(int offset, int value) {
+        checkOpen();
+        data.putInt(offset, value);
+        dirty = true;
+    }
+
+    public long getLong(int offset) {
+        checkOpen();
+        return data.getLong(offset);
+    }
+
+    public void putLong(int offset, long value) {
+        checkOpen();
+        data.putLong(offset, value);
+        dirty = true;
+    }
+
+    /**
+     * Copie dst.length octets de la page, à partir de offset, dans dst.
+     */
+    public void get(int offset, byte[] dst) {
+        checkOpen();
+        data.get(offset, dst);
+    }
+
+    /**
+     * Copie src dans la page à partir de offset.
+     */
+    public void put(int offset, byte[] src) {
+        checkOpen();
+        data.put(offset, src);
+        dirty = true;
+    }
+
+    /**
+     * Verrouille le contenu de la page (voir BufferManager.LatchPage) jusqu'à
+     * unlatch ou close.
+     *
+     * @param exclusive true pour un verrou exclusif
+     * @throws IllegalStateException si le handle tient déjà un verrou
+     */
+    public void latch(boolean exclusive) {
+        checkOpen();
+        if (latchMode != 0) {
+            throw new IllegalStateException("Page déjà verrouillée par ce handle");
+        }
+        if (exclusive) {
+            frame.latch.writeLock().lock();
+        } else {
+            frame.latch.readLock().lock();
+        }
+        latchMode = exclusive ? 2 : 1;
+    }
+
+    /**
+     * Relâche le verrou pris par latch (sans effet s'il n'y en a pas).
+     */
+    public void unlatch() {
+        if (latchMode == 2) {
+            frame.latch.writeLock().unlock();
+        } else if (latchMode == 1) {
+            frame.latch.readLock().unlock();
+        }
+        latchMode = 0;
+    }
+
+    /**
+     * Relâche le verrou éventuel et libère la page, modifiée si une écriture
+     * a été faite par le handle. Les appels suivants sont sans effet.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        unlatch();
+        owner.release(pageId, frame, frameIdx, dirty, track);
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("Page déjà libérée : (" + pageId.getFileIdx() + "," + pageId.getPageIdx() + ")");
+        }
+    }
+}
@@ -31,4 +31,31 @@ public class PageId {
     public int getPageIdx() {
         return PageIdx;
     }
+
+    /**
+     * Deux PageId sont égaux s'ils désignent la même page du même fichier
+     * @param obj l'objet à comparer
+     * @return true si obj est un PageId avec les mêmes indices
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof PageId)) {
+            return false;
+        }
+        PageId other = (PageId) obj;
+        return FileIdx == other.FileIdx && PageIdx == other.PageIdx;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * FileIdx + PageIdx;
+    }
+
+    @Override
+    public String toString() {
+        return "(" + FileIdx + "," + PageIdx + ")";
+    }
 }
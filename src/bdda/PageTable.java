@@ -0,0 +1,159 @@
+package bdda;
+
+import java.util.Arrays;
+
+/**
+ * Table des pages présentes dans le buffer pool : associe l'identifiant
+ * d'une page, compacté en un long (fileIdx sur les 32 bits de poids fort,
+ * pageIdx sur les 32 bits de poids faible), à l'indice de sa frame.
+ * Table à adressage ouvert et sondage linéaire, dimensionnée d'après le
+ * nombre de frames (recopiée par resized quand il change) : recherche,
+ * insertion et suppression n'allouent rien. Une suppression décale les entrées suivantes au lieu de
+ * laisser une case « supprimée » : les recherches infructueuses restent
+ * courtes même après de nombreux remplacements de pages.
+ */
+class PageTable {
+
+    // Aucune page n'a fileIdx = pageIdx = -1
+    private static final long EMPTY = -1L;
+
+    private final long[] keys;
+    private final int[] values;
+    private final int mask;
+    private int size;
+
+    /**
+     * @param maxEntries nombre maximal de pages dans la table (nombre de frames)
+     */
+    PageTable(int maxEntries) {
+        // Au plus à moitié pleine : sondages courts
+        int capacity = Integer.highestOneBit(Math.max(2, maxEntries) * 2 - 1) << 1;
+        this.keys = new long[capacity];
+        this.values = new int[capacity];
+        this.mask = capacity - 1;
+        this.size = 0;
+        Arrays.fill(keys, EMPTY);
+    }
+
+    /**
+     * @return la clé compactée de la page (fileIdx, pageIdx)
+     */
+    static long key(int fileIdx, int pageIdx) {
+        return ((long) fileIdx << 32) | (pageIdx & 0xFFFFFFFFL);
+    }
+
+    static long key(PageId pageId) {
+        return key(pageId.getFileIdx(), pageId.getPageIdx());
+    }
+
+    /**
+     * @param key clé compactée d'une page
+     * @return l'indice de la frame de la page, ou -1 si elle n'est pas dans la table
+     */
+    int get(long key) {
+        for (int slot = slot(key); keys[slot] != EMPTY; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return values[slot];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Associe une page à une frame (remplace l'association existante).
+     *
+     * @param key clé compactée de la page
+     * @param frameIdx indice de la frame
+     */
+    void put(long key, int frameIdx) {
+        int slot = slot(key);
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == key) {
+                values[slot] = frameIdx;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = frameIdx;
+        size++;
+    }
+
+    /**
+     * Retire une page de la table.
+     *
+     * @param key clé compactée de la page
+     * @return l'indice de la frame de la page, ou -1 si elle n'était pas dans la table
+     */
+    int remove(long key) {
+        int slot = slot(key);
+        while (keys[slot] != key) {
+            if (keys[slot] == EMPTY) {
+                return -1;
+            }
+            slot = (slot + 1) & mask;
+        }
+        int frameIdx = values[slot];
+        size--;
+
+        // Décalage arrière : ramène dans le trou les entrées qui ne sont plus
+        // atteignables depuis leur case d'origine
+        int hole = slot;
+        for (int next = (hole + 1) & mask; keys[next] != EMPTY; next = (next + 1) & mask) {
+            int home = slot(keys[next]);
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                keys[hole] = keys[next];
+                values[hole] = values[next];
+                hole = next;
+            }
+        }
+        keys[hole] = EMPTY;
+        return frameIdx;
+    }
+
+    /**
+     * @param maxEntries nombre maximal de pages de la nouvelle table (au moins size())
+     * @return une copie de la table dimensionnée pour maxEntries pages
+     */
+    PageTable resized(int maxEntries) {
+        PageTable copy = new PageTable(maxEntries);
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != EMPTY) {
+                copy.put(keys[slot], values[slot]);
+            }
+        }
+        return copy;
+    }
+
+    /**
+     * Vide la table.
+     */
+    void clear() {
+        Arrays.fill(keys, EMPTY);
+        size = 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return le nombre de cases de la table (pour parcourir ses entrées)
+     */
+    int capacity() {
+        return keys.length;
+    }
+
+    /**
+     * @param slot indice d'une case, entre 0 et capacity() - 1
+     * @return l'indice de la frame de la page rangée dans la case, ou -1 si la case est vide
+     */
+    int frameAt(int slot) {
+        return (keys[slot] == EMPTY) ? -1 : values[slot];
+    }
+
+    private int slot(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+}
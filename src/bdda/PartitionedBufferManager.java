@@ -0,0 +1,495 @@
+package bdda;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Buffer pool découpé en bm_partitions sous-pools indépendants. Chaque page
+ * appartient toujours à la même partition, choisie par un hachage de son
+ * PageId ; chaque partition est un BufferManager complet (frames, table des
+ * pages, état de la politique de remplacement et verrous) : les threads qui
+ * demandent des pages de partitions différentes ne partagent aucun verrou.
+ * S'utilise partout où un BufferManager est attendu.
+ *
+ * Avec bm_borrowframes, une partition dont toutes les frames sont épinglées
+ * emprunte une frame à la partition qui en a le plus, plutôt que d'échouer.
+ * Une partition ne descend pas sous la moitié de sa part initiale.
+ *
+ * La lecture anticipée (bm_readahead) n'est pas utilisée : les pages
+ * consécutives d'un fichier sont réparties entre les partitions.
+ */
+public class PartitionedBufferManager extends BufferManager {
+
+    private final BufferManager[] partitions;
+    // Nombre minimal de frames d'une partition prêteuse
+    private final int[] minFrames;
+    // Un emprunt à la fois
+    private final ReentrantLock borrowLock;
+    private final Map<PageId, Frame> pageTableView;
+
+    public PartitionedBufferManager(DBConfig config, DiskManager diskManager) {
+        // Façade sans frames : toutes les pages sont dans les partitions
+        super(config, diskManager, 0, false);
+        int count = config.getPartitionCount();
+        if (config.getBufferCount() < count) {
+            throw new IllegalArgumentException("bm_buffercount (" + config.getBufferCount()
+                    + ") inférieur au nombre de partitions (" + count + ")");
+        }
+        this.partitions = new BufferManager[count];
+        this.minFrames = new int[count];
+        int[] shares = shares(config.getBufferCount());
+        for (int i = 0; i < count; i++) {
+            partitions[i] = new BufferManager(config, diskManager, shares[i], false);
+            minFrames[i] = Math.max(1, shares[i] / 2);
+        }
+        this.borrowLock = new ReentrantLock();
+        this.pageTableView = new PartitionedView();
+    }
+
+    /**
+     * Répartit les frames entre les partitions (le reste aux premières).
+     */
+    private int[] shares(int frameCount) {
+        int[] shares = new int[partitions.length];
+        for (int i = 0; i < shares.length; i++) {
+            shares[i] = frameCount / shares.length + ((i < frameCount % shares.length) ? 1 : 0);
+        }
+        return shares;
+    }
+
+    /**
+     * @return la partition de la page
+     */
+    private BufferManager partition(PageId pageId) {
+        return partitions[partitionIndex(pageId)];
+    }
+
+    private int partitionIndex(PageId pageId) {
+        // Multiplicateur différent de celui de PageTable : les pages d'une
+        // partition restent bien réparties dans sa table
+        long h = PageTable.key(pageId) * 0xC2B2AE3D27D4EB4FL;
+        return Math.floorMod((int) (h >>> 32), partitions.length);
+    }
+
+    /**
+     * @return l'anneau de la partition i, ou null sans anneau
+     */
+    private BufferRing ringPart(BufferRing ring, int i) {
+        if (ring == null) {
+            return null;
+        }
+        if (ring.owner != this) {
+            throw new IllegalArgumentException("Anneau créé par un autre BufferManager");
+        }
+        return ring.parts[i];
+    }
+
+    /**
+     * @return le nombre de partitions
+     */
+    public int getPartitionCount() {
+        return partitions.length;
+    }
+
+    /**
+     * @param i indice de la partition
+     * @return le nombre de frames de la partition
+     */
+    public int getPartitionFrameCount(int i) {
+        return partitions[i].getFrameCount();
+    }
+
+    @Override
+    public byte[] GetPage(PageId pageId, BufferRing ring) throws IOException {
+        int i = partitionIndex(pageId);
+        BufferRing r = ringPart(ring, i);
+        while (true) {
+            try {
+                return partitions[i].GetPage(pageId, r);
+            } catch (IOException e) {
+                if (!borrowFrame(partitions[i])) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    @Override
+    public ByteBuffer GetPageBuffer(PageId pageId, BufferRing ring) throws IOException {
+        int i = partitionIndex(pageId);
+        BufferRing r = ringPart(ring, i);
+        while (true) {
+            try {
+                return partitions[i].GetPageBuffer(pageId, r);
+            } catch (IOException e) {
+                if (!borrowFrame(partitions[i])) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    @Override
+    public PageHandle PinPage(PageId pageId, BufferRing ring) throws IOException {
+        int i = partitionIndex(pageId);
+        BufferRing r = ringPart(ring, i);
+        while (true) {
+            try {
+                return partitions[i].PinPage(pageId, r);
+            } catch (IOException e) {
+                if (!borrowFrame(partitions[i])) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * Crée un anneau par partition, de size frames au total (au moins une
+     * frame par partition, au plus le quart de chaque partition).
+     */
+    @Override
+    public BufferRing createRing(int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Taille d'anneau invalide : " + size);
+        }
+        BufferRing[] parts = new BufferRing[partitions.length];
+        for (int i = 0; i < parts.length; i++) {
+            parts[i] = partitions[i].createRing(Math.max(1, size / partitions.length));
+        }
+        return new BufferRing(this, parts);
+    }
+
+    /**
+     * Après un échec de GetPage, donne une frame à la partition si elle est
+     * saturée et que bm_borrowframes l'autorise. La frame est retirée de la
+     * partition qui a le plus de frames au-dessus de son minimum, sans attendre
+     * la libération de ses pages épinglées.
+     *
+     * @return true si une frame a été ajoutée (GetPage peut être relancé)
+     */
+    private boolean borrowFrame(BufferManager target) throws IOException {
+        if (!getConfig().isBorrowFrames() || target.getPinnedFrameCount() < target.getFrameCount()) {
+            // Erreur d'entrée/sortie, pas une saturation
+            return false;
+        }
+        // Sans attendre : le thread qui tient borrowLock (resize) peut attendre
+        // la libération d'une page épinglée par ce thread
+        if (!borrowLock.tryLock()) {
+            return false;
+        }
+        try {
+            if (target.getPinnedFrameCount() < target.getFrameCount()) {
+                // Frame libérée entre-temps
+                return true;
+            }
+            boolean[] refused = new boolean[partitions.length];
+            while (true) {
+                int donor = -1;
+                for (int i = 0; i < partitions.length; i++) {
+                    int spare = partitions[i].getFrameCount() - minFrames[i];
+                    if (partitions[i] != target && !refused[i] && spare > 0
+                            && (donor < 0 || spare > partitions[donor].getFrameCount() - minFrames[donor])) {
+                        donor = i;
+                    }
+                }
+                if (donor < 0) {
+                    return false;
+                }
+                BufferManager d = partitions[donor];
+                if (d.tryResize(d.getFrameCount() - 1)) {
+                    target.resize(target.getFrameCount() + 1);
+                    return true;
+                }
+                // Dernière frame du prêteur épinglée : essayer un autre prêteur
+                refused[donor] = true;
+            }
+        } finally {
+            borrowLock.unlock();
+        }
+    }
+
+    @Override
+    public void FreePage(PageId pageId, boolean valDirty, BufferRing ring) {
+        int i = partitionIndex(pageId);
+        partitions[i].FreePage(pageId, valDirty, ringPart(ring, i));
+    }
+
+    @Override
+    public void LatchPage(PageId pageId, boolean exclusive) {
+        partition(pageId).LatchPage(pageId, exclusive);
+    }
+
+    @Override
+    public void UnlatchPage(PageId pageId, boolean exclusive) {
+        partition(pageId).UnlatchPage(pageId, exclusive);
+    }
+
+    /**
+     * Vide toutes les partitions, avec un seul point de reprise enregistré une
+     * fois les pages de toutes les partitions écrites.
+     */
+    @Override
+    public void FlushBuffers() throws IOException {
+        LogManager log = getDiskManager().getLogManager();
+        long startLsn = (log != null) ? log.commit() : 0;
+        for (BufferManager p : partitions) {
+            p.flushBuffers(false, null, false);
+        }
+        if (log != null) {
+            log.checkpoint(startLsn);
+        }
+    }
+
+    /**
+     * Arrête toutes les partitions, avec un seul point de reprise (voir
+     * FlushBuffers) ; avec bm_warmup, les pages de toutes les partitions sont
+     * enregistrées dans un seul fichier bm.warm.
+     */
+    @Override
+    public void Shutdown() throws IOException {
+        WarmupFile warm = getConfig().isWarmup() ? new WarmupFile() : null;
+        LogManager log = getDiskManager().getLogManager();
+        long startLsn = (log != null) ? log.commit() : 0;
+        for (BufferManager p : partitions) {
+            p.shutdown(warm, false);
+        }
+        if (log != null) {
+            log.checkpoint(startLsn);
+        }
+        if (warm != null) {
+            warm.write(WarmupFile.location(getConfig()));
+        }
+    }
+
+    /**
+     * Répartit les pages de bm.warm entre leurs partitions, dans l'ordre du
+     * fichier, et lance leur chargement dans chaque partition.
+     */
+    @Override
+    public int WarmUp() throws IOException {
+        WarmupFile warm = WarmupFile.read(WarmupFile.location(getConfig()));
+        if (warm == null) {
+            return 0;
+        }
+        Map<BufferManager, WarmupFile> parts = new HashMap<>();
+        for (int i = 0; i < warm.pages.size(); i++) {
+            PageId pageId = warm.pages.get(i);
+            parts.computeIfAbsent(partition(pageId), p -> new WarmupFile()).add(pageId, warm.frequent.get(i));
+        }
+        int started = 0;
+        for (Map.Entry<BufferManager, WarmupFile> e : parts.entrySet()) {
+            started += e.getKey().warmUp(e.getValue());
+        }
+        return started;
+    }
+
+    /**
+     * Point de reprise de toutes les partitions, enregistré une seule fois
+     * dans le journal une fois les pages de toutes les partitions écrites.
+     */
+    @Override
+    public int Checkpoint(int batchSize) throws IOException {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Taille de lot invalide : " + batchSize);
+        }
+        LogManager log = getDiskManager().getLogManager();
+        long startLsn = (log != null) ? log.commit() : 0;
+        int written = 0;
+        for (BufferManager p : partitions) {
+            written += p.checkpointPages(batchSize);
+        }
+        if (log != null) {
+            log.checkpoint(startLsn);
+        }
+        return written;
+    }
+
+    @Override
+    public void SetCurrentReplacementPolicy(BufferPolicy policy) {
+        for (BufferManager p : partitions) {
+            p.SetCurrentReplacementPolicy(policy);
+        }
+    }
+
+    /**
+     * @return la victime de la première partition qui en a une (chaque
+     *         partition a son propre ordre de remplacement)
+     */
+    @Override
+    public Frame selectVictimFrame() {
+        for (BufferManager p : partitions) {
+            Frame victim = p.selectVictimFrame();
+            if (victim != null) {
+                return victim;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Répartit le nouveau nombre de frames entre les partitions, comme à la
+     * création (les frames empruntées sont rendues).
+     */
+    @Override
+    public void resize(int newFrameCount) throws IOException {
+        if (newFrameCount < partitions.length) {
+            throw new IllegalArgumentException("Nombre de frames inférieur au nombre de partitions : " + newFrameCount);
+        }
+        borrowLock.lock();
+        try {
+            int[] shares = shares(newFrameCount);
+            // Réductions d'abord : la mémoire totale ne dépasse pas l'ancienne ni la nouvelle taille
+            for (int i = 0; i < partitions.length; i++) {
+                if (shares[i] < partitions[i].getFrameCount()) {
+                    partitions[i].resize(shares[i]);
+                }
+            }
+            for (int i = 0; i < partitions.length; i++) {
+                if (shares[i] > partitions[i].getFrameCount()) {
+                    partitions[i].resize(shares[i]);
+                }
+                minFrames[i] = Math.max(1, shares[i] / 2);
+            }
+        } finally {
+            borrowLock.unlock();
+        }
+    }
+
+    @Override
+    public int getFrameCount() {
+        int count = 0;
+        for (BufferManager p : partitions) {
+            count += p.getFrameCount();
+        }
+        return count;
+    }
+
+    @Override
+    int getPinnedFrameCount() {
+        int count = 0;
+        for (BufferManager p : partitions) {
+            count += p.getPinnedFrameCount();
+        }
+        return count;
+    }
+
+    @Override
+    public Map<PageId, Frame> getPageTable() {
+        return pageTableView;
+    }
+
+    @Override
+    public long getHitCount() {
+        long count = 0;
+        for (BufferManager p : partitions) {
+            count += p.getHitCount();
+        }
+        return count;
+    }
+
+    @Override
+    public long getMissCount() {
+        long count = 0;
+        for (BufferManager p : partitions) {
+            count += p.getMissCount();
+        }
+        return count;
+    }
+
+    @Override
+    public double getHitRatio() {
+        long hits = getHitCount();
+        long total = hits + getMissCount();
+        return (total == 0) ? 0 : (double) hits / total;
+    }
+
+    @Override
+    public void resetHitStatistics() {
+        for (BufferManager p : partitions) {
+            p.resetHitStatistics();
+        }
+    }
+
+    @Override
+    public long getDirtyEvictionCount() {
+        long count = 0;
+        for (BufferManager p : partitions) {
+            count += p.getDirtyEvictionCount();
+        }
+        return count;
+    }
+
+    @Override
+    public long getCleanerWriteCount() {
+        long count = 0;
+        for (BufferManager p : partitions) {
+            count += p.getCleanerWriteCount();
+        }
+        return count;
+    }
+
+    @Override
+    public void StopCleaner() {
+        for (BufferManager p : partitions) {
+            p.StopCleaner();
+        }
+    }
+
+    /**
+     * Vue en lecture seule des tables des pages de toutes les partitions.
+     */
+    private class PartitionedView extends AbstractMap<PageId, Frame> {
+
+        @Override
+        public Frame get(Object key) {
+            if (!(key instanceof PageId)) {
+                return null;
+            }
+            return partition((PageId) key).getPageTable().get(key);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return get(key) != null;
+        }
+
+        @Override
+        public int size() {
+            int size = 0;
+            for (BufferManager p : partitions) {
+                size += p.getPageTable().size();
+            }
+            return size;
+        }
+
+        @Override
+        public Set<Map.Entry<PageId, Frame>> entrySet() {
+            return new AbstractSet<Map.Entry<PageId, Frame>>() {
+                @Override
+                public int size() {
+                    return PartitionedView.this.size();
+                }
+
+                @Override
+                public Iterator<Map.Entry<PageId, Frame>> iterator() {
+                    List<Map.Entry<PageId, Frame>> entries = new ArrayList<>();
+                    for (BufferManager p : partitions) {
+                        entries.addAll(p.getPageTable().entrySet());
+                    }
+                    return Collections.unmodifiableList(entries).iterator();
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package bdda;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Détection des lectures séquentielles pour la lecture anticipée (bm_readahead).
+ * Un flux est suivi par fichier de données : dès que deux pages consécutives
+ * d'un fichier sont demandées l'une après l'autre, les pages suivantes sont
+ * à lire par anticipation, jusqu'à window pages après la page demandée.
+ * La fenêtre part de INITIAL_WINDOW pages ; elle double à chaque page lue par
+ * anticipation puis réellement demandée (jusqu'au maximum), et diminue de
+ * moitié à chaque page lue pour rien.
+ */
+class ReadAhead {
+
+    static final int INITIAL_WINDOW = 4;
+
+    private final int maxWindow;
+    private final Map<Integer, Stream> streams;
+
+    private static class Stream {
+        int lastPage = -2;
+        int runLength = 0;
+        int window;
+        // Première page pas encore lue par anticipation (voir onPrefetched)
+        int nextPrefetch = 0;
+    }
+
+    /**
+     * @param maxWindow taille maximale de la fenêtre (en pages)
+     */
+    ReadAhead(int maxWindow) {
+        this.maxWindow = maxWindow;
+        this.streams = new HashMap<>();
+    }
+
+    /**
+     * Enregistre une demande de page et calcule les pages à lire par anticipation.
+     *
+     * @param pageId page demandée
+     * @return les pages à lire, [pageIdx de début, pageIdx de fin exclue],
+     *         ou null si le flux n'est pas séquentiel ou déjà assez en avance ;
+     *         le flux n'avance qu'après onPrefetched
+     */
+    synchronized int[] onAccess(PageId pageId) {
+        Stream s = streams.computeIfAbsent(pageId.getFileIdx(), k -> newStream());
+        int p = pageId.getPageIdx();
+        if (p == s.lastPage) {
+            return null;
+        }
+        if (p == s.lastPage + 1) {
+            s.runLength++;
+        } else {
+            // Accès non séquentiel : le flux repart de zéro
+            s.runLength = 1;
+            s.window = Math.min(INITIAL_WINDOW, maxWindow);
+            s.nextPrefetch = p + 1;
+        }
+        s.lastPage = p;
+        if (s.runLength < 2) {
+            return null;
+        }
+        int start = Math.max(s.nextPrefetch, p + 1);
+        int end = p + 1 + s.window;
+        if (start >= end) {
+            return null;
+        }
+        return new int[] { start, end };
+    }
+
+    /**
+     * Les pages [start, next[ d'une plage rendue par onAccess ont été lues
+     * par anticipation (ou étaient déjà présentes) ; les suivantes n'ont pas
+     * pu l'être (limite bm_prefetchlimit, aucune frame propre) et seront
+     * proposées de nouveau au prochain accès du flux.
+     *
+     * @param fileIdx fichier du flux
+     * @param start début de la plage rendue par onAccess
+     * @param next première page non lue
+     */
+    synchronized void onPrefetched(int fileIdx, int start, int next) {
+        Stream s = streams.get(fileIdx);
+        if (s != null && s.nextPrefetch <= start && next > s.nextPrefetch) {
+            s.nextPrefetch = next;
+        }
+    }
+
+    /**
+     * Une page lue par anticipation a été demandée : la fenêtre du flux double.
+     */
+    synchronized void onPrefetchHit(int fileIdx) {
+        Stream s = streams.get(fileIdx);
+        if (s != null) {
+            s.window = Math.min(maxWindow, s.window * 2);
+        }
+    }
+
+    /**
+     * Une page lue par anticipation a été remplacée sans avoir été demandée :
+     * la fenêtre du flux diminue de moitié.
+     */
+    synchronized void onPrefetchWasted(int fileIdx) {
+        Stream s = streams.get(fileIdx);
+        if (s != null) {
+            s.window = Math.max(1, s.window / 2);
+        }
+    }
+
+    private Stream newStream() {
+        Stream s = new Stream();
+        s.window = Math.min(INITIAL_WINDOW, maxWindow);
+        return s;
+    }
+}
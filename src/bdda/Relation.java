@@ -29,6 +29,9 @@ public class Relation {
     private DiskManager diskManager;
     private BufferManager bufferManager;
 
+    /** Nombre de frames de l'anneau utilisé pour parcourir les pages de données. */
+    private static final int SCAN_RING_SIZE = 16;
+
     /**
      * Construit une nouvelle instance de Relation.
      *
@@ -230,33 +233,28 @@ public class Relation {
         // Allouer une nouvelle page de données
         PageId newPage = diskManager.allocPage();
 
-        // Ouvrir la Header Page via le BufferManager
-        byte[] headerBuf = bufferManager.GetPage(headerPageId);
-        ByteBuffer hb = ByteBuffer.wrap(headerBuf);
-
-        // Lire le nombre courant d’entrées
         final int pageSize = bufferManager.getConfig().getPageSize();
         if (pageSize < 12) {
-            bufferManager.FreePage(headerPageId, false);
             throw new IOException("Taille de page insuffisante pour stocker la Header Page.");
         }
 
-        int count = hb.getInt(0);
-        int entryOffset = 4 + (count * 8);
+        // Ouvrir la Header Page via le BufferManager (libérée à la fin du bloc,
+        // modifiée si on y a écrit)
+        try (PageHandle hb = bufferManager.PinPage(headerPageId)) {
+            // Lire le nombre courant d’entrées
+            int count = hb.getInt(0);
+            int entryOffset = 4 + (count * 8);
 
-        // Vérifier qu’on ne dépasse pas la taille de page
-        if (entryOffset + 8 > pageSize) {
-            bufferManager.FreePage(headerPageId, false);
-            throw new IOException("Header Page pleine : impossible d’ajouter une nouvelle entrée (offset=" + entryOffset + ", pageSize=" + pageSize + ").");
-        }
-
-        // Écrire la nouvelle entrée (fileIdx, pageIdx), puis incrémenter count
-        hb.putInt(entryOffset, newPage.getFileIdx());
-        hb.putInt(entryOffset + 4, newPage.getPageIdx());
-        hb.putInt(0, count + 1);
+            // Vérifier qu’on ne dépasse pas la taille de page
+            if (entryOffset + 8 > pageSize) {
+                throw new IOException("Header Page pleine : impossible d’ajouter une nouvelle entrée (offset=" + entryOffset + ", pageSize=" + pageSize + ").");
+            }
 
-        // Libérer la page d’en-tête (dirty = true car on a modifié son contenu)
-        bufferManager.FreePage(headerPageId, true);
+            // Écrire la nouvelle entrée (fileIdx, pageIdx), puis incrémenter count
+            hb.putInt(entryOffset, newPage.getFileIdx());
+            hb.putInt(entryOffset + 4, newPage.getPageIdx());
+            hb.putInt(0, count + 1);
+        }
     }
     
     public PageId getFreeDataPageId(int sizeRecord) throws IOException {
@@ -266,59 +264,53 @@ public class Relation {
         }
 
         final int pageSize = bufferManager.getConfig().getPageSize();
-
-        // Charger la Header Page via le BufferManager
-        byte[] headerBuf = bufferManager.GetPage(headerPageId);
-        ByteBuffer hb = ByteBuffer.wrap(headerBuf);
-
-        // Lire le nombre de pages référencées
         if (pageSize < 4) {
-            bufferManager.FreePage(headerPageId, false);
             throw new IOException("Taille de page insuffisante pour une Header Page valide.");
         }
-        int count = hb.getInt(0);
 
-        // Parcourir les entrées (8 octets chacune)
-        for (int i = 0; i < count; i++) {
-            int entryOffset = 4 + i * 8;
-            if (entryOffset + 8 > pageSize) {
-                // Protection contre une header corrompue
-                bufferManager.FreePage(headerPageId, false);
-                throw new IOException("Header Page corrompue: entrée hors limites (index=" + i + ").");
-            }
-
-            int fileIdx = hb.getInt(entryOffset);
-            int pageIdx = hb.getInt(entryOffset + 4);
-            PageId pid = new PageId(fileIdx, pageIdx);
-
-            // Lire la Data Page candidate et calculer l’espace libre réel
-            byte[] dataBuf = bufferManager.GetPage(pid);
-            ByteBuffer db = ByteBuffer.wrap(dataBuf);
-
-            if (pageSize < 8) {
-                bufferManager.FreePage(pid, false);
-                bufferManager.FreePage(headerPageId, false);
-                throw new IOException("Taille de page insuffisante pour un footer valide.");
-            }
+        // Les pages de données sont parcourues dans un anneau de frames :
+        // le parcours ne chasse pas les pages utiles du buffer pool
+        BufferRing ring = bufferManager.createRing(SCAN_RING_SIZE);
+
+        // Charger la Header Page via le BufferManager (libérée à la sortie du bloc)
+        try (PageHandle hb = bufferManager.PinPage(headerPageId)) {
+            // Lire le nombre de pages référencées
+            int count = hb.getInt(0);
+
+            // Parcourir les entrées (8 octets chacune)
+            for (int i = 0; i < count; i++) {
+                int entryOffset = 4 + i * 8;
+                if (entryOffset + 8 > pageSize) {
+                    // Protection contre une header corrompue
+                    throw new IOException("Header Page corrompue: entrée hors limites (index=" + i + ").");
+                }
 
-            int nbRecords = db.getInt(pageSize - 8);
-            int freePos   = db.getInt(pageSize - 4);
+                int fileIdx = hb.getInt(entryOffset);
+                int pageIdx = hb.getInt(entryOffset + 4);
+                PageId pid = new PageId(fileIdx, pageIdx);
+                if (pageSize < 8) {
+                    throw new IOException("Taille de page insuffisante pour un footer valide.");
+                }
 
-            // Directory déjà utilisé + footer 8 octets
-            int directoryUsed = nbRecords * 8;
-            int freeBytes = pageSize - freePos - 8 - directoryUsed; // 8 pour la future entrée (pos,taille)
+                // Lire la Data Page candidate et calculer l’espace libre réel
+                int freeBytes;
+                try (PageHandle db = bufferManager.PinPage(pid, ring)) {
+                    int nbRecords = db.getInt(pageSize - 8);
+                    int freePos   = db.getInt(pageSize - 4);
 
-            bufferManager.FreePage(pid, false);
+                    // Directory déjà utilisé + footer 8 octets
+                    int directoryUsed = nbRecords * 8;
+                    freeBytes = pageSize - freePos - 8 - directoryUsed; // 8 pour la future entrée (pos,taille)
+                }
 
-            // Assez de place ? (payload + entrée répertoire)
-            if (freeBytes >= sizeRecord + 8) {
-                bufferManager.FreePage(headerPageId, false);
-                return pid;
+                // Assez de place ? (payload + entrée répertoire)
+                if (freeBytes >= sizeRecord + 8) {
+                    return pid;
+                }
             }
         }
 
         // Aucune page ne convient
-        bufferManager.FreePage(headerPageId, false);
         return null;
     }
 
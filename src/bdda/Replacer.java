@@ -0,0 +1,77 @@
+package bdda;
+
+/**
+ * Politique de remplacement du buffer pool : choisit la frame à vider quand
+ * une page doit être chargée et qu'aucune frame n'est libre.
+ * Le BufferManager lui signale les chargements, accès et libérations de pages ;
+ * une implémentation existe pour chaque valeur de BufferPolicy.
+ * Les appels sont faits un par un, sous un verrou du BufferManager ; les
+ * pinCount des frames peuvent en revanche changer à tout moment. Les appels
+ * recordAccess et recordRelease peuvent être différés quand plusieurs threads
+ * sont en concurrence : ils sont alors reçus avant le choix suivant.
+ */
+interface Replacer {
+
+    /**
+     * Une page vient d'être chargée dans la frame (elle est épinglée).
+     *
+     * @param frameIdx indice de la frame
+     */
+    void recordLoad(int frameIdx);
+
+    /**
+     * La page de la frame, déjà présente, vient d'être demandée par GetPage.
+     *
+     * @param frameIdx indice de la frame
+     */
+    void recordAccess(int frameIdx);
+
+    /**
+     * La page de la frame vient d'être libérée par FreePage.
+     *
+     * @param frameIdx indice de la frame
+     */
+    void recordRelease(int frameIdx);
+
+    /**
+     * Choisit la frame à vider parmi les frames occupées et non épinglées.
+     * Les politiques à historique (ARC) tiennent compte de la page à charger.
+     *
+     * @param incomingKey clé PageTable de la page qui va être chargée, ou -1 si inconnue
+     * @return l'indice de la frame, ou -1 si toutes les frames sont épinglées
+     */
+    int selectVictim(long incomingKey);
+
+    /**
+     * Liste, sans modifier l'état de la politique, les frames occupées et
+     * non épinglées dans l'ordre où elles seraient choisies comme victimes
+     * si aucune page n'était plus demandée (utilisé par le nettoyeur de pages).
+     *
+     * @param candidates tableau où écrire les indices des frames
+     * @param max nombre maximal de frames à lister (au plus candidates.length)
+     * @return le nombre de frames écrites dans candidates
+     */
+    int peekVictims(int[] candidates, int max);
+
+    /**
+     * Indique si la page de la frame est considérée comme fréquente (plusieurs
+     * accès connus), pour l'enregistrer avec la page à l'arrêt (bm.warm).
+     * Les politiques sans notion de fréquence répondent toujours false.
+     *
+     * @param frameIdx indice d'une frame occupée
+     * @return true si la page est fréquente
+     */
+    default boolean isFrequent(int frameIdx) {
+        return false;
+    }
+
+    /**
+     * La page tout juste chargée dans la frame était fréquente avant l'arrêt
+     * (préchargement bm.warm) : elle retrouve cet état.
+     *
+     * @param frameIdx indice de la frame
+     */
+    default void restoreFrequent(int frameIdx) {
+        recordAccess(frameIdx);
+    }
+}
@@ -0,0 +1,69 @@
+package bdda;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Dossiers des tests : chaque test travaille dans un sous-dossier vide du
+ * dbpath de config.txt, pour que les pages allouées par un test n'épuisent
+ * pas les fichiers des suivants.
+ */
+final class TestDossiers {
+
+    private TestDossiers() {
+    }
+
+    /**
+     * @return la configuration lue dans config/config.txt
+     * @throws IOException si erreur lors de la lecture du fichier
+     */
+    static DBConfig configBase() throws IOException {
+        return DBConfig.LoadDBConfig(new File("config/config.txt"));
+    }
+
+    /**
+     * Crée le sous-dossier du dbpath s'il n'existe pas et supprime les
+     * fichiers laissés par une exécution précédente.
+     *
+     * @param nom nom du sous-dossier
+     * @return le dossier vide
+     * @throws IOException si erreur lors de la lecture de config.txt
+     */
+    static File dossierVide(String nom) throws IOException {
+        File dossier = new File(configBase().getPath(), nom);
+        dossier.mkdirs();
+        for (File f : dossier.listFiles()) {
+            f.delete();
+        }
+        return dossier;
+    }
+
+    /**
+     * Configuration de config.txt dans un dossier vide.
+     *
+     * @param nom nom du sous-dossier
+     * @return la configuration
+     * @throws IOException si erreur lors de la lecture de config.txt
+     */
+    static DBConfig configDossier(String nom) throws IOException {
+        DBConfig base = configBase();
+        return configDossier(nom, base.getBufferCount(), base.getBufferPolicy());
+    }
+
+    /**
+     * Configuration de config.txt dans un dossier vide, avec un autre
+     * nombre de frames et une autre politique de remplacement.
+     *
+     * @param nom nom du sous-dossier
+     * @param bufferCount nombre de frames du buffer pool
+     * @param policy politique de remplacement
+     * @return la configuration
+     * @throws IOException si erreur lors de la lecture de config.txt
+     */
+    static DBConfig configDossier(String nom, int bufferCount, BufferPolicy policy) throws IOException {
+        DBConfig base = configBase();
+        File dossier = dossierVide(nom);
+        return new DBConfig(dossier.getPath() + File.separator, base.getPageSize(),
+                base.getMaxFileCount(), bufferCount, policy);
+    }
+}
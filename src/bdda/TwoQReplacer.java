@@ -0,0 +1,124 @@
+package bdda;
+
+import java.util.Arrays;
+
+/**
+ * Politique 2Q (Johnson et Shasha) : une page chargée entre dans la file
+ * A1in (premier entré, premier sorti) ; elle n'est promue dans la liste LRU
+ * Am que si elle est redemandée après être sortie de A1in. Les pages
+ * remplacées depuis A1in sont gardées dans l'historique A1out ; une page
+ * rechargée alors qu'elle y figure entre directement dans Am.
+ * Un parcours séquentiel ne traverse ainsi que A1in et laisse Am intact.
+ *
+ * A1in est vidée en priorité tant qu'elle dépasse le quart des frames ;
+ * A1out garde au plus une page par frame.
+ */
+class TwoQReplacer implements Replacer {
+
+    private static final int NONE = -1;
+
+    private final Frame[] frames;
+    private final FrameList a1in;
+    private final FrameList am;
+    private final GhostList a1out;
+    private final int inTarget;
+    // Clé de la page chargée dans chaque frame d'après les appels reçus, -1 si aucune
+    private final long[] residentKey;
+
+    /**
+     * @param frames frames du buffer pool
+     * @param seedPresent true pour reprendre les pages déjà présentes,
+     *        false si l'appelant les signale ensuite par recordLoad
+     */
+    TwoQReplacer(Frame[] frames, boolean seedPresent) {
+        int n = frames.length;
+        this.frames = frames;
+        this.a1in = new FrameList(n);
+        this.am = new FrameList(n);
+        this.a1out = new GhostList(n);
+        this.inTarget = Math.max(1, n / 4);
+        this.residentKey = new long[n];
+        Arrays.fill(residentKey, NONE);
+
+        // Pages déjà présentes (changement de politique) : traitées comme neuves
+        for (int i = 0; i < n && seedPresent; i++) {
+            if (frames[i].pageId != null) {
+                residentKey[i] = PageTable.key(frames[i].pageId);
+                a1in.addFirst(i);
+            }
+        }
+    }
+
+    @Override
+    public void recordLoad(int frameIdx) {
+        if (residentKey[frameIdx] != NONE) {
+            // La page précédente de la frame a été remplacée
+            if (a1in.contains(frameIdx)) {
+                a1in.remove(frameIdx);
+                a1out.addFirst(residentKey[frameIdx], 0);
+            } else {
+                am.remove(frameIdx);
+            }
+        }
+        long key = PageTable.key(frames[frameIdx].pageId);
+        residentKey[frameIdx] = key;
+        if (a1out.remove(key) >= 0) {
+            am.addFirst(frameIdx);
+        } else {
+            a1in.addFirst(frameIdx);
+        }
+    }
+
+    @Override
+    public void recordAccess(int frameIdx) {
+        // Un accès dans A1in ne promeut pas la page : il peut venir du même parcours
+        if (am.contains(frameIdx)) {
+            am.addFirst(frameIdx);
+        }
+    }
+
+    @Override
+    public void recordRelease(int frameIdx) {
+    }
+
+    @Override
+    public boolean isFrequent(int frameIdx) {
+        return am.contains(frameIdx);
+    }
+
+    @Override
+    public void restoreFrequent(int frameIdx) {
+        // Directement dans Am, sans passer par A1out
+        a1in.remove(frameIdx);
+        am.addFirst(frameIdx);
+    }
+
+    @Override
+    public int selectVictim(long incomingKey) {
+        FrameList first = (a1in.size() > inTarget) ? a1in : am;
+        FrameList second = (first == a1in) ? am : a1in;
+        int victim = first.lastUnpinned(frames);
+        return (victim != NONE) ? victim : second.lastUnpinned(frames);
+    }
+
+    @Override
+    public int peekVictims(int[] candidates, int max) {
+        // Simule les choix successifs : A1in tant qu'elle dépasserait sa taille visée
+        int count = 0;
+        int inSize = a1in.size();
+        int inCursor = a1in.nextUnpinned(frames, a1in.last());
+        int amCursor = am.nextUnpinned(frames, am.last());
+        while (count < max && (inCursor != NONE || amCursor != NONE)) {
+            boolean fromIn = (inSize > inTarget && inCursor != NONE) || amCursor == NONE;
+            if (fromIn) {
+                candidates[count++] = inCursor;
+                inSize--;
+                inCursor = a1in.nextUnpinned(frames, a1in.newer(inCursor));
+            } else {
+                candidates[count++] = amCursor;
+                amCursor = am.nextUnpinned(frames, am.newer(amCursor));
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,100 @@
+package bdda;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Pages présentes dans le buffer pool à l'arrêt (fichier bm.warm, dans le
+ * dossier de la base, dbpath), rechargées au démarrage suivant par BufferManager.WarmUp.
+ * Les pages sont rangées dans l'ordre où la politique de remplacement les
+ * aurait choisies comme victimes : les dernières sont les plus utiles.
+ * Chaque page garde aussi l'indication « fréquente » de la politique
+ * (Replacer.isFrequent).
+ *
+ * Format : magic, nombre de pages, puis pour chaque page fileIdx, pageIdx
+ * et un octet d'indicateurs.
+ */
+final class WarmupFile {
+
+    static final String NAME = "bm.warm";
+
+    private static final int MAGIC = 0x424D5731;
+    private static final int HEADER_SIZE = 8;
+    private static final int ENTRY_SIZE = 9;
+    private static final byte FREQUENT = 1;
+
+    final List<PageId> pages;
+    final List<Boolean> frequent;
+
+    WarmupFile() {
+        this.pages = new ArrayList<>();
+        this.frequent = new ArrayList<>();
+    }
+
+    void add(PageId pageId, boolean isFrequent) {
+        pages.add(pageId);
+        frequent.add(isFrequent);
+    }
+
+    static File location(DBConfig config) {
+        return new File(config.getPath(), NAME);
+    }
+
+    /**
+     * Lit le fichier des pages à recharger.
+     *
+     * @return les pages du fichier, ou null s'il n'existe pas
+     * @throws IOException si le fichier est illisible ou invalide
+     */
+    static WarmupFile read(File file) throws IOException {
+        if (!file.exists()) {
+            return null;
+        }
+        ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+        if (bytes.remaining() < HEADER_SIZE || bytes.getInt() != MAGIC) {
+            throw new IOException("Fichier de préchargement invalide : " + file.getAbsolutePath());
+        }
+        int count = bytes.getInt();
+        if (count < 0 || bytes.remaining() != (long) count * ENTRY_SIZE) {
+            throw new IOException("Fichier de préchargement tronqué : " + file.getAbsolutePath());
+        }
+        WarmupFile warm = new WarmupFile();
+        for (int i = 0; i < count; i++) {
+            int fileIdx = bytes.getInt();
+            int pageIdx = bytes.getInt();
+            warm.add(new PageId(fileIdx, pageIdx), (bytes.get() & FREQUENT) != 0);
+        }
+        return warm;
+    }
+
+    /**
+     * Écrit le fichier (à côté puis renommé : un arrêt brutal laisse l'ancien
+     * ou le nouveau fichier, jamais un mélange).
+     */
+    void write(File file) throws IOException {
+        File tmp = new File(file.getPath() + ".tmp");
+        ByteBuffer bytes = ByteBuffer.allocate(HEADER_SIZE + pages.size() * ENTRY_SIZE);
+        bytes.putInt(MAGIC).putInt(pages.size());
+        for (int i = 0; i < pages.size(); i++) {
+            PageId pageId = pages.get(i);
+            bytes.putInt(pageId.getFileIdx()).putInt(pageId.getPageIdx());
+            bytes.put(frequent.get(i) ? FREQUENT : 0);
+        }
+        bytes.flip();
+        try (FileChannel channel = FileChannel.open(tmp.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+            channel.force(false);
+        }
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}